@@ -0,0 +1,7 @@
+package smart;
+
+import java.time.LocalDateTime;
+
+//a booking moved out of its classroom into the BookingArchive, read only. the room is kept
+//by number so archived bookings outlive any change to the classroom list
+public record ArchivedBooking(String roomNumber, String course, LocalDateTime startTime, LocalDateTime endTime) {}
@@ -1,28 +1,204 @@
 package smart;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 
+//a view over one row of a classroom's BookingTable. a booking made with the public
+//constructor holds its own values until it is added to the classroom, and gets them back
+//if it is removed, so it can still be shown afterwards. times are kept to the minute
 public class Booking implements Serializable {
 	private static final long serialVersionUID = 1L;
+    //the .dat files keep the original layout, the course as text and LocalDateTime times
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("classroom", Classroom.class),
+        new ObjectStreamField("course", String.class),
+        new ObjectStreamField("startTime", LocalDateTime.class),
+        new ObjectStreamField("endTime", LocalDateTime.class)
+    };
     private Classroom classroom;
-    private String course;
-    private LocalDateTime startTime;
-    private LocalDateTime endTime;
+    //the row in classroom's table while added to it, -1 otherwise. read once under the
+    //classroom's monitor, an eviction on another thread parks the view in between
+    private transient volatile int row = -1;
+    //the values while not in a table
+    private transient Detached detached;
+    //the classroom's bookings were evicted while this view was in use, detached holds
+    //its values until they are read back in
+    private transient volatile boolean parked;
+    //bumped on every change so cached display cells know when to re-render
+    private transient int version;
+
+    private static final class Detached {
+        long start;
+        long end;
+        int course;
+
+        Detached(long start, long end, int course) {
+            this.start = start;
+            this.end = end;
+            this.course = course;
+        }
+    }
 
     public Booking(Classroom classroom, String course, LocalDateTime startTime, LocalDateTime endTime) {
         this.classroom = classroom;
-        this.course = course;
-        this.startTime = startTime;
-        this.endTime = endTime;
+        this.detached = new Detached(BookingTable.toMinutes(startTime), BookingTable.toMinutes(endTime),
+            StringDictionary.COURSES.id(course));
+    }
+
+    //a detached copy of a row's values
+    Booking(Classroom classroom, long start, long end, int course) {
+        this.classroom = classroom;
+        this.detached = new Detached(start, end, course);
+    }
+
+    //a view made by the table for a row it already holds
+    Booking(Classroom classroom, int row) {
+        this.classroom = classroom;
+        this.row = row;
     }
 
     //getters and Setters
     public Classroom getClassroom() { return classroom; }
-    public String getCourse() { return course; }
-    public void setCourse(String course) { this.course = course; }
-    public LocalDateTime getStartTime() { return startTime; }
-    public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
-    public LocalDateTime getEndTime() { return endTime; }
-    public void setEndTime(LocalDateTime endTime) { this.endTime = endTime; }
+    public String getCourse() { return StringDictionary.COURSES.get(getCourseId()); }
+    public int getCourseId() {
+        synchronized (classroom) {
+            int current = row;
+            return current >= 0 ? table().course(current) : detached.course;
+        }
+    }
+    public void setCourse(String course) {
+        int id = StringDictionary.COURSES.id(course);
+        int current = getRow();
+        if (current >= 0) {
+            table().setCourse(current, id);
+        } else {
+            detached.course = id;
+        }
+        changed();
+    }
+    public LocalDateTime getStartTime() { return BookingTable.fromMinutes(getStartMinutes()); }
+    public long getStartMinutes() {
+        synchronized (classroom) {
+            int current = row;
+            return current >= 0 ? table().start(current) : detached.start;
+        }
+    }
+    public void setStartTime(LocalDateTime startTime) {
+        long minutes = BookingTable.toMinutes(startTime);
+        int current = getRow();
+        if (current >= 0) {
+            table().setStart(current, minutes);
+        } else {
+            detached.start = minutes;
+        }
+        changed();
+    }
+    public LocalDateTime getEndTime() { return BookingTable.fromMinutes(getEndMinutes()); }
+    public long getEndMinutes() {
+        synchronized (classroom) {
+            int current = row;
+            return current >= 0 ? table().end(current) : detached.end;
+        }
+    }
+    public void setEndTime(LocalDateTime endTime) {
+        long minutes = BookingTable.toMinutes(endTime);
+        int current = getRow();
+        if (current >= 0) {
+            table().setEnd(current, minutes);
+        } else {
+            detached.end = minutes;
+        }
+        changed();
+    }
+    public int getVersion() { return version; }
+
+    private BookingTable table() {
+        return classroom.getBookingTable();
+    }
+
+    private void changed() {
+        version++;
+        if (classroom != null) {
+            classroom.bookingChanged();
+        }
+    }
+
+    //the row while in a table, -1 otherwise. a parked view has its classroom's bookings
+    //read back in first
+    int getRow() {
+        if (parked) {
+            classroom.getBookingTable();
+        }
+        return row;
+    }
+
+    //moves this booking's values into the table, called by Classroom.addBooking
+    void attach(BookingTable table) {
+        if (row >= 0) {
+            throw new IllegalStateException("Booking is already in a classroom.");
+        }
+        row = table.add(this, detached.start, detached.end, detached.course);
+        detached = null;
+    }
+
+    //takes the values back out before the row is removed
+    void detach(BookingTable table) {
+        detached = new Detached(table.start(row), table.end(row), table.course(row));
+        row = -1;
+    }
+
+    //the classroom is evicting its bookings, keeps a copy of the values to answer from
+    void park(BookingTable table) {
+        detached = new Detached(table.start(row), table.end(row), table.course(row));
+        parked = true;
+        row = -1;
+    }
+
+    //bound to its row in the table read back in. the copy of the values is kept, a reader
+    //that saw the view parked may still be reading it. another instance may have changed
+    //the booking meanwhile, then cached cells are rendered again
+    void reattach(BookingTable table, int newRow) {
+        Detached was = detached;
+        table.bind(newRow, this);
+        row = newRow;
+        parked = false;
+        if (was.start != table.start(newRow) || was.end != table.end(newRow) || was.course != table.course(newRow)) {
+            version++;
+        }
+    }
+
+    //nothing in the table read back starts when this booking did, it was removed elsewhere.
+    //it stays detached with the values it last had, like a removed booking
+    void unpark() {
+        parked = false;
+    }
+
+    //the table compacted and this booking's row moved
+    void moved(int newRow) {
+        row = newRow;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("classroom", classroom);
+        fields.put("course", getCourse());
+        fields.put("startTime", getStartTime());
+        fields.put("endTime", getEndTime());
+        out.writeFields();
+    }
+
+    //read detached, the classroom that owns the booking attaches it once it has its list
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        classroom = (Classroom) fields.get("classroom", null);
+        row = -1;
+        detached = new Detached(
+            BookingTable.toMinutes((LocalDateTime) fields.get("startTime", null)),
+            BookingTable.toMinutes((LocalDateTime) fields.get("endTime", null)),
+            StringDictionary.COURSES.id((String) fields.get("course", null)));
+    }
 }
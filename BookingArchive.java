@@ -0,0 +1,180 @@
+package smart;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+//past bookings moved out of the classrooms, one gzip file per year of their start (UTC of
+//the local times, like BookingTable), e.g. archive/2025.bookings.gz. each archiving run
+//appends a new gzip member to the years it touches, GZIPInputStream reads the members one
+//after another, so nothing written is ever rewritten. records are
+//
+//  UTF room, UTF course, long start, long end    (epoch minutes)
+//
+//nothing is read until someone asks for history, then only the years asked for. the few
+//years asked for most recently stay loaded until the year is appended to again, one room's
+//history is read through every year without loading any
+final class BookingArchive {
+    private static final String SUFFIX = ".bookings.gz";
+    private static final int MAX_LOADED_YEARS = 3;
+
+    private final File dir;
+    private final TreeSet<Integer> years = new TreeSet<>();
+    //access ordered so the least recently asked for year is dropped first
+    private final Map<Integer, List<ArchivedBooking>> loaded = new LinkedHashMap<>(MAX_LOADED_YEARS * 2, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<ArchivedBooking>> eldest) {
+            return size() > MAX_LOADED_YEARS;
+        }
+    };
+
+    private BookingArchive(File dir) {
+        this.dir = dir;
+        File[] files = dir.listFiles((_, name) -> name.endsWith(SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                years.add(Integer.parseInt(name.substring(0, name.length() - SUFFIX.length())));
+            }
+        }
+    }
+
+    //the archive in dir, created if missing. null if it cannot be opened, the application
+    //keeps every booking live then
+    public static BookingArchive open(File dir) {
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);
+            }
+            return new BookingArchive(dir);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error opening booking archive in " + dir + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private File fileFor(int year) {
+        return new File(dir, year + SUFFIX);
+    }
+
+    //written and synced to disk before returning, so the caller can drop the live copies
+    public synchronized void append(List<ArchivedBooking> bookings) throws IOException {
+        Map<Integer, List<ArchivedBooking>> byYear = new TreeMap<>();
+        for (ArchivedBooking booking : bookings) {
+            byYear.computeIfAbsent(booking.startTime().getYear(), _ -> new ArrayList<>()).add(booking);
+        }
+        for (Map.Entry<Integer, List<ArchivedBooking>> year : byYear.entrySet()) {
+            try (FileOutputStream file = new FileOutputStream(fileFor(year.getKey()), true)) {
+                BufferedOutputStream buffer = new BufferedOutputStream(file);
+                GZIPOutputStream gzip = new GZIPOutputStream(buffer);
+                DataOutputStream out = new DataOutputStream(gzip);
+                for (ArchivedBooking booking : year.getValue()) {
+                    out.writeUTF(booking.roomNumber());
+                    out.writeUTF(booking.course());
+                    out.writeLong(BookingTable.toMinutes(booking.startTime()));
+                    out.writeLong(BookingTable.toMinutes(booking.endTime()));
+                }
+                out.flush();
+                gzip.finish();
+                buffer.flush();
+                file.getFD().sync();
+            }
+            years.add(year.getKey());
+            loaded.remove(year.getKey());
+        }
+    }
+
+    //archived bookings of the room, or every room for null, starting in [from, to)
+    public List<ArchivedBooking> between(String roomNumber, long from, long to) {
+        List<ArchivedBooking> found = new ArrayList<>();
+        if (to <= from) {
+            return found;
+        }
+        int first = BookingTable.fromMinutes(from).getYear();
+        int last = BookingTable.fromMinutes(to - 1).getYear();
+        for (List<ArchivedBooking> year : load(first, last)) {
+            for (ArchivedBooking booking : year) {
+                long start = BookingTable.toMinutes(booking.startTime());
+                if (start >= from && start < to
+                        && (roomNumber == null || booking.roomNumber().equalsIgnoreCase(roomNumber))) {
+                    found.add(booking);
+                }
+            }
+        }
+        found.sort((a, b) -> a.startTime().compareTo(b.startTime()));
+        return found;
+    }
+
+    //every archived booking of the room, oldest first
+    public List<ArchivedBooking> ofRoom(String roomNumber) {
+        List<ArchivedBooking> found = new ArrayList<>();
+        synchronized (this) {
+            for (int year : years) {
+                found.addAll(read(year, roomNumber));
+            }
+        }
+        found.sort((a, b) -> a.startTime().compareTo(b.startTime()));
+        return found;
+    }
+
+    public synchronized int getYearCount() {
+        return years.size();
+    }
+
+    //compressed size on disk
+    public synchronized long getBytes() {
+        long bytes = 0;
+        for (int year : years) {
+            bytes += fileFor(year).length();
+        }
+        return bytes;
+    }
+
+    private synchronized List<List<ArchivedBooking>> load(int first, int last) {
+        List<List<ArchivedBooking>> result = new ArrayList<>();
+        for (int year : years.subSet(first, true, last, true)) {
+            result.add(loaded.computeIfAbsent(year, y -> read(y, null)));
+        }
+        return result;
+    }
+
+    //the year's bookings, only the room's unless roomNumber is null. a torn member at the
+    //end, from a crash mid append, ends the year early
+    private List<ArchivedBooking> read(int year, String roomNumber) {
+        List<ArchivedBooking> bookings = new ArrayList<>();
+        File file = fileFor(year);
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))))) {
+            while (true) {
+                String room = in.readUTF();
+                String course = in.readUTF();
+                long start = in.readLong();
+                long end = in.readLong();
+                if (roomNumber != null && !room.equalsIgnoreCase(roomNumber)) {
+                    continue;
+                }
+                bookings.add(new ArchivedBooking(room, StringDictionary.COURSES.canonical(course), BookingTable.fromMinutes(start), BookingTable.fromMinutes(end)));
+            }
+        } catch (EOFException e) {
+            //end of the year
+        } catch (IOException e) {
+            System.err.println("Error reading booking archive " + file + ": " + e.getMessage());
+        }
+        return bookings;
+    }
+}
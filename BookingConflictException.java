@@ -0,0 +1,15 @@
+package smart;
+
+//thrown when a booking would overlap an existing one, carries the booking it clashed with
+public class BookingConflictException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+    private final transient Booking conflict;
+
+    public BookingConflictException(Booking conflict) {
+        super("This booking overlaps with an existing booking: " + conflict.getCourse() +
+            " in " + conflict.getClassroom().getRoomNumber());
+        this.conflict = conflict;
+    }
+
+    public Booking getConflict() { return conflict; }
+}
@@ -0,0 +1,195 @@
+package smart;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//each classroom's bookings in a file of their own under rooms/, so classrooms.dat only
+//holds the room headers and a room's bookings are read the first time something asks for
+//them. a segment is the room's live rows as columns:
+//
+//  int version, int courses, courses x UTF, int rows, rows x (long start, long end, int course)
+//
+//with the course as an index into the segment's own list of course codes. segments are
+//written to a temporary file and moved over the old one.
+//
+//at most maxResident rooms keep their bookings in memory. going over calls the overLimit
+//task, which CampusService uses to evict the least recently used rooms under its write
+//lock, writing out any with unsaved changes first.
+//
+//each segment's DataDirLock stamp is kept from when its bookings were last written or
+//taken into the indexes, so changedOnDisk tells which segments another instance saved
+final class BookingSegments {
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".seg";
+
+    private final File dir;
+    private final Runnable overLimit;
+    private volatile int maxResident;
+    private final Set<Classroom> resident = ConcurrentHashMap.newKeySet();
+    //stamps rooms as they are used, the lowest stamp is the least recently used
+    private final AtomicLong clock = new AtomicLong();
+    //by file name
+    private final Map<String, String> stamps = new ConcurrentHashMap<>();
+
+    BookingSegments(File dir, int maxResident, Runnable overLimit) {
+        this.dir = dir;
+        this.maxResident = maxResident;
+        this.overLimit = overLimit;
+    }
+
+    long tick() {
+        return clock.incrementAndGet();
+    }
+
+    int getMaxResident() { return maxResident; }
+    int getResidentCount() { return resident.size(); }
+
+    void setMaxResident(int maxResident) {
+        if (maxResident < 1) {
+            throw new IllegalArgumentException("At least one room must stay loaded.");
+        }
+        this.maxResident = maxResident;
+        if (resident.size() > maxResident) {
+            overLimit.run();
+        }
+    }
+
+    //a room's bookings were read in
+    void paged(Classroom room) {
+        resident.add(room);
+        if (resident.size() > maxResident) {
+            overLimit.run();
+        }
+    }
+
+    void evicted(Classroom room) {
+        resident.remove(room);
+    }
+
+    //the rooms to evict to get back within the limit, least recently used first
+    List<Classroom> overLimit() {
+        List<Classroom> rooms = new ArrayList<>(resident);
+        if (rooms.size() <= maxResident) {
+            return List.of();
+        }
+        rooms.sort(Comparator.comparingLong(Classroom::getLastUsed));
+        return rooms.subList(0, rooms.size() - maxResident);
+    }
+
+    //named after the room number as CampusService keys it, upper cased, so case insensitive
+    //file systems agree. anything but letters, digits, '-' and '_' is written as %XX of its
+    //UTF-8 bytes
+    private File fileFor(Classroom room) {
+        StringBuilder name = new StringBuilder();
+        String key = room.getRoomNumber().trim().toUpperCase(Locale.ROOT);
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if (c < 0x80 && (Character.isLetterOrDigit(c) || c == '-' || c == '_')) {
+                name.append(c);
+            } else {
+                name.append('%').append(String.format("%02X", b & 0xFF));
+            }
+        }
+        return new File(dir, name + SUFFIX);
+    }
+
+    //the room's segment as it is now on disk is the one the service knows
+    void stamp(Classroom room) {
+        File file = fileFor(room);
+        stamps.put(file.getName(), DataDirLock.stamp(file));
+    }
+
+    boolean changedOnDisk(Classroom room) {
+        File file = fileFor(room);
+        return !DataDirLock.stamp(file).equals(stamps.getOrDefault(file.getName(), ""));
+    }
+
+    //the room's saved bookings, an empty table if it has never been written
+    BookingTable read(Classroom room) {
+        BookingTable table = new BookingTable();
+        File file = fileFor(room);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unknown segment version " + version);
+            }
+            int[] courses = new int[in.readInt()];
+            for (int i = 0; i < courses.length; i++) {
+                String course = in.readUTF();
+                courses[i] = course.isEmpty() ? StringDictionary.NONE : StringDictionary.COURSES.id(course);
+            }
+            int rows = in.readInt();
+            for (int row = 0; row < rows; row++) {
+                long start = in.readLong();
+                long end = in.readLong();
+                table.add(null, start, end, courses[in.readInt()]);
+            }
+        } catch (FileNotFoundException e) {
+            //no bookings saved yet
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the bookings of " + room.getRoomNumber() + ": " + e.getMessage(), e);
+        }
+        return table;
+    }
+
+    void write(Classroom room, BookingTable table) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File file = fileFor(room);
+        File temp = new File(dir, file.getName() + ".tmp");
+        Map<Integer, Integer> refs = new HashMap<>();
+        List<Integer> courses = new ArrayList<>();
+        int rows = 0;
+        for (int row = 0, n = table.rowCount(); row < n; row++) {
+            //removed rows start at Long.MAX_VALUE
+            if (table.start(row) != Long.MAX_VALUE) {
+                rows++;
+                refs.computeIfAbsent(table.course(row), course -> {
+                    courses.add(course);
+                    return courses.size() - 1;
+                });
+            }
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(VERSION);
+            out.writeInt(courses.size());
+            for (int course : courses) {
+                out.writeUTF(course == StringDictionary.NONE ? "" : StringDictionary.COURSES.get(course));
+            }
+            out.writeInt(rows);
+            for (int row = 0, n = table.rowCount(); row < n; row++) {
+                if (table.start(row) != Long.MAX_VALUE) {
+                    out.writeLong(table.start(row));
+                    out.writeLong(table.end(row));
+                    out.writeInt(refs.get(table.course(row)));
+                }
+            }
+        }
+        //another instance saved the room since, and this one's bookings win
+        if (changedOnDisk(room)) {
+            CampusMetrics.DATA_CONFLICTS.increment();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        stamps.put(file.getName(), DataDirLock.stamp(file));
+    }
+}
@@ -0,0 +1,240 @@
+package smart;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+//one classroom's bookings stored as columns: start and end in epoch minutes, the course as
+//a StringDictionary.COURSES id and a bitset of removed rows. conflict checks and range
+//scans are plain loops over two long arrays, with no objects to follow and nothing
+//allocated. Booking objects are views over a row, made when a row is asked for and only
+//weakly held here, so a view lives as long as whoever asked for it holds on to it, and
+//asking again meanwhile gives the same one. listing every booking does not leave an
+//object per row behind.
+//
+//removed rows keep their place until enough of them build up, their start is set to
+//Long.MAX_VALUE and their end to Long.MIN_VALUE so they can never overlap anything and the
+//scans do not need to look at the bitset. not thread safe, CampusService guards it.
+final class BookingTable {
+    private static final int INITIAL_CAPACITY = 8;
+    //compact once at least this many rows are dead and they outnumber the live ones
+    private static final int COMPACT_THRESHOLD = 64;
+
+    private long[] starts = new long[INITIAL_CAPACITY];
+    private long[] ends = new long[INITIAL_CAPACITY];
+    private int[] courses = new int[INITIAL_CAPACITY];
+    private ViewRef[] views = new ViewRef[INITIAL_CAPACITY];
+    private final ReferenceQueue<Booking> collected = new ReferenceQueue<>();
+    private final BitSet removed = new BitSet();
+    private int rows;
+    private int dead;
+
+    static long toMinutes(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    static LocalDateTime fromMinutes(long minutes) {
+        return LocalDateTime.ofEpochSecond(minutes * 60, 0, ZoneOffset.UTC);
+    }
+
+    int size() {
+        return rows - dead;
+    }
+
+    //rows to loop over, removed ones included since their times never overlap anything
+    int rowCount() {
+        return rows;
+    }
+
+    long start(int row) { return starts[row]; }
+    long end(int row) { return ends[row]; }
+    int course(int row) { return courses[row]; }
+
+    void setStart(int row, long start) { starts[row] = start; }
+    void setEnd(int row, long end) { ends[row] = end; }
+    void setCourse(int row, int course) { courses[row] = course; }
+
+    //a view and the row it is bound to, moved along with the row when the table compacts
+    private static final class ViewRef extends WeakReference<Booking> {
+        int row;
+
+        ViewRef(Booking booking, int row, ReferenceQueue<Booking> queue) {
+            super(booking, queue);
+            this.row = row;
+        }
+    }
+
+    //appends a row and binds the booking to it
+    int add(Booking booking, long start, long end, int course) {
+        if (rows == starts.length) {
+            int capacity = rows * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            courses = Arrays.copyOf(courses, capacity);
+            views = Arrays.copyOf(views, capacity);
+        }
+        int row = rows++;
+        starts[row] = start;
+        ends[row] = end;
+        courses[row] = course;
+        views[row] = new ViewRef(booking, row, collected);
+        return row;
+    }
+
+    void remove(int row) {
+        removed.set(row);
+        starts[row] = Long.MAX_VALUE;
+        ends[row] = Long.MIN_VALUE;
+        views[row] = null;
+        dead++;
+        if (dead >= COMPACT_THRESHOLD && dead * 2 > rows) {
+            compact();
+        }
+    }
+
+    //slides the live rows down over the dead ones, telling each view where it went
+    private void compact() {
+        int to = 0;
+        for (int from = removed.nextClearBit(0); from < rows; from = removed.nextClearBit(from + 1)) {
+            if (from != to) {
+                starts[to] = starts[from];
+                ends[to] = ends[from];
+                courses[to] = courses[from];
+                views[to] = views[from];
+                Booking view = views[to] == null ? null : views[to].get();
+                if (view != null) {
+                    views[to].row = to;
+                    view.moved(to);
+                } else {
+                    views[to] = null;
+                }
+            }
+            to++;
+        }
+        Arrays.fill(views, to, rows, null);
+        removed.clear();
+        rows = to;
+        dead = 0;
+    }
+
+    //the first live row overlapping [start, end) other than ignoreRow, or -1
+    int findOverlap(long start, long end, int ignoreRow) {
+        long[] s = starts;
+        long[] e = ends;
+        for (int row = 0, n = rows; row < n; row++) {
+            if (start < e[row] && end > s[row] && row != ignoreRow) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    //the first live row starting exactly at start, or -1
+    int findStart(long start) {
+        long[] s = starts;
+        for (int row = 0, n = rows; row < n; row++) {
+            if (s[row] == start) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    //the earliest start after minute, Long.MAX_VALUE if there is none. removed rows start
+    //at Long.MAX_VALUE so they never win
+    long nextStartAfter(long minute) {
+        long next = Long.MAX_VALUE;
+        long[] s = starts;
+        for (int row = 0, n = rows; row < n; row++) {
+            if (s[row] > minute && s[row] < next) {
+                next = s[row];
+            }
+        }
+        return next;
+    }
+
+    //minutes booked inside [from, to), counted without making any views
+    long bookedMinutes(long from, long to) {
+        long total = 0;
+        for (int row = 0; row < rows; row++) {
+            long start = Math.max(from, starts[row]);
+            long end = Math.min(to, ends[row]);
+            if (end > start) {
+                total += end - start;
+            }
+        }
+        return total;
+    }
+
+    //the views still held somewhere, for Classroom to park when it evicts the table
+    synchronized List<Booking> boundViews() {
+        List<Booking> result = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            Booking view = views[row] == null ? null : views[row].get();
+            if (view != null) {
+                result.add(view);
+            }
+        }
+        return result;
+    }
+
+    //a view parked by an eviction takes its row again in the table read back
+    synchronized void bind(int row, Booking booking) {
+        views[row] = new ViewRef(booking, row, collected);
+    }
+
+    //synchronized so two readers asking for the same row at once still get one view
+    synchronized Booking view(Classroom classroom, int row) {
+        expunge();
+        Booking booking = views[row] == null ? null : views[row].get();
+        if (booking == null) {
+            booking = new Booking(classroom, row);
+            views[row] = new ViewRef(booking, row, collected);
+        }
+        return booking;
+    }
+
+    //drops the references to views nobody holds any more
+    private void expunge() {
+        for (Reference<? extends Booking> ref; (ref = collected.poll()) != null; ) {
+            int row = ((ViewRef) ref).row;
+            if (row < rows && views[row] == ref) {
+                views[row] = null;
+            }
+        }
+    }
+
+    synchronized List<Booking> views(Classroom classroom) {
+        List<Booking> result = new ArrayList<>(size());
+        for (int row = removed.nextClearBit(0); row < rows; row = removed.nextClearBit(row + 1)) {
+            result.add(view(classroom, row));
+        }
+        return result;
+    }
+
+    //detached copies of the live rows, for a table read without paging it in whose views
+    //could not be bound to it
+    List<Booking> copies(Classroom classroom) {
+        List<Booking> result = new ArrayList<>(size());
+        for (int row = removed.nextClearBit(0); row < rows; row = removed.nextClearBit(row + 1)) {
+            result.add(new Booking(classroom, starts[row], ends[row], courses[row]));
+        }
+        return result;
+    }
+
+    synchronized List<Booking> viewsBetween(Classroom classroom, long from, long to) {
+        List<Booking> result = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            if (starts[row] < to && ends[row] > from) {
+                result.add(view(classroom, row));
+            }
+        }
+        return result;
+    }
+}
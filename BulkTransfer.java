@@ -0,0 +1,469 @@
+package smart;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+//bulk import and export of students, classrooms, bookings and resources as CSV (with a
+//header row) or JSON Lines (one flat object per line, for .json/.jsonl files).
+//
+//an import is a pipeline: one thread reads the file in batches of lines, a pool with a
+//thread per core parses and validates the batches, and the calling thread checks the rows
+//for duplicates and conflicts in file order. only a bounded number of batches are in
+//flight, so the reader never holds more than a few thousand raw lines however big the file
+//is. nothing reaches the service until the whole file has been read, then every good row
+//is added under one write lock and the data files are saved once
+class BulkTransfer {
+    public static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private static final int BATCH_SIZE = 2000;
+
+    enum Kind {
+        STUDENTS("id", "name", "degree", "email"),
+        CLASSROOMS("roomNumber", "type", "capacity"),
+        BOOKINGS("room", "course", "start", "end"),
+        RESOURCES("id", "name", "type", "status", "checkedOutBy");
+
+        final String[] columns;
+
+        Kind(String... columns) {
+            this.columns = columns;
+        }
+
+        static Kind parse(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    record RowError(long line, String message) {}
+
+    static final class Report {
+        private long rowsRead;
+        private long rowsImported;
+        private final List<RowError> errors = new ArrayList<>();
+
+        public long getRowsRead() { return rowsRead; }
+        public long getRowsImported() { return rowsImported; }
+        public List<RowError> getErrors() { return errors; }
+
+        public void writeErrors(Path file) throws IOException {
+            try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                out.write("line,error");
+                out.newLine();
+                for (RowError error : errors) {
+                    out.write(error.line() + "," + csvField(error.message()));
+                    out.newLine();
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return rowsImported + " of " + rowsRead + " rows imported, " + errors.size() + " rejected";
+        }
+    }
+
+    private final CampusService service;
+
+    public BulkTransfer(CampusService service) {
+        this.service = service;
+    }
+
+    //import
+
+    public Report importFile(Kind kind, Path file) throws IOException {
+        boolean json = isJson(file);
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService parsers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "bulk-import-parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        //bounded, so the reader waits for the parsers instead of buffering the file
+        BlockingQueue<Future<Parsed>> inFlight = new ArrayBlockingQueue<>(threads * 2);
+        CampusMetrics.registerGauge("queue.import", inFlight::size);
+        Thread reader = new Thread(() -> readBatches(kind, file, json, parsers, inFlight), "bulk-import-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        Report report = new Report();
+        Staging staging = new Staging(kind);
+        try {
+            while (true) {
+                Parsed parsed = inFlight.take().get();
+                if (parsed == null) {
+                    break;
+                }
+                report.rowsRead += parsed.rowsRead;
+                report.errors.addAll(parsed.errors);
+                for (int i = 0; i < parsed.values.size(); i++) {
+                    String problem = staging.add(parsed.values.get(i), parsed.valueLines.get(i));
+                    if (problem != null) {
+                        report.errors.add(new RowError(parsed.valueLines.get(i), problem));
+                    }
+                }
+            }
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Import failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            //an import that stopped early leaves the reader waiting for room in the queue
+            reader.interrupt();
+            inFlight.clear();
+            parsers.shutdownNow();
+            CampusMetrics.registerGauge("queue.import", () -> 0);
+        }
+
+        report.rowsImported = staging.commit(report);
+        report.errors.sort((a, b) -> Long.compare(a.line(), b.line()));
+        if (report.rowsImported > 0) {
+            service.saveAllData();
+        }
+        return report;
+    }
+
+    private void readBatches(Kind kind, Path file, boolean json, ExecutorService parsers, BlockingQueue<Future<Parsed>> inFlight) {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            long lineNumber = 0;
+            String[] header = null;
+            if (!json) {
+                String headerLine = in.readLine();
+                lineNumber++;
+                if (headerLine == null) {
+                    inFlight.put(CompletableFuture.completedFuture(null));
+                    return;
+                }
+                header = splitCsv(stripBom(headerLine)).toArray(new String[0]);
+            }
+            String[] columns = header;
+            List<String> lines = new ArrayList<>(BATCH_SIZE);
+            long firstLine = lineNumber + 1;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (lines.isEmpty()) {
+                    firstLine = lineNumber;
+                }
+                lines.add(line);
+                if (lines.size() == BATCH_SIZE) {
+                    submit(kind, columns, lines, firstLine, parsers, inFlight);
+                    lines = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!lines.isEmpty()) {
+                submit(kind, columns, lines, firstLine, parsers, inFlight);
+            }
+            inFlight.put(CompletableFuture.completedFuture(null));
+        } catch (IOException e) {
+            //surface the failure to the consumer in place of the next batch
+            try {
+                inFlight.put(CompletableFuture.failedFuture(e));
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        } catch (InterruptedException e) {
+            //importFile stopped taking batches, nobody is left to tell
+        }
+    }
+
+    private void submit(Kind kind, String[] header, List<String> lines, long firstLine,
+                        ExecutorService parsers, BlockingQueue<Future<Parsed>> inFlight) throws InterruptedException {
+        inFlight.put(parsers.submit(() -> parseBatch(kind, header, lines, firstLine)));
+    }
+
+    //the batch holds consecutive lines of the file starting at firstLine
+    private Parsed parseBatch(Kind kind, String[] header, List<String> lines, long firstLine) {
+        Parsed parsed = new Parsed();
+        long lineNumber = firstLine - 1;
+        for (String line : lines) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            parsed.rowsRead++;
+            try {
+                Map<String, String> fields = header == null ? Json.parseObject(line) : csvRecord(header, line);
+                parsed.values.add(build(kind, fields));
+                parsed.valueLines.add(lineNumber);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                parsed.errors.add(new RowError(lineNumber, e.getMessage()));
+            }
+        }
+        return parsed;
+    }
+
+    private Object build(Kind kind, Map<String, String> fields) {
+        switch (kind) {
+            case STUDENTS -> {
+                String email = required(fields, "email");
+                if (!service.isValidEmail(email)) {
+                    throw new IllegalArgumentException("Email must be a valid .edu address!");
+                }
+                return new Student(required(fields, "id"), required(fields, "name"), required(fields, "degree"), email);
+            }
+            case CLASSROOMS -> {
+                int capacity;
+                try {
+                    capacity = Integer.parseInt(required(fields, "capacity"));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Please enter a valid number for capacity.");
+                }
+                return new Classroom(required(fields, "roomNumber"), required(fields, "type"), capacity);
+            }
+            case BOOKINGS -> {
+                String roomNumber = required(fields, "room");
+                Classroom room = service.findClassroom(roomNumber);
+                if (room == null) {
+                    throw new IllegalArgumentException("No classroom " + roomNumber);
+                }
+                LocalDateTime start = LocalDateTime.parse(required(fields, "start"), FILE_TIME);
+                LocalDateTime end = LocalDateTime.parse(required(fields, "end"), FILE_TIME);
+                if (end.isBefore(start)) {
+                    throw new IllegalArgumentException("End time must be after start time.");
+                }
+                return new Booking(room, required(fields, "course"), start, end);
+            }
+            case RESOURCES -> {
+                String status = fields.get("status");
+                Resource resource = new Resource(required(fields, "id"), required(fields, "name"), required(fields, "type"),
+                    status == null || status.isBlank() ? "Available" : status.trim());
+                String holder = fields.get("checkedOutBy");
+                if (holder != null && !holder.isBlank()) {
+                    resource.checkOut(holder.trim());
+                }
+                return resource;
+            }
+        }
+        throw new IllegalArgumentException("Unknown kind " + kind);
+    }
+
+    private static String required(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        return value.trim();
+    }
+
+    private static final class Parsed {
+        int rowsRead;
+        final List<Object> values = new ArrayList<>();
+        final List<Long> valueLines = new ArrayList<>();
+        final List<RowError> errors = new ArrayList<>();
+    }
+
+    //rows that passed validation, checked against each other and the existing data in file order
+    private final class Staging {
+        private final Kind kind;
+        private final List<Object> rows = new ArrayList<>();
+        private final List<Long> rowLines = new ArrayList<>();
+        private final Set<String> keys = new HashSet<>();
+        //per room start minute -> end minute of the bookings staged so far, never overlapping
+        private final Map<Classroom, TreeMap<LocalDateTime, LocalDateTime>> stagedBookings = new HashMap<>();
+
+        Staging(Kind kind) {
+            this.kind = kind;
+        }
+
+        String add(Object row, long line) {
+            switch (kind) {
+                case STUDENTS -> {
+                    String id = ((Student) row).getId();
+                    if (!keys.add(id.toUpperCase(Locale.ROOT)) || !service.isStudentIdUnique(id)) {
+                        return "Student ID already exists!";
+                    }
+                }
+                case CLASSROOMS -> {
+                    String number = ((Classroom) row).getRoomNumber();
+                    if (!keys.add(number.toUpperCase(Locale.ROOT)) || service.findClassroom(number) != null) {
+                        return "Room number already exists!";
+                    }
+                }
+                case RESOURCES -> {
+                    String id = ((Resource) row).getId();
+                    if (!keys.add(id.toUpperCase(Locale.ROOT)) || service.findResource(id) != null) {
+                        return "Resource ID already exists!";
+                    }
+                }
+                case BOOKINGS -> {
+                    Booking booking = (Booking) row;
+                    Booking existing = service.findBookingConflict(booking.getClassroom(), booking.getStartTime(), booking.getEndTime(), null);
+                    if (existing != null) {
+                        return new BookingConflictException(existing).getMessage();
+                    }
+                    TreeMap<LocalDateTime, LocalDateTime> staged =
+                        stagedBookings.computeIfAbsent(booking.getClassroom(), _ -> new TreeMap<>());
+                    //the staged booking starting last before this one ends is the only one that can overlap it
+                    Map.Entry<LocalDateTime, LocalDateTime> before = staged.lowerEntry(booking.getEndTime());
+                    if (before != null && before.getValue().isAfter(booking.getStartTime())) {
+                        return "Overlaps another booking for " + booking.getClassroom().getRoomNumber() + " in this file";
+                    }
+                    staged.put(booking.getStartTime(), booking.getEndTime());
+                }
+            }
+            rows.add(row);
+            rowLines.add(line);
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        long commit(Report report) {
+            List<?> batch = rows;
+            return switch (kind) {
+                case STUDENTS -> service.importStudents((List<Student>) batch, (i, reason) -> reject(report, i, reason));
+                case CLASSROOMS -> service.importClassrooms((List<Classroom>) batch, (i, reason) -> reject(report, i, reason));
+                case BOOKINGS -> service.importBookings((List<Booking>) batch, (i, reason) -> reject(report, i, reason));
+                case RESOURCES -> service.importResources((List<Resource>) batch, (i, reason) -> reject(report, i, reason));
+            };
+        }
+
+        private void reject(Report report, int index, String reason) {
+            report.errors.add(new RowError(rowLines.get(index), reason));
+        }
+    }
+
+    //export
+
+    public long exportFile(Kind kind, Path file) throws IOException {
+        boolean json = isJson(file);
+        long rows = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (!json) {
+                out.write(String.join(",", kind.columns));
+                out.newLine();
+            }
+            for (String[] values : rows(kind)) {
+                if (json) {
+                    Json.ObjectBuilder object = Json.object();
+                    for (int i = 0; i < values.length; i++) {
+                        object.put(kind.columns[i], values[i]);
+                    }
+                    out.write(object.build());
+                } else {
+                    for (int i = 0; i < values.length; i++) {
+                        if (i > 0) {
+                            out.write(',');
+                        }
+                        out.write(csvField(values[i]));
+                    }
+                }
+                out.newLine();
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    //rows are produced one at a time from a snapshot of the list, not built up front.
+    //bookings are read a room at a time as the rows reach it
+    private Iterable<String[]> rows(Kind kind) {
+        return switch (kind) {
+            case STUDENTS -> mapped(() -> service.snapshotStudents().stream(),
+                s -> new String[]{s.getId(), s.getName(), s.getDegree(), s.getEmail()});
+            case CLASSROOMS -> mapped(() -> service.snapshotClassrooms().stream(),
+                c -> new String[]{c.getRoomNumber(), c.getType(), Integer.toString(c.getCapacity())});
+            case BOOKINGS -> mapped(() -> service.snapshotClassrooms().stream()
+                    .flatMap(room -> service.peekBookings(room).stream()),
+                b -> new String[]{b.getClassroom().getRoomNumber(), b.getCourse(),
+                    b.getStartTime().format(FILE_TIME), b.getEndTime().format(FILE_TIME)});
+            case RESOURCES -> mapped(() -> service.snapshotResources().stream(),
+                r -> new String[]{r.getId(), r.getName(), r.getType(),
+                    r.getStatusCode().getLabel(), r.getCheckedOutBy()});
+        };
+    }
+
+    private static <T> Iterable<String[]> mapped(Supplier<Stream<T>> items, Function<T, String[]> mapper) {
+        return () -> items.get().map(mapper).iterator();
+    }
+
+    //CSV helpers, fields may be quoted and quotes are doubled, records are one line each
+
+    private static Map<String, String> csvRecord(String[] header, String line) {
+        List<String> values = splitCsv(line);
+        if (values.size() > header.length) {
+            throw new IllegalArgumentException("Expected " + header.length + " fields but found " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            fields.put(header[i].trim(), values.get(i));
+        }
+        return fields;
+    }
+
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        values.add(field.toString());
+        return values;
+    }
+
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"").replace("\n", " ") + '"';
+    }
+
+    private static String stripBom(String line) {
+        return !line.isEmpty() && line.charAt(0) == '\uFEFF' ? line.substring(1) : line;
+    }
+
+    private static boolean isJson(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".json") || name.endsWith(".jsonl");
+    }
+}
@@ -0,0 +1,279 @@
+package smart;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+//entry point that can run without a display. with no arguments (or "gui") it starts the
+//Swing application as before, any other command runs headless and never loads AWT, so
+//batch jobs and servers start quickly and work on machines without a display
+public class CampusCli {
+
+    public static void main(String[] args) throws IOException {
+        String command = args.length == 0 ? "gui" : args[0];
+        if (command.equals("gui")) {
+            SmartCampusSystem.main(args);
+            return;
+        }
+
+        //anything that does touch AWT from here on must not try to open a display
+        System.setProperty("java.awt.headless", "true");
+
+        switch (command) {
+            case "stats" -> printStats(CampusService.load());
+            case "serve" -> serve(args);
+            case "lead" -> lead(args);
+            case "follow" -> follow(args);
+            case "import" -> importFile(args);
+            case "export" -> exportFile(args);
+            case "generate" -> generate(args);
+            case "loadtest" -> loadTest(args);
+            case "report" -> report(args);
+            case "clashes" -> clashes(args);
+            case "archive" -> archive(args);
+            case "campuses" -> campuses(args);
+            default -> {
+                printUsage();
+                System.exit(1);
+            }
+        }
+    }
+
+    private static void printStats(CampusService service) {
+        int bookings = 0;
+        for (Classroom room : service.getClassrooms()) {
+            bookings += room.getBookingCount();
+        }
+        System.out.println("Students:   " + service.getStudents().size());
+        System.out.println("Classrooms: " + service.getClassrooms().size());
+        System.out.println("Bookings:   " + bookings);
+        System.out.println("Resources:  " + service.getResources().size());
+    }
+
+    //serve [port] [bind address], listening on loopback port 8080 by default
+    private static void serve(String[] args) throws IOException {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        InetAddress address = args.length > 2 ? InetAddress.getByName(args[2]) : null;
+        CampusService service = CampusService.load();
+        CampusHttpServer server = new CampusHttpServer(service, address, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        //answers with what other instances save to the data directory as well
+        service.watchDataDir(Runnable::run, changes -> System.out.println("Changes not made through the API: " + changes));
+        System.out.println("Campus API listening on port " + server.getPort());
+    }
+
+    //lead [replication port] [http port] [address], serve as serve does and stream every
+    //change to followers, on loopback ports 7070 and 8080 by default
+    private static void lead(String[] args) throws IOException {
+        int replicationPort = args.length > 1 ? Integer.parseInt(args[1]) : ReplicationLeader.DEFAULT_PORT;
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 8080;
+        InetAddress address = args.length > 3 ? InetAddress.getByName(args[3]) : null;
+        CampusService service = CampusService.load();
+        ReplicationLeader leader = ReplicationLeader.start(service, address, replicationPort);
+        CampusHttpServer server = new CampusHttpServer(service, address, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            leader.stop();
+            server.stop();
+        }));
+        server.start();
+        System.out.println("Campus API listening on port " + server.getPort()
+            + ", followers on port " + leader.getPort());
+    }
+
+    //follow <leader host> [replication port] [http port] [address], a read-only copy of the
+    //leader answering lookups and free room searches, on loopback port 8081 by default
+    private static void follow(String[] args) throws IOException {
+        if (args.length < 2) {
+            printUsage();
+            System.exit(1);
+        }
+        int replicationPort = args.length > 2 ? Integer.parseInt(args[2]) : ReplicationLeader.DEFAULT_PORT;
+        int port = args.length > 3 ? Integer.parseInt(args[3]) : 8081;
+        InetAddress address = args.length > 4 ? InetAddress.getByName(args[4]) : null;
+        CampusService replica = CampusService.replica();
+        ReplicationFollower follower = ReplicationFollower.start(replica, args[1], replicationPort);
+        CampusHttpServer server = new CampusHttpServer(replica, address, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            follower.stop();
+            server.stop();
+        }));
+        server.start();
+        System.out.println("Read-only campus API listening on port " + server.getPort()
+            + ", following " + args[1] + ":" + replicationPort);
+    }
+
+    //import <kind> <file> [error report], kind is students, classrooms, bookings or resources
+    private static void importFile(String[] args) throws IOException {
+        if (args.length < 3) {
+            printUsage();
+            System.exit(1);
+        }
+        long started = System.nanoTime();
+        BulkTransfer.Report report = new BulkTransfer(CampusService.load())
+            .importFile(BulkTransfer.Kind.parse(args[1]), Path.of(args[2]));
+        System.out.printf("%s in %d ms%n", report, (System.nanoTime() - started) / 1_000_000);
+        if (args.length > 3) {
+            report.writeErrors(Path.of(args[3]));
+        } else {
+            report.getErrors().stream().limit(20)
+                .forEach(e -> System.out.println("  line " + e.line() + ": " + e.message()));
+        }
+    }
+
+    private static void exportFile(String[] args) throws IOException {
+        if (args.length < 3) {
+            printUsage();
+            System.exit(1);
+        }
+        long rows = new BulkTransfer(CampusService.load()).exportFile(BulkTransfer.Kind.parse(args[1]), Path.of(args[2]));
+        System.out.println(rows + " rows written to " + args[2]);
+    }
+
+    //generate [dir] [scale] [seed], writes to generated/ so the real data is left alone
+    private static void generate(String[] args) {
+        File dir = new File(args.length > 1 ? args[1] : "generated");
+        double scale = args.length > 2 ? Double.parseDouble(args[2]) : 1.0;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+        CampusGenerator generator = new CampusGenerator(seed, scale);
+        long started = System.nanoTime();
+        generator.write(dir);
+        System.out.printf("%d students, %d classrooms, %d bookings and %d resources written to %s in %d ms%n",
+            generator.getStudentCount(), generator.getClassroomCount(), generator.getBookingCount(),
+            generator.getResourceCount(), dir, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    //loadtest [dir] [threads] [seconds] [seed]
+    private static void loadTest(String[] args) throws IOException {
+        File dir = new File(args.length > 1 ? args[1] : "generated");
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+        if (!dir.isDirectory()) {
+            throw new IllegalArgumentException("No data directory " + dir + ".");
+        }
+        //the run checks out resources and evicts rooms, which would change dir
+        File copy = CampusLoadTest.copyOf(dir);
+        try {
+            CampusService service = CampusService.load(copy);
+            System.out.println("Running " + threads + " threads for " + seconds + " s against a copy of " + dir);
+            System.out.print(new CampusLoadTest(service, threads, seconds, seed).run().format());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            CampusLoadTest.delete(copy);
+        }
+    }
+
+    //report <from> <to> [out dir] [data dir], dates as yyyy-MM-dd with to not included
+    private static void report(String[] args) throws IOException {
+        if (args.length < 3) {
+            printUsage();
+            System.exit(1);
+        }
+        LocalDateTime from = LocalDate.parse(args[1]).atStartOfDay();
+        LocalDateTime to = LocalDate.parse(args[2]).atStartOfDay();
+        Path out = Path.of(args.length > 3 ? args[3] : "report");
+        CampusService service = args.length > 4 ? CampusService.load(new File(args[4])) : CampusService.load();
+        long started = System.nanoTime();
+        UtilizationReport report = service.reportUtilization(from, to);
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        System.out.printf("%d rooms, %.1f%% of opening hours booked, counted in %d ms%n",
+            report.getRooms().size(), report.getUtilization() * 100, millis);
+        for (UtilizationReport.TypeUtilization type : report.getTypes()) {
+            System.out.printf("  %-20s %5d rooms  %5.1f%% of hours  %5.1f%% of seat hours%n",
+                type.type(), type.rooms(), type.utilization() * 100, type.seatUtilization() * 100);
+        }
+        report.writeCsv(out);
+        System.out.println("rooms.csv, types.csv and heatmap.csv written to " + out);
+    }
+
+    //clashes [data dir], every student whose courses meet at the same time
+    private static void clashes(String[] args) {
+        CampusService service = args.length > 1 ? CampusService.load(new File(args[1])) : CampusService.load();
+        long started = System.nanoTime();
+        Map<String, List<TimetableClash>> clashes = service.findAllTimetableClashes();
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        System.out.printf("%d of %d students have clashing courses, checked in %d ms%n",
+            clashes.size(), service.getStudents().size(), millis);
+        clashes.entrySet().stream().limit(20).forEach(student -> {
+            TimetableClash first = student.getValue().get(0);
+            System.out.printf("  %s: %d clashing pair(s), e.g. %s and %s %d time(s)%n", student.getKey(),
+                student.getValue().size(), first.course(), first.otherCourse(), first.occurrences());
+        });
+    }
+
+    //archive [days] [data dir], moves bookings that ended more than days ago (180 by default)
+    //out of classrooms.dat into the compressed archive
+    private static void archive(String[] args) {
+        CampusService service = args.length > 2 ? CampusService.load(new File(args[2])) : CampusService.load();
+        if (args.length > 1) {
+            service.setArchiveAge(Duration.ofDays(Long.parseLong(args[1])));
+        }
+        long started = System.nanoTime();
+        int archived = service.archivePastBookings();
+        System.out.printf("%d bookings ending before %s archived in %d ms%n", archived,
+            LocalDate.now().minus(service.getArchiveAge()), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    //campuses stats [root] | find <term> [root] | free <start> <end> [min capacity] [root],
+    //each asking every campus under the root (data/campuses/ by default) at once
+    private static void campuses(String[] args) {
+        String query = args.length > 1 ? args[1] : "stats";
+        int rootArg = switch (query) {
+            case "stats" -> 2;
+            case "find" -> 3;
+            case "free" -> 5;
+            default -> -1;
+        };
+        if (rootArg < 0 || (query.equals("find") && args.length < 3) || (query.equals("free") && args.length < 4)) {
+            printUsage();
+            System.exit(1);
+        }
+        File root = args.length > rootArg ? new File(args[rootArg]) : CampusShards.defaultRoot();
+        try (CampusShards shards = new CampusShards(root)) {
+            long started = System.nanoTime();
+            switch (query) {
+                case "stats" -> shards.getStats().forEach((campus, stats) -> System.out.printf(
+                    "%-12s %7d students %5d rooms %9d bookings %6d resources%n",
+                    campus, stats.students(), stats.rooms(), stats.bookings(), stats.resources()));
+                case "find" -> shards.searchStudents(args[2]).forEach(hit -> System.out.printf("%-12s %s %s%n",
+                    hit.campus(), hit.value().getId(), hit.value().getName()));
+                default -> {
+                    int minCapacity = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+                    List<CampusShards.Hit<Classroom>> free = shards.findFreeClassrooms(
+                        LocalDateTime.parse(args[2]), LocalDateTime.parse(args[3]), minCapacity);
+                    free.forEach(hit -> System.out.printf("%-12s %s (%d seats)%n",
+                        hit.campus(), hit.value().getRoomNumber(), hit.value().getCapacity()));
+                }
+            }
+            System.out.printf("%d campuses asked in %d ms%n", shards.getLoadedCampusNames().size(),
+                (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: CampusCli [command]");
+        System.err.println("  gui      start the desktop application (default)");
+        System.err.println("  stats    print how many records are stored");
+        System.err.println("  serve [port] [address]  start the JSON API (loopback:8080 by default)");
+        System.err.println("  lead [replication port] [port] [address]  serve and stream changes to followers (7070)");
+        System.err.println("  follow <leader host> [replication port] [port] [address]  serve a read-only copy (8081)");
+        System.err.println("  import <kind> <file.csv|file.jsonl> [errors.csv]");
+        System.err.println("  export <kind> <file.csv|file.jsonl>");
+        System.err.println("           kind is students, classrooms, bookings or resources");
+        System.err.println("  generate [dir] [scale] [seed]  write a synthetic campus (generated/, scale 1 by default)");
+        System.err.println("  loadtest [dir] [threads] [seconds] [seed]  replay a mixed workload against a data directory");
+        System.err.println("  report <from> <to> [out dir] [data dir]  room utilization between two dates (yyyy-MM-dd) as CSV");
+        System.err.println("  clashes [data dir]  list students whose enrolled courses meet at the same time");
+        System.err.println("  archive [days] [data dir]  move bookings that ended more than days ago (180) into the archive");
+        System.err.println("  campuses stats|find <term>|free <start> <end> [min capacity]  [root]  ask every campus under");
+        System.err.println("           root (data/campuses) at once, each campus being a data directory of its own");
+    }
+}
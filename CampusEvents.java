@@ -0,0 +1,109 @@
+package smart;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+//Java Flight Recorder events for the campus operations, so a recording shows which of them
+//was running during a pause next to the GC, I/O and thread events. they cost next to
+//nothing unless a recording with them enabled is running, start one with
+//  java -XX:StartFlightRecording:filename=campus.jfr ... smart.CampusCli
+//and open it in JDK Mission Control, the events are under "Smart Campus".
+//
+//the service events fire on every call, so by default only those taking over a millisecond
+//are recorded, e.g. -XX:StartFlightRecording:smart.Search#threshold=0ms records all of them.
+//
+//usage follows the JFR pattern: create, begin(), do the work, fill in the fields and
+//commit() if shouldCommit() says the event is wanted
+final class CampusEvents {
+
+    private CampusEvents() {}
+
+    @Name("smart.DataFileLoad")
+    @Label("Data File Load")
+    @Category({"Smart Campus", "Persistence"})
+    @Description("Reading one of the .dat files")
+    static class DataFileLoad extends Event {
+        @Label("File")
+        String file;
+        @Label("Entities")
+        int entities;
+        @Label("Size")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("smart.DataFileSave")
+    @Label("Data File Save")
+    @Category({"Smart Campus", "Persistence"})
+    @Description("Writing one of the .dat files")
+    static class DataFileSave extends Event {
+        @Label("File")
+        String file;
+        @Label("Entities")
+        int entities;
+        @Label("Size")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("smart.PanelRebuild")
+    @Label("Panel Rebuild")
+    @Category({"Smart Campus", "User Interface"})
+    @Description("Rebuilding a panel or table on the event dispatch thread")
+    static class PanelRebuild extends Event {
+        @Label("Panel")
+        String panel;
+        @Label("Rows")
+        int rows;
+    }
+
+    @Name("smart.Search")
+    @Label("Search")
+    @Category({"Smart Campus", "Service"})
+    @Description("A student or resource search or lookup")
+    @StackTrace(false)
+    @Threshold("1 ms")
+    static class Search extends Event {
+        @Label("Kind")
+        String kind;
+        @Label("Entities")
+        @Description("How many entities the search could have looked at")
+        int entities;
+        @Label("Found")
+        boolean found;
+    }
+
+    @Name("smart.BookingConflictCheck")
+    @Label("Booking Conflict Check")
+    @Category({"Smart Campus", "Service"})
+    @StackTrace(false)
+    @Threshold("1 ms")
+    static class BookingConflictCheck extends Event {
+        @Label("Room")
+        String room;
+        @Label("Bookings")
+        @Description("Bookings in the room when it was checked")
+        int bookings;
+        @Label("Conflict")
+        boolean conflict;
+    }
+
+    @Name("smart.Checkout")
+    @Label("Checkout")
+    @Category({"Smart Campus", "Service"})
+    @Threshold("1 ms")
+    static class Checkout extends Event {
+        @Label("Resource")
+        String resource;
+        @Label("Student")
+        String student;
+        @Label("Accepted")
+        boolean accepted;
+    }
+}
@@ -0,0 +1,199 @@
+package smart;
+
+import java.io.File;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+//writes a synthetic campus in the same .dat format as the application, so performance
+//can be looked at with realistic amounts of data. the output only depends on the seed
+//and the scale: a scale of 1 gives 50k students, 2k classrooms, 1M bookings and 100k
+//resources, other scales multiply all four
+class CampusGenerator {
+    public static final int STUDENTS = 50_000;
+    public static final int CLASSROOMS = 2_000;
+    public static final int BOOKINGS = 1_000_000;
+    public static final int RESOURCES = 100_000;
+    //a fixed Monday so the same seed always gives the same timetable
+    public static final LocalDateTime TERM_START = LocalDateTime.of(2025, 9, 1, 0, 0);
+    public static final int FIRST_HOUR = 8;
+    public static final int LAST_HOUR = 20;
+    private static final Duration LOAN_WINDOW = Duration.ofDays(56);
+
+    private static final String[] FIRST_NAMES = {
+        "Josh", "Maria", "Nico", "Ben", "Aisha", "Liam", "Sofia", "Noah", "Mei", "Omar",
+        "Chloe", "Lucas", "Priya", "Ethan", "Zara", "Mateo", "Hana", "Jack", "Amara", "Leo"
+    };
+    private static final String[] LAST_NAMES = {
+        "Williams", "Kool", "Robin", "Leslie", "Nguyen", "Smith", "Garcia", "Khan", "Chen", "Brown",
+        "Silva", "Okafor", "Patel", "Muller", "Rossi", "Kim", "Murphy", "Haddad", "Novak", "Tanaka"
+    };
+    private static final String[] DEGREES = {
+        "Animation", "Engineering", "Ancient History", "Culinary Arts", "Computer Science",
+        "Mathematics", "Physics", "Law", "Nursing", "Architecture", "Economics", "Music"
+    };
+    private static final String[] SUBJECTS = {"CS", "ENG", "HIS", "CUL", "MAT", "PHY", "LAW", "NUR", "ARC", "ECO", "MUS", "ANI"};
+    //room types with how often they occur and their capacity range
+    private static final String[] ROOM_TYPES = {"Seminar Room", "Computer Lab", "Lecture Hall", "Science Lab"};
+    private static final int[] ROOM_WEIGHTS = {50, 25, 10, 15};
+    private static final int[][] ROOM_CAPACITIES = {{12, 30}, {20, 40}, {80, 400}, {16, 32}};
+    private static final String[][] RESOURCE_KINDS = {
+        {"Book", "B", "Advanced Java Programming", "Organic Chemistry", "World History", "Linear Algebra"},
+        {"Lab Equipment", "L", "Microscope", "Centrifuge", "Oscilloscope", "Spectrometer"},
+        {"Electronics", "C", "Arduino Kit", "Raspberry Pi", "Camera", "Drawing Tablet"},
+        {"Laptop", "P", "Laptop 13in", "Laptop 15in", "Workstation Laptop", "Chromebook"}
+    };
+
+    private final long seed;
+    private final double scale;
+
+    public CampusGenerator(long seed, double scale) {
+        if (scale <= 0) {
+            throw new IllegalArgumentException("Scale must be greater than zero.");
+        }
+        this.seed = seed;
+        this.scale = scale;
+    }
+
+    public int getStudentCount() { return scaled(STUDENTS); }
+    public int getClassroomCount() { return scaled(CLASSROOMS); }
+    public int getBookingCount() { return scaled(BOOKINGS); }
+    public int getResourceCount() { return scaled(RESOURCES); }
+
+    private int scaled(int count) {
+        return Math.max(1, (int) Math.round(count * scale));
+    }
+
+    //each part has its own random stream, so changing one count leaves the others alone
+    public List<Student> students() {
+        Random random = new Random(seed);
+        int count = getStudentCount();
+        List<Student> students = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            students.add(new Student(studentId(i), first + " " + last, DEGREES[random.nextInt(DEGREES.length)],
+                first.charAt(0) + last + i + "@SmartUni.edu"));
+        }
+        return students;
+    }
+
+    public static String studentId(int index) {
+        return "S" + (100000 + index);
+    }
+
+    //rooms filled with non overlapping bookings on weekdays between FIRST_HOUR and LAST_HOUR,
+    //the bookings are split as evenly as possible over the rooms
+    public List<Classroom> classrooms() {
+        Random random = new Random(seed + 1);
+        int rooms = getClassroomCount();
+        int bookings = getBookingCount();
+        List<Classroom> classrooms = new ArrayList<>(rooms);
+        for (int r = 0; r < rooms; r++) {
+            int type = pick(random, ROOM_WEIGHTS);
+            int[] range = ROOM_CAPACITIES[type];
+            Classroom room = new Classroom("R" + (1000 + r), ROOM_TYPES[type],
+                range[0] + random.nextInt(range[1] - range[0] + 1));
+            int perRoom = bookings / rooms + (r < bookings % rooms ? 1 : 0);
+            LocalDateTime cursor = TERM_START.plusHours(FIRST_HOUR);
+            for (int b = 0; b < perRoom; b++) {
+                //a gap of up to two hours, then a one to three hour class
+                cursor = nextSlot(cursor.plusHours(random.nextInt(3)));
+                int hours = 1 + random.nextInt(3);
+                if (cursor.getHour() + hours > LAST_HOUR) {
+                    cursor = nextSlot(cursor.toLocalDate().plusDays(1).atTime(FIRST_HOUR, 0));
+                }
+                String course = SUBJECTS[random.nextInt(SUBJECTS.length)] + (100 + random.nextInt(400));
+                room.addBooking(course, cursor, cursor.plusHours(hours));
+                cursor = cursor.plusHours(hours);
+            }
+            classrooms.add(room);
+        }
+        return classrooms;
+    }
+
+    //moves past the end of the day and over weekends
+    private static LocalDateTime nextSlot(LocalDateTime time) {
+        if (time.getHour() >= LAST_HOUR - 1) {
+            time = time.toLocalDate().plusDays(1).atTime(FIRST_HOUR, 0);
+        }
+        while (time.getDayOfWeek() == DayOfWeek.SATURDAY || time.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            time = time.plusDays(1);
+        }
+        return time;
+    }
+
+    //about one resource in six is checked out to a generated student, some time in the
+    //first eight weeks of term for the usual loan period
+    public List<Resource> resources() {
+        long termStart = TERM_START.toInstant(ZoneOffset.UTC).toEpochMilli();
+        Random random = new Random(seed + 2);
+        int count = getResourceCount();
+        int students = getStudentCount();
+        List<Resource> resources = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] kind = RESOURCE_KINDS[random.nextInt(RESOURCE_KINDS.length)];
+            String name = kind[2 + random.nextInt(kind.length - 2)];
+            Resource resource = new Resource(kind[1] + String.format("%06d", i), name, kind[0], "Available");
+            if (random.nextInt(6) == 0) {
+                long checkedOutAt = termStart + random.nextLong(LOAN_WINDOW.toMillis());
+                resource.checkOut(studentId(random.nextInt(students)), checkedOutAt,
+                    checkedOutAt + CampusService.DEFAULT_LOAN_PERIOD.toMillis());
+            }
+            resources.add(resource);
+        }
+        return resources;
+    }
+
+    //four to six courses per student from the same codes the bookings use
+    public List<Enrollment> enrollments() {
+        Random random = new Random(seed + 3);
+        int students = getStudentCount();
+        List<Enrollment> enrollments = new ArrayList<>(students * 5);
+        for (int i = 0; i < students; i++) {
+            String id = studentId(i);
+            int courses = 4 + random.nextInt(3);
+            Set<String> taking = new LinkedHashSet<>();
+            while (taking.size() < courses) {
+                taking.add(SUBJECTS[random.nextInt(SUBJECTS.length)] + (100 + random.nextInt(400)));
+            }
+            for (String course : taking) {
+                enrollments.add(new Enrollment(id, course));
+            }
+        }
+        return enrollments;
+    }
+
+    private static int pick(Random random, int[] weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int roll = random.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            roll -= weights[i];
+            if (roll < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    //writes students.dat, classrooms.dat and resources.dat into dir, replacing what is there
+    public void write(File dir) {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalStateException("Cannot create " + dir);
+        }
+        //one part at a time so the largest never shares the heap with the others
+        SaveData.saveData(dir, "students.dat", students());
+        SaveData.saveData(dir, "classrooms.dat", classrooms());
+        SaveData.saveData(dir, "resources.dat", resources());
+        SaveData.saveData(dir, "enrollments.dat", enrollments());
+    }
+}
@@ -0,0 +1,547 @@
+package smart;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//optional JSON API over the campus data for kiosks and the booking web front end.
+//each request runs on its own virtual thread, so blocking on the service locks is cheap
+//and thousands of requests can be in flight at once. times are ISO-8601 local date times.
+//
+//  GET  /api/students/{id}                      student details and checked out resources
+//  GET  /api/students?q={term}                  first student whose ID or name matches
+//  POST /api/resources/{id}/checkout            {"studentId": "S1001"}
+//  POST /api/resources/{id}/return
+//  GET  /api/rooms/free?start=&end=&minCapacity=
+//  POST /api/bookings                           {"room", "course", "start", "end"}
+//  PUT  /api/bookings/{room}/{start}            {"course", "start", "end"}
+class CampusHttpServer {
+    private static final DateTimeFormatter API_TIME = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    //changes are written to disk in one go at most this often, not once per request
+    private static final long SAVE_INTERVAL_SECONDS = 2;
+
+    private final CampusService service;
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final ScheduledExecutorService saver;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    //binds to the loopback interface unless another address is given
+    public CampusHttpServer(CampusService service, InetAddress address, int port) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(new InetSocketAddress(
+            address != null ? address : InetAddress.getLoopbackAddress(), port), 4096);
+        this.requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        this.saver = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "campus-http-saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        server.createContext("/api/students", handler(this::handleStudents));
+        server.createContext("/api/resources", handler(this::handleResources));
+        server.createContext("/api/overdue", handler(this::handleOverdue));
+        server.createContext("/api/history", handler(this::handleHistory));
+        server.createContext("/api/stats", handler(this::handleStats));
+        server.createContext("/api/rooms", handler(this::handleRooms));
+        server.createContext("/api/bookings", handler(this::handleBookings));
+        server.setExecutor(requestExecutor);
+    }
+
+    public void start() {
+        CampusMetrics.registerGauge("queue.save", () -> dirty.get() ? 1 : 0);
+        saver.scheduleWithFixedDelay(this::saveIfDirty, SAVE_INTERVAL_SECONDS, SAVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        server.start();
+    }
+
+    //the port actually bound, useful when started on port 0
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(1);
+        requestExecutor.shutdown();
+        saver.shutdown();
+        saveIfDirty();
+    }
+
+    private void saveIfDirty() {
+        if (dirty.getAndSet(false)) {
+            service.saveAllData();
+        }
+    }
+
+    private void changed() {
+        dirty.set(true);
+    }
+
+    //students
+
+    private Response handleStudents(HttpExchange exchange, List<String> path) {
+        requireMethod(exchange, "GET");
+        Student student;
+        if (path.isEmpty()) {
+            String term = query(exchange).get("q");
+            if (term == null || term.isBlank()) {
+                throw new IllegalArgumentException("Missing search term q");
+            }
+            student = service.searchForStudent(term.trim());
+        } else if (path.size() == 1) {
+            student = service.findStudent(path.get(0));
+        } else if (path.size() == 2 && path.get(1).equals("timetable")) {
+            return timetable(exchange, path.get(0));
+        } else if (path.size() == 2 && path.get(1).equals("history")) {
+            Student found = service.findStudent(path.get(0));
+            //students removed since still have their history
+            return Response.ok(historyJson(service.getBorrowingHistory(found != null ? found.getId() : path.get(0))));
+        } else {
+            return Response.notFound();
+        }
+        if (student == null) {
+            return Response.notFound();
+        }
+        return Response.ok(studentJson(student));
+    }
+
+    private String studentJson(Student student) {
+        List<String> checkedOut = new ArrayList<>();
+        for (Resource resource : service.getCheckedOutResources(student.getId())) {
+            checkedOut.add(Json.object().put("id", resource.getId()).put("name", resource.getName()).build());
+        }
+        return Json.object()
+            .put("id", student.getId())
+            .put("name", student.getName())
+            .put("degree", student.getDegree())
+            .put("email", student.getEmail())
+            .raw("checkedOut", Json.array(checkedOut))
+            .build();
+    }
+
+    //courses, clashes and the classes between ?from= and ?to=, the next week by default
+    private Response timetable(HttpExchange exchange, String studentId) {
+        Student student = service.findStudent(studentId);
+        if (student == null) {
+            return Response.notFound();
+        }
+        Map<String, String> query = query(exchange);
+        LocalDateTime from = query.containsKey("from") ? time(query.get("from")) : LocalDateTime.now();
+        LocalDateTime to = query.containsKey("to") ? time(query.get("to")) : from.plusWeeks(1);
+        List<String> courses = new ArrayList<>();
+        for (String course : service.getEnrolledCourses(student.getId())) {
+            courses.add(Json.quote(course));
+        }
+        List<String> clashes = new ArrayList<>();
+        for (TimetableClash clash : service.getTimetableClashes(student.getId())) {
+            clashes.add(Json.object()
+                .put("course", clash.course())
+                .put("otherCourse", clash.otherCourse())
+                .put("occurrences", clash.occurrences())
+                .put("firstStart", API_TIME.format(clash.firstStart()))
+                .put("firstEnd", API_TIME.format(clash.firstEnd()))
+                .build());
+        }
+        List<String> classes = new ArrayList<>();
+        for (Booking booking : service.getTimetable(student.getId(), from, to)) {
+            classes.add(bookingJson(booking));
+        }
+        return Response.ok(Json.object()
+            .put("id", student.getId())
+            .raw("courses", Json.array(courses))
+            .raw("clashes", Json.array(clashes))
+            .raw("classes", Json.array(classes))
+            .build());
+    }
+
+    //resources
+
+    private Response handleResources(HttpExchange exchange, List<String> path) throws IOException {
+        if (path.isEmpty()) {
+            return Response.notFound();
+        }
+        Resource resource = service.findResource(path.get(0));
+        if (resource == null) {
+            return Response.notFound();
+        }
+        if (path.size() == 1) {
+            requireMethod(exchange, "GET");
+            return Response.ok(resourceJson(resource));
+        }
+        if (path.get(1).equals("history")) {
+            requireMethod(exchange, "GET");
+            return Response.ok(historyJson(service.getResourceHistory(resource.getId())));
+        }
+        requireMethod(exchange, "POST");
+        switch (path.get(1)) {
+            case "checkout" -> {
+                Map<String, String> body = body(exchange);
+                String studentId = required(body, "studentId");
+                String dueAt = body.get("dueAt");
+                if (dueAt == null || dueAt.isBlank()) {
+                    service.checkOutResource(resource, studentId);
+                } else {
+                    service.checkOutResource(resource, studentId, time(dueAt.trim()));
+                }
+            }
+            case "return" -> service.returnResource(resource);
+            case "reserve" -> {
+                Map<String, String> body = body(exchange);
+                String priority = body.get("priority");
+                service.reserveResource(resource, required(body, "studentId"),
+                    priority == null || priority.isBlank() ? Reservation.NORMAL : Integer.parseInt(priority.trim()));
+            }
+            case "cancel" -> service.cancelReservation(resource, required(body(exchange), "studentId"));
+            default -> {
+                return Response.notFound();
+            }
+        }
+        changed();
+        return Response.ok(resourceJson(resource));
+    }
+
+    private String resourceJson(Resource resource) {
+        List<String> waitlist = new ArrayList<>();
+        for (Reservation reservation : service.getWaitlist(resource)) {
+            waitlist.add(Json.object()
+                .put("studentId", reservation.studentId())
+                .put("priority", reservation.priority())
+                .build());
+        }
+        Reservation hold = service.getHold(resource);
+        return Json.object()
+            .put("id", resource.getId())
+            .put("name", resource.getName())
+            .put("type", resource.getType())
+            .put("status", resource.getStatus())
+            .put("checkedOutBy", resource.getCheckedOutBy())
+            .put("dueAt", resource.getDueAt() > 0 ? millisJson(resource.getDueAt()) : null)
+            .put("overdue", service.isOverdue(resource))
+            .put("heldFor", hold == null ? null : hold.studentId())
+            .raw("waitlist", Json.array(waitlist))
+            .build();
+    }
+
+    //overdue loans, all of them or for ?student= or ?type=
+
+    private Response handleOverdue(HttpExchange exchange, List<String> path) {
+        requireMethod(exchange, "GET");
+        if (!path.isEmpty()) {
+            return Response.notFound();
+        }
+        Map<String, String> query = query(exchange);
+        List<Resource> overdue;
+        if (query.containsKey("student")) {
+            overdue = service.getOverdueResources(query.get("student"));
+        } else if (query.containsKey("type")) {
+            overdue = service.getOverdueResourcesOfType(query.get("type"));
+        } else {
+            overdue = service.getOverdueResources();
+        }
+        List<String> items = new ArrayList<>(overdue.size());
+        for (Resource resource : overdue) {
+            items.add(resourceJson(resource));
+        }
+        return Response.ok(Json.array(items));
+    }
+
+    //checkouts and returns between ?from= and ?to=
+
+    private Response handleHistory(HttpExchange exchange, List<String> path) {
+        requireMethod(exchange, "GET");
+        if (!path.isEmpty()) {
+            return Response.notFound();
+        }
+        Map<String, String> query = query(exchange);
+        return Response.ok(historyJson(service.getCheckoutActivity(
+            time(required(query, "from")), time(required(query, "to")))));
+    }
+
+    private static String historyJson(List<CheckoutLedger.Entry> entries) {
+        List<String> items = new ArrayList<>(entries.size());
+        for (CheckoutLedger.Entry entry : entries) {
+            items.add(Json.object()
+                .put("event", entry.kind().name().toLowerCase(Locale.ROOT))
+                .put("at", millisJson(entry.at()))
+                .put("resourceId", entry.resourceId())
+                .put("studentId", entry.studentId())
+                .put("dueAt", entry.dueAt() > 0 ? millisJson(entry.dueAt()) : null)
+                .build());
+        }
+        return Json.array(items);
+    }
+
+    private static String millisJson(long millis) {
+        return API_TIME.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()));
+    }
+
+    //dashboard numbers
+
+    private Response handleStats(HttpExchange exchange, List<String> path) {
+        requireMethod(exchange, "GET");
+        if (!path.isEmpty()) {
+            return Response.notFound();
+        }
+        CampusStats stats = service.getStats();
+        return Response.ok(Json.object()
+            .put("students", stats.students())
+            .put("rooms", stats.rooms())
+            .put("roomsInUse", stats.roomsInUse())
+            .put("resources", stats.resources())
+            .put("available", stats.available())
+            .put("checkedOut", stats.checkedOut())
+            .put("onHold", stats.onHold())
+            .put("overdue", stats.overdue())
+            .put("bookings", stats.bookings())
+            .raw("availableByType", countsJson(stats.availableByType()))
+            .raw("studentsByDegree", countsJson(stats.studentsByDegree()))
+            .build());
+    }
+
+    private static String countsJson(Map<String, Integer> counts) {
+        Json.ObjectBuilder object = Json.object();
+        counts.forEach(object::put);
+        return object.build();
+    }
+
+    //rooms
+
+    private Response handleRooms(HttpExchange exchange, List<String> path) {
+        requireMethod(exchange, "GET");
+        if (path.size() == 2 && path.get(1).equals("archive")) {
+            return handleArchive(path.get(0));
+        }
+        if (path.size() != 1 || !path.get(0).equals("free")) {
+            return Response.notFound();
+        }
+        Map<String, String> query = query(exchange);
+        LocalDateTime start = time(required(query, "start"));
+        LocalDateTime end = time(required(query, "end"));
+        int minCapacity = query.containsKey("minCapacity") ? Integer.parseInt(query.get("minCapacity")) : 0;
+
+        List<String> rooms = new ArrayList<>();
+        for (Classroom room : service.findFreeClassrooms(start, end, minCapacity)) {
+            rooms.add(Json.object()
+                .put("room", room.getRoomNumber())
+                .put("type", room.getType())
+                .put("capacity", room.getCapacity())
+                .build());
+        }
+        return Response.ok(Json.array(rooms));
+    }
+
+    //GET /api/rooms/{room}/archive, the room's bookings moved out to the archive
+    private Response handleArchive(String roomNumber) {
+        if (service.findClassroom(roomNumber) == null) {
+            return Response.notFound();
+        }
+        List<String> items = new ArrayList<>();
+        for (ArchivedBooking booking : service.getArchivedBookings(roomNumber)) {
+            items.add(Json.object()
+                .put("room", booking.roomNumber())
+                .put("course", booking.course())
+                .put("start", booking.startTime().format(API_TIME))
+                .put("end", booking.endTime().format(API_TIME))
+                .build());
+        }
+        return Response.ok(Json.array(items));
+    }
+
+    //bookings
+
+    private Response handleBookings(HttpExchange exchange, List<String> path) throws IOException {
+        if (path.isEmpty()) {
+            requireMethod(exchange, "POST");
+            Map<String, String> body = body(exchange);
+            Classroom room = service.findClassroom(required(body, "room"));
+            if (room == null) {
+                return Response.notFound();
+            }
+            Booking booking = service.addBooking(room, required(body, "course"),
+                time(required(body, "start")), time(required(body, "end")));
+            changed();
+            return new Response(201, bookingJson(booking));
+        }
+        if (path.size() != 2) {
+            return Response.notFound();
+        }
+        Classroom room = service.findClassroom(path.get(0));
+        Booking booking = room == null ? null : service.findBooking(room, time(path.get(1)));
+        if (booking == null) {
+            return Response.notFound();
+        }
+        if (exchange.getRequestMethod().equals("GET")) {
+            return Response.ok(bookingJson(booking));
+        }
+        requireMethod(exchange, "PUT");
+        Map<String, String> body = body(exchange);
+        service.updateBooking(booking,
+            body.getOrDefault("course", booking.getCourse()),
+            body.containsKey("start") ? time(body.get("start")) : booking.getStartTime(),
+            body.containsKey("end") ? time(body.get("end")) : booking.getEndTime());
+        changed();
+        return Response.ok(bookingJson(booking));
+    }
+
+    private static String bookingJson(Booking booking) {
+        return Json.object()
+            .put("room", booking.getClassroom().getRoomNumber())
+            .put("course", booking.getCourse())
+            .put("start", booking.getStartTime().format(API_TIME))
+            .put("end", booking.getEndTime().format(API_TIME))
+            .build();
+    }
+
+    //plumbing
+
+    private interface Route {
+        Response handle(HttpExchange exchange, List<String> path) throws IOException;
+    }
+
+    private record Response(int status, String body) {
+        static Response ok(String body) {
+            return new Response(200, body);
+        }
+
+        static Response notFound() {
+            return new Response(404, error("Not found"));
+        }
+    }
+
+    private static String error(String message) {
+        return Json.object().put("error", message).build();
+    }
+
+    //maps the service's exceptions onto status codes, the same messages the dialogs show
+    private HttpHandler handler(Route route) {
+        return exchange -> {
+            Response response;
+            try {
+                String context = exchange.getHttpContext().getPath();
+                response = route.handle(exchange, pathAfter(exchange.getRequestURI().getRawPath(), context));
+            } catch (MethodNotAllowedException e) {
+                response = new Response(405, error(e.getMessage()));
+            } catch (BookingConflictException e) {
+                response = new Response(409, Json.object()
+                    .put("error", e.getMessage())
+                    .raw("conflict", bookingJson(e.getConflict()))
+                    .build());
+            } catch (CapacityException e) {
+                List<String> rooms = new ArrayList<>();
+                for (Classroom room : e.getAlternatives()) {
+                    rooms.add(Json.object()
+                        .put("room", room.getRoomNumber())
+                        .put("type", room.getType())
+                        .put("capacity", room.getCapacity())
+                        .build());
+                }
+                response = new Response(409, Json.object()
+                    .put("error", e.getMessage())
+                    .put("headcount", e.getHeadcount())
+                    .put("capacity", e.getRoom().getCapacity())
+                    .raw("alternatives", Json.array(rooms))
+                    .build());
+            } catch (IllegalStateException e) {
+                response = new Response(409, error(e.getMessage()));
+            } catch (DateTimeParseException e) {
+                response = new Response(400, error("Times must look like 2025-01-31T09:00"));
+            } catch (IllegalArgumentException e) {
+                response = new Response(400, error(e.getMessage()));
+            } catch (Exception e) {
+                response = new Response(500, error("Internal error"));
+                System.err.println("Error handling " + exchange.getRequestURI() + ": " + e);
+            }
+            send(exchange, response);
+        };
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        byte[] bytes = response.body().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status(), bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static List<String> pathAfter(String rawPath, String context) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : rawPath.substring(Math.min(rawPath.length(), context.length())).split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(URLDecoder.decode(segment, StandardCharsets.UTF_8));
+            }
+        }
+        return segments;
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static Map<String, String> body(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return text.isBlank() ? new HashMap<>() : Json.parseObject(text);
+        }
+    }
+
+    private static String required(Map<String, String> values, String name) {
+        String value = values.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        return value.trim();
+    }
+
+    private static LocalDateTime time(String value) {
+        return LocalDateTime.parse(value, API_TIME);
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new MethodNotAllowedException(method + " required");
+        }
+    }
+
+    private static final class MethodNotAllowedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        MethodNotAllowedException(String message) {
+            super(message);
+        }
+    }
+}
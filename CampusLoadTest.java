@@ -0,0 +1,255 @@
+package smart;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+//replays a mix of searches, checkouts and booking edits against a service from many
+//threads for a fixed time, then reports throughput and latency percentiles for each kind
+//of operation. meant to be run on data written by CampusGenerator: students, resources
+//and bookings are addressed by the IDs and time slots the generator uses.
+//
+//checkouts append to the ledger and rooms pushed out of memory are written to their
+//segment files, so a run changes the directory it loaded. CampusCli runs it on a scratch
+//copy made with copyOf, so every run starts from the same data
+class CampusLoadTest {
+
+    //weights out of 100
+    enum Op {
+        FIND_STUDENT(25), SEARCH_STUDENT(10), FIND_RESOURCE(15), CHECKOUT(20),
+        FREE_ROOMS(5), BOOKING_EDIT(25);
+
+        final int weight;
+
+        Op(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private final CampusService service;
+    private final int threads;
+    private final long durationNanos;
+    private final long seed;
+    //snapshots taken before the threads start, the live lists are not safe to share
+    private final List<String> studentIds = new ArrayList<>();
+    private final List<String> studentNames = new ArrayList<>();
+    private final List<String> resourceIds = new ArrayList<>();
+    private final List<String> roomNumbers = new ArrayList<>();
+    private final Op[] table = new Op[100];
+
+    public CampusLoadTest(CampusService service, int threads, int seconds, long seed) {
+        if (threads < 1 || seconds < 1) {
+            throw new IllegalArgumentException("Threads and seconds must be at least 1.");
+        }
+        this.service = service;
+        this.threads = threads;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(seconds);
+        this.seed = seed;
+        for (Student student : service.getStudents()) {
+            studentIds.add(student.getId());
+            studentNames.add(student.getName());
+        }
+        for (Resource resource : service.getResources()) {
+            resourceIds.add(resource.getId());
+        }
+        for (Classroom room : service.getClassrooms()) {
+            roomNumbers.add(room.getRoomNumber());
+        }
+        if (studentIds.isEmpty() || resourceIds.isEmpty() || roomNumbers.isEmpty()) {
+            throw new IllegalStateException("The load test needs students, classrooms and resources.");
+        }
+        int slot = 0;
+        for (Op op : Op.values()) {
+            for (int i = 0; i < op.weight; i++) {
+                table[slot++] = op;
+            }
+        }
+    }
+
+    //dir and everything in it copied to a new temporary directory, without the lock file
+    static File copyOf(File dir) throws IOException {
+        Path from = dir.toPath();
+        Path to = Files.createTempDirectory("campus-loadtest");
+        try (Stream<Path> paths = Files.walk(from)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Path target = to.resolve(from.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(target);
+                } else if (!path.getFileName().toString().equals(".lock")) {
+                    Files.copy(path, target);
+                }
+            }
+        }
+        return to.toFile();
+    }
+
+    //removes a copy made by copyOf, what cannot be removed is reported and left
+    static void delete(File copy) {
+        try (Stream<Path> paths = Files.walk(copy.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException e) {
+            System.err.println("Error removing " + copy + ": " + e.getMessage());
+        }
+    }
+
+    public Report run() throws InterruptedException {
+        Worker[] workers = new Worker[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Worker worker = new Worker(new Random(seed + t));
+            workers[t] = worker;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    worker.run(System.nanoTime() + durationNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - started;
+
+        Report report = new Report(elapsed);
+        for (Worker worker : workers) {
+            for (Op op : Op.values()) {
+                report.histograms[op.ordinal()].add(worker.histograms[op.ordinal()]);
+                report.rejected[op.ordinal()] += worker.rejected[op.ordinal()];
+                report.failed[op.ordinal()] += worker.failed[op.ordinal()];
+            }
+        }
+        return report;
+    }
+
+    private class Worker {
+        private final Random random;
+        private final LatencyHistogram[] histograms = new LatencyHistogram[Op.values().length];
+        private final long[] rejected = new long[Op.values().length];
+        private final long[] failed = new long[Op.values().length];
+
+        Worker(Random random) {
+            this.random = random;
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+        }
+
+        void run(long deadline) {
+            long now = System.nanoTime();
+            while (now < deadline) {
+                Op op = table[random.nextInt(table.length)];
+                try {
+                    perform(op);
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    //a checkout that lost a race or a booking that clashes, expected under load
+                    rejected[op.ordinal()]++;
+                } catch (RuntimeException e) {
+                    failed[op.ordinal()]++;
+                }
+                long finished = System.nanoTime();
+                histograms[op.ordinal()].record(finished - now);
+                now = finished;
+            }
+        }
+
+        private void perform(Op op) {
+            switch (op) {
+                case FIND_STUDENT -> service.findStudent(pick(studentIds));
+                case SEARCH_STUDENT -> service.searchForStudent(pick(studentNames));
+                case FIND_RESOURCE -> service.findResource(pick(resourceIds));
+                case CHECKOUT -> {
+                    Resource resource = service.findResource(pick(resourceIds));
+                    if (resource.getStatusCode() == ResourceStatus.AVAILABLE) {
+                        service.checkOutResource(resource, pick(studentIds));
+                    } else {
+                        service.returnResource(resource);
+                    }
+                }
+                case FREE_ROOMS -> {
+                    LocalDateTime start = slot();
+                    service.findFreeClassrooms(start, start.plusHours(2), 30);
+                }
+                case BOOKING_EDIT -> {
+                    Classroom room = service.findClassroom(pick(roomNumbers));
+                    LocalDateTime start = slot();
+                    Booking booking = service.findBooking(room, start);
+                    if (booking == null) {
+                        service.addBooking(room, "LOAD" + random.nextInt(100), start, start.plusHours(1));
+                    } else if (random.nextBoolean()) {
+                        service.updateBooking(booking, booking.getCourse(), start, start.plusHours(1));
+                    } else {
+                        service.removeBooking(booking);
+                    }
+                }
+            }
+        }
+
+        private String pick(List<String> values) {
+            return values.get(random.nextInt(values.size()));
+        }
+
+        //an hour slot in the first ten weeks of the generated term
+        private LocalDateTime slot() {
+            return CampusGenerator.TERM_START.plusDays(random.nextInt(70))
+                .plusHours(CampusGenerator.FIRST_HOUR + random.nextInt(CampusGenerator.LAST_HOUR - CampusGenerator.FIRST_HOUR));
+        }
+    }
+
+    public static class Report {
+        private final long elapsedNanos;
+        private final LatencyHistogram[] histograms = new LatencyHistogram[Op.values().length];
+        private final long[] rejected = new long[Op.values().length];
+        private final long[] failed = new long[Op.values().length];
+
+        Report(long elapsedNanos) {
+            this.elapsedNanos = elapsedNanos;
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+        }
+
+        public long getOperations() {
+            long total = 0;
+            for (LatencyHistogram histogram : histograms) {
+                total += histogram.getCount();
+            }
+            return total;
+        }
+
+        public double getThroughput() {
+            return getOperations() / (elapsedNanos / 1e9);
+        }
+
+        public String format() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format("%d operations in %.1f s, %.0f ops/s%n",
+                getOperations(), elapsedNanos / 1e9, getThroughput()));
+            out.append(String.format("%-15s %10s %9s %7s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "rejected", "failed", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us"));
+            for (Op op : Op.values()) {
+                LatencyHistogram h = histograms[op.ordinal()];
+                out.append(String.format("%-15s %10d %9d %7d %9d %9d %9d %9d %9d%n",
+                    op.name().toLowerCase(), h.getCount(), rejected[op.ordinal()], failed[op.ordinal()],
+                    h.percentileMicros(50), h.percentileMicros(90), h.percentileMicros(99),
+                    h.percentileMicros(99.9), h.getMaxMicros()));
+            }
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package smart;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+//counters, gauges and latency histograms for the core operations, published over JMX so
+//they can be watched with jconsole or any JMX client:
+//  smart:type=Latency,name=<operation>   count, mean, percentiles and max in microseconds
+//  smart:type=Counters                   one attribute per counter
+//  smart:type=Gauges                     one attribute per gauge, read when asked for
+//the histograms and counters are created once here and recorded into from the hot paths
+public final class CampusMetrics {
+
+    public interface LatencyMXBean {
+        long getCount();
+        double getMeanMicros();
+        long getP50Micros();
+        long getP90Micros();
+        long getP99Micros();
+        long getP999Micros();
+        long getMaxMicros();
+        void reset();
+    }
+
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+
+    static {
+        register("smart:type=Counters", new Attributes("Campus counters", COUNTERS, LongAdder::sum));
+        register("smart:type=Gauges", new Attributes("Campus gauges", GAUGES, LongSupplier::getAsLong));
+    }
+
+    //SaveData
+    public static final LatencyHistogram SAVE = histogram("save");
+    public static final LatencyHistogram LOAD = histogram("load");
+    public static final LongAdder SAVE_ERRORS = counter("saveErrors");
+    public static final LongAdder LOAD_ERRORS = counter("loadErrors");
+
+    //CampusService
+    public static final LatencyHistogram SEARCH_STUDENT = histogram("searchForStudent");
+    public static final LatencyHistogram FIND_STUDENT = histogram("findStudent");
+    public static final LatencyHistogram SEARCH_RESOURCE = histogram("searchForResource");
+    public static final LatencyHistogram FIND_RESOURCE = histogram("findResource");
+    public static final LatencyHistogram FREE_ROOMS = histogram("findFreeClassrooms");
+    public static final LatencyHistogram UTILIZATION_REPORT = histogram("utilizationReport");
+    public static final LatencyHistogram TIMETABLE_CLASHES = histogram("findAllTimetableClashes");
+    public static final LatencyHistogram BOOKING_VALIDATION = histogram("bookingValidation");
+    public static final LatencyHistogram CHECKOUT = histogram("checkout");
+    public static final LongAdder BOOKING_CONFLICTS = counter("bookingConflicts");
+    public static final LongAdder BOOKING_OVER_CAPACITY = counter("bookingOverCapacity");
+    public static final LongAdder BOOKINGS_ARCHIVED = counter("bookingsArchived");
+    public static final LongAdder ROOMS_EVICTED = counter("roomsEvicted");
+    public static final LongAdder DATA_RELOADS = counter("dataFilesReloaded");
+    public static final LongAdder DATA_CONFLICTS = counter("dataFilesOverwritten");
+    public static final LongAdder REPLICATION_SNAPSHOTS = counter("replicationSnapshots");
+    public static final LongAdder REPLICATION_CHANGES = counter("replicationChangesApplied");
+    public static final LongAdder CHECKOUTS = counter("checkouts");
+    public static final LongAdder CHECKOUTS_REJECTED = counter("checkoutsRejected");
+    public static final LongAdder RETURNS = counter("returns");
+    public static final LongAdder RESERVATIONS = counter("reservations");
+    public static final LongAdder HOLDS_EXPIRED = counter("holdsExpired");
+    public static final LongAdder LOANS_OVERDUE = counter("loansOverdue");
+    public static final LongAdder LEDGER_APPENDS = counter("ledgerAppends");
+
+    private CampusMetrics() {}
+
+    public static LatencyHistogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, n -> {
+            LatencyHistogram histogram = new LatencyHistogram();
+            register("smart:type=Latency,name=" + n, new StandardMBean(histogram, LatencyMXBean.class, true));
+            return histogram;
+        });
+    }
+
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    //a gauge is read each time it is asked for, registering the same name again replaces it
+    public static void registerGauge(String name, LongSupplier gauge) {
+        GAUGES.put(name, gauge);
+    }
+
+    public static Map<String, LatencyHistogram> getHistograms() { return HISTOGRAMS; }
+    public static Map<String, LongAdder> getCounters() { return COUNTERS; }
+    public static Map<String, LongSupplier> getGauges() { return GAUGES; }
+
+    private static void register(String name, Object bean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(bean, objectName);
+        } catch (JMException e) {
+            //metrics are a nice to have, the application runs without them
+            System.err.println("Could not register " + name + ": " + e.getMessage());
+        }
+    }
+
+    //read only long attributes taken from a map whose contents can change at any time
+    private static class Attributes implements DynamicMBean {
+        private final String description;
+        private final Map<String, ?> values;
+        private final ToLongFunction<Object> reader;
+
+        @SuppressWarnings("unchecked")
+        <T> Attributes(String description, Map<String, T> values, ToLongFunction<T> reader) {
+            this.description = description;
+            this.values = values;
+            this.reader = (ToLongFunction<Object>) reader;
+        }
+
+        @Override
+        public Object getAttribute(String name) throws AttributeNotFoundException {
+            Object value = values.get(name);
+            if (value == null) {
+                throw new AttributeNotFoundException(name);
+            }
+            return reader.applyAsLong(value);
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] names) {
+            AttributeList list = new AttributeList();
+            for (String name : names) {
+                Object value = values.get(name);
+                if (value != null) {
+                    list.add(new Attribute(name, reader.applyAsLong(value)));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException(attribute.getName() + " is read only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+            //no operations are advertised
+            throw new ReflectionException(new NoSuchMethodException(action), "No operation " + action);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            MBeanAttributeInfo[] attributes = values.keySet().stream().sorted()
+                .map(name -> new MBeanAttributeInfo(name, "long", name, true, false, false))
+                .toArray(MBeanAttributeInfo[]::new);
+            return new MBeanInfo(getClass().getName(), description, attributes, null, new MBeanOperationInfo[0], null);
+        }
+    }
+}
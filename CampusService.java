@@ -0,0 +1,2049 @@
+package smart;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+//all of the campus data and the rules around it, with no Swing dependency so it can be
+//driven from the GUI, from batch jobs or from a server. methods report invalid requests
+//by throwing IllegalArgumentException/IllegalStateException with a message for the user.
+//
+//the service methods are safe to call from many threads: lookups share a read lock and
+//changes take the write lock. the get*s() list accessors hand out the live lists for the
+//single threaded UI to build tables from and must not be used from server threads
+public class CampusService {
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[\\w.-]+@[\\w.-]+\\.edu$");
+
+    private List<Student> students = new ArrayList<>();
+    private List<Classroom> classrooms = new ArrayList<>();
+    private List<Resource> resources = new ArrayList<>();
+    
+    //IDs are compared ignoring case, so the keys are upper cased
+    private final Map<String, Student> studentsById = new HashMap<>();
+    private final Map<String, Resource> resourcesById = new HashMap<>();
+    private final Map<String, Classroom> classroomsByNumber = new HashMap<>();
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+    //only one save writes the files at a time, while lookups carry on
+    private final Object saveLock = new Object();
+    //kept up to date by the booking methods so the gauge does not walk every room
+    private volatile long bookingCount;
+    private static final long STUDENT_BYTES = 264;
+    private static final long CLASSROOM_BYTES = 200;
+    //a BookingTable row: start and end longs, the course id and the view slot. views are
+    //only made while someone holds one, and evicted rooms hold no rows at all
+    private static final long BOOKING_BYTES = 24;
+    private static final long RESOURCE_BYTES = 272;
+    //where saveAllData writes, the data/ directory unless loaded from elsewhere
+    private File dataDir = SaveData.dataDir();
+    //students waiting for resources and the holds kept for them after a return
+    private final Waitlists waitlists = new Waitlists();
+    private volatile Duration holdDuration = Duration.ofHours(24);
+    public static final Duration DEFAULT_LOAN_PERIOD = Duration.ofDays(14);
+    //resources on loan by due date, and the one scheduler deadline armed for the earliest
+    private final LoanIndex loans = new LoanIndex();
+    private volatile Duration loanPeriod = DEFAULT_LOAN_PERIOD;
+    private DeadlineScheduler.Deadline overdueCheck;
+    //every checkout and return, only kept for a service loaded from a data directory
+    private CheckoutLedger ledger;
+    //the dashboard numbers, updated by every change below, and the deadline armed for the
+    //next booking to start or end
+    private DashboardStats stats = new DashboardStats();
+    private DeadlineScheduler.Deadline roomCheck;
+    //the courses each student takes
+    private final Enrollments enrollments = new Enrollments();
+    //every booking by course, for checking a course across all rooms
+    private CourseIndex courseIndex = new CourseIndex();
+    //bookings that ended long ago, moved out of the classrooms. null until load opens it
+    private BookingArchive archive;
+    public static final Duration DEFAULT_ARCHIVE_AGE = Duration.ofDays(180);
+    private volatile Duration archiveAge = DEFAULT_ARCHIVE_AGE;
+    //each room's bookings in its own file, read in when first used. null keeps every
+    //booking in memory and in classrooms.dat
+    private BookingSegments segments;
+    public static final int DEFAULT_RESIDENT_ROOMS = 1000;
+    private final AtomicBoolean trimPending = new AtomicBoolean();
+    //rooms offered when a course does not fit the room it was booked in
+    private static final int MAX_ROOM_SUGGESTIONS = 5;
+    //other instances may share the data directory: files are written holding its lock
+    //exclusively and read holding it shared, and each file's DataDirLock stamp is kept from
+    //when this instance last read or wrote it, to tell what the others saved since. null
+    //for a service not loaded from a directory
+    private DataDirLock dataLock;
+    private final Map<String, String> fileStamps = new ConcurrentHashMap<>();
+    private DataDirWatcher watcher;
+    private final List<Consumer<ExternalChanges>> changeListeners = new CopyOnWriteArrayList<>();
+    //where work started on the scheduler thread that changes what handed-out lists and
+    //bookings show runs, the executor given to watchDataDir. the listeners are told of
+    //what a deadline changed, like what was reloaded
+    private volatile Executor changeExecutor = Runnable::run;
+    //every change of a leader, streamed to its followers by ReplicationLeader. null until
+    //the first follower connects
+    private volatile ReplicationLog replicationLog;
+    //a follower's copy, only changed by what its leader sends
+    private boolean replica;
+
+    private CampusService() {}
+
+    //an in-memory service over the given lists, nothing is saved until saveAllData is called
+    public CampusService(List<Student> students, List<Classroom> classrooms, List<Resource> resources) {
+        this.students = students;
+        this.classrooms = classrooms;
+        this.resources = resources;
+        rebuildIndexes();
+    }
+
+    //an empty read-only copy for a ReplicationFollower to fill, it is never saved
+    public static CampusService replica() {
+        CampusService service = new CampusService(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        service.replica = true;
+        return service;
+    }
+
+    private void checkWritable() {
+        if (replica) {
+            throw new IllegalStateException("This is a read-only replica, make changes on the leader.");
+        }
+    }
+
+    //loads the data files, falling back to the sample data when there are none
+    public static CampusService load() {
+        return load(SaveData.dataDir());
+    }
+
+    //same for another data directory, e.g. one written by CampusGenerator
+    public static CampusService load(File dir) {
+        return load(dir, "");
+    }
+
+    //same, with the metrics gauges named gaugePrefix + gauge so services loaded side by side
+    //each keep their own, as CampusShards loads its campuses
+    static CampusService load(File dir, String gaugePrefix) {
+        CampusService service = new CampusService();
+        service.dataDir = dir;
+        if (dir.isDirectory() || dir.mkdirs()) {
+            service.dataLock = DataDirLock.of(dir);
+        }
+        try (DataDirLock.Held _ = service.lockData(false)) {
+            service.students = SaveData.loadData(dir, "students.dat");
+            service.classrooms = SaveData.loadData(dir, "classrooms.dat");
+            service.resources = SaveData.loadData(dir, "resources.dat");
+            service.stampFiles("students.dat", "classrooms.dat", "resources.dat");
+        }
+
+        //if no data exists, initialise with the sample data
+        if (service.students.isEmpty() && service.classrooms.isEmpty() && service.resources.isEmpty()) {
+            service.initSampleData();
+        }
+        try (DataDirLock.Held _ = service.lockData(false)) {
+            service.segments = new BookingSegments(new File(dir, "rooms"), DEFAULT_RESIDENT_ROOMS, service::scheduleTrim);
+            service.rebuildIndexes();
+            service.loadReservations(SaveData.loadData(dir, "reservations.dat"));
+            service.ledger = CheckoutLedger.open(new File(dir, "ledger"));
+            service.archive = BookingArchive.open(new File(dir, "archive"));
+            service.loadEnrollments(SaveData.loadData(dir, "enrollments.dat"));
+            service.stampFiles("reservations.dat", "enrollments.dat");
+        }
+        service.registerGauges(gaugePrefix);
+        return service;
+    }
+
+    private void initSampleData() {
+        //sample students
+        students.add(new Student("S1001", "Josh Williams", "Animation", "JWilliams@SmartUni.edu"));
+        students.add(new Student("S1002", "Maria Kool", "Engineering", "MKool@SmartUni.edu"));
+        students.add(new Student("S1003", "Nico Robin", "Ancient History", "NRobin@SmartUni.edu"));
+        students.add(new Student("S1004", "Ben Leslie", "Culinary Arts", "BLeslie@SmartUni.edu"));
+
+        //sample classrooms
+        classrooms.add(new Classroom("R101", "Lecture Hall", 120));
+        classrooms.add(new Classroom("R202", "Computer Lab", 30));
+        classrooms.add(new Classroom("R305", "Seminar Room", 20));
+
+        //sample bookings
+        classrooms.get(0).addBooking("CS101", LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(1).plusHours(2));
+        classrooms.get(1).addBooking("ENG201", LocalDateTime.now().plusDays(2), LocalDateTime.now().plusDays(2).plusHours(3));
+
+        //sample resources
+        resources.add(new Resource("B001", "Advanced Java Programming", "Book", "Available"));
+        resources.add(new Resource("L002", "Microscope", "Lab Equipment", "Checked Out"));
+        resources.add(new Resource("C003", "Arduino Kit", "Electronics", "Available"));
+
+        saveAllData();
+    }
+
+    public void saveAllData() {
+        if (replica) {
+            return;
+        }
+        synchronized (saveLock) {
+            try (DataDirLock.Held _ = lockData(true)) {
+                //what other instances saved is taken in first, so it is not written over
+                reloadChangedFiles();
+                readLock.lock();
+                try {
+                    SaveData.saveData(dataDir, "students.dat", students);
+                    //the segments first, classrooms.dat no longer holds their bookings
+                    for (Classroom room : classrooms) {
+                        try {
+                            room.saveSegment();
+                        } catch (IOException e) {
+                            CampusMetrics.SAVE_ERRORS.increment();
+                            System.err.println("There has been an error while saving the bookings of " + room.getRoomNumber() + ": " + e.getMessage());
+                        }
+                    }
+                    SaveData.saveData(dataDir, "classrooms.dat", classrooms);
+                    SaveData.saveData(dataDir, "resources.dat", resources);
+                    //reservations and enrollments are not merged, the last save wins
+                    for (String file : new String[]{"reservations.dat", "enrollments.dat"}) {
+                        if (dataLock != null && changedOnDisk(file)) {
+                            CampusMetrics.DATA_CONFLICTS.increment();
+                        }
+                    }
+                    SaveData.saveData(dataDir, "reservations.dat", waitlists.all());
+                    SaveData.saveData(dataDir, "enrollments.dat", enrollments.all());
+                    stampFiles("students.dat", "classrooms.dat", "resources.dat", "reservations.dat", "enrollments.dat");
+                    if (ledger != null) {
+                        ledger.force();
+                    }
+                } finally {
+                    readLock.unlock();
+                }
+            }
+        }
+    }
+
+    //the data directory lock, or a hold on nothing for a service without a directory or
+    //when the lock file cannot be opened, saving goes ahead unlocked rather than not at all
+    private DataDirLock.Held lockData(boolean exclusive) {
+        if (dataLock != null) {
+            try {
+                return exclusive ? dataLock.exclusive() : dataLock.shared();
+            } catch (IOException e) {
+                System.err.println("Error locking " + dataDir + ": " + e.getMessage());
+            }
+        }
+        return () -> {};
+    }
+
+    private void stampFiles(String... files) {
+        for (String file : files) {
+            fileStamps.put(file, DataDirLock.stamp(new File(dataDir, file)));
+        }
+    }
+
+    private boolean changedOnDisk(String file) {
+        return !DataDirLock.stamp(new File(dataDir, file)).equals(fileStamps.getOrDefault(file, ""));
+    }
+
+    //takes in what other instances sharing the data directory saved since this one last read
+    //or wrote the files: students, classrooms and resources with new IDs, the bookings of
+    //each room whose segment changed and checkouts added to the ledger. a room with unsaved
+    //bookings here keeps them, they are written over the other instance's on the next save.
+    //changes to existing students, resources and rooms, removals, reservations and
+    //enrollments are not merged, the last instance to save wins. listeners are told of
+    //anything taken in
+    public ExternalChanges reloadChangedFiles() {
+        if (dataLock == null) {
+            return ExternalChanges.NONE;
+        }
+        ExternalChanges changes;
+        try (DataDirLock.Held _ = lockData(false)) {
+            writeLock.lock();
+            try {
+                changes = mergeChangedFiles();
+            } finally {
+                writeLock.unlock();
+            }
+            if (ledger != null) {
+                ledger.refresh();
+            }
+        }
+        tellListeners(changes);
+        return changes;
+    }
+
+    private void tellListeners(ExternalChanges changes) {
+        if (!changes.isEmpty()) {
+            for (Consumer<ExternalChanges> listener : changeListeners) {
+                listener.accept(changes);
+            }
+        }
+    }
+
+    //called with the data directory and write locks held
+    private ExternalChanges mergeChangedFiles() {
+        int newStudents = 0;
+        if (changedOnDisk("students.dat")) {
+            for (Student student : SaveData.<Student>loadData(dataDir, "students.dat")) {
+                if (studentsById.putIfAbsent(key(student.getId()), student) == null) {
+                    students.add(student);
+                    stats.addStudent(student);
+                    publishStudent(student, false);
+                    newStudents++;
+                }
+            }
+            stampFiles("students.dat");
+            CampusMetrics.DATA_RELOADS.increment();
+        }
+        int newResources = 0;
+        if (changedOnDisk("resources.dat")) {
+            for (Resource resource : SaveData.<Resource>loadData(dataDir, "resources.dat")) {
+                if (resourcesById.putIfAbsent(key(resource.getId()), resource) == null) {
+                    resources.add(resource);
+                    stats.addResource(resource);
+                    if (resource.getStatusCode() == ResourceStatus.CHECKED_OUT && resource.getCheckedOutBy() != null) {
+                        loans.add(key(resource.getId()), resource, key(resource.getCheckedOutBy()));
+                    }
+                    publishResource(resource, false);
+                    newResources++;
+                }
+            }
+            if (newResources > 0) {
+                armOverdueCheck();
+            }
+            stampFiles("resources.dat");
+            CampusMetrics.DATA_RELOADS.increment();
+        }
+        int newClassrooms = 0;
+        if (changedOnDisk("classrooms.dat")) {
+            for (Classroom room : SaveData.<Classroom>loadData(dataDir, "classrooms.dat")) {
+                if (classroomsByNumber.putIfAbsent(key(room.getRoomNumber()), room) == null) {
+                    classrooms.add(room);
+                    BookingTable table;
+                    if (segments != null) {
+                        room.useSegments(segments);
+                        table = room.peekBookingTable();
+                        segments.stamp(room);
+                    } else {
+                        table = room.getBookingTable();
+                    }
+                    bookingCount += table.size();
+                    courseIndex.addRoom(room, table);
+                    roomChanged(room);
+                    publishRoom(room);
+                    newClassrooms++;
+                }
+            }
+            stampFiles("classrooms.dat");
+            CampusMetrics.DATA_RELOADS.increment();
+        }
+        List<String> reloaded = new ArrayList<>();
+        if (segments != null) {
+            long now = nowMinute();
+            for (Classroom room : classrooms) {
+                String roomKey = key(room.getRoomNumber());
+                if (classroomsByNumber.get(roomKey) != room || room.hasUnsavedChanges() || !segments.changedOnDisk(room)) {
+                    continue;
+                }
+                int before = room.getBookingCount();
+                courseIndex.removeRoom(room);
+                BookingTable table = room.reload();
+                segments.stamp(room);
+                courseIndex.addRoom(room, table);
+                bookingCount += table.size() - before;
+                stats.updateRoom(roomKey, table, now);
+                publishRoom(room);
+                reloaded.add(room.getRoomNumber());
+                CampusMetrics.DATA_RELOADS.increment();
+            }
+            if (!reloaded.isEmpty()) {
+                armRoomCheck();
+            }
+        }
+        return new ExternalChanges(newStudents, newClassrooms, newResources, reloaded);
+    }
+
+    //reloadChangedFiles as soon as another instance saves, and tells the listener what it took
+    //in. the reload runs on executor and changes the lists getStudents(), getClassrooms() and
+    //getResources() hand out, so the Swing window passes SwingUtilities::invokeLater and the
+    //lists only change on the event dispatch thread. a headless service can run it where
+    //the change was seen, with Runnable::run. evicting bookings from memory runs on executor
+    //too, it parks the views handed out, and so do holds expiring and rooms coming into or
+    //out of use, which the listener is told of as well. the listener is called on the
+    //thread that made the change, which is also the thread saving when a save takes
+    //changes in. nothing happens for a service not loaded from a directory
+    public synchronized void watchDataDir(Executor executor, Consumer<ExternalChanges> listener) {
+        if (dataLock == null) {
+            return;
+        }
+        changeExecutor = executor;
+        changeListeners.add(listener);
+        if (watcher == null) {
+            watcher = DataDirWatcher.start(dataDir, executor, this::reloadChangedFiles);
+        }
+    }
+    
+    //the gauges follow the most recently loaded service with the same prefix, in practice
+    //there is only one. they read sizes without the lock, a reading may be a moment stale
+    //but never waits behind a writer, so the diagnostics panel cannot stall the event
+    //dispatch thread
+    private void registerGauges(String prefix) {
+        CampusMetrics.registerGauge(prefix + "students", () -> students.size());
+        CampusMetrics.registerGauge(prefix + "classrooms", () -> classrooms.size());
+        CampusMetrics.registerGauge(prefix + "resources", () -> resources.size());
+        CampusMetrics.registerGauge(prefix + "bookings", () -> bookingCount);
+        CampusMetrics.registerGauge(prefix + "rooms.inUse", () -> stats.getRoomsInUse());
+        CampusMetrics.registerGauge(prefix + "enrollments", enrollments::size);
+        CampusMetrics.registerGauge(prefix + "resources.checkedOut", () -> stats.getResourceCount(ResourceStatus.CHECKED_OUT));
+        CampusMetrics.registerGauge(prefix + "reservations.waiting", waitlists::getWaitingCount);
+        CampusMetrics.registerGauge(prefix + "reservations.holds", waitlists::getHoldCount);
+        CampusMetrics.registerGauge(prefix + "loans.active", loans::getActiveCount);
+        CampusMetrics.registerGauge(prefix + "loans.overdue", loans::getOverdueCount);
+        if (ledger != null) {
+            CampusMetrics.registerGauge(prefix + "ledger.entries", ledger::getEntryCount);
+            CampusMetrics.registerGauge(prefix + "ledger.bytes", ledger::getEntryBytes);
+        }
+        if (archive != null) {
+            CampusMetrics.registerGauge(prefix + "archive.bytes", archive::getBytes);
+        }
+        if (segments != null) {
+            CampusMetrics.registerGauge(prefix + "rooms.resident", segments::getResidentCount);
+        }
+        //rough sizes of an entity with its strings and dates, for scale rather than accuracy
+        CampusMetrics.registerGauge(prefix + "heap.students", () -> students.size() * STUDENT_BYTES);
+        CampusMetrics.registerGauge(prefix + "heap.classrooms", () -> classrooms.size() * CLASSROOM_BYTES);
+        CampusMetrics.registerGauge(prefix + "heap.bookings", () -> bookingCount * BOOKING_BYTES);
+        CampusMetrics.registerGauge(prefix + "heap.resources", () -> resources.size() * RESOURCE_BYTES);
+        for (String file : new String[]{"students.dat", "classrooms.dat", "resources.dat"}) {
+            File dataFile = new File(dataDir, file);
+            CampusMetrics.registerGauge(prefix + file + ".bytes", dataFile::length);
+        }
+    }
+
+    //older data files may hold duplicate IDs, the first one wins as it did for the list searches
+    private void rebuildIndexes() {
+        studentsById.clear();
+        for (Student student : students) {
+            studentsById.putIfAbsent(key(student.getId()), student);
+        }
+        classroomsByNumber.clear();
+        for (Classroom room : classrooms) {
+            classroomsByNumber.putIfAbsent(key(room.getRoomNumber()), room);
+        }
+        resourcesById.clear();
+        for (Resource resource : resources) {
+            resourcesById.putIfAbsent(key(resource.getId()), resource);
+        }
+        for (Resource resource : resourcesById.values()) {
+            if (resource.getStatusCode() == ResourceStatus.CHECKED_OUT && resource.getCheckedOutBy() != null) {
+                loans.add(key(resource.getId()), resource, key(resource.getCheckedOutBy()));
+            }
+        }
+        armOverdueCheck();
+        stats = new DashboardStats();
+        for (Student student : students) {
+            stats.addStudent(student);
+        }
+        for (Resource resource : resources) {
+            stats.addResource(resource);
+        }
+        //each room's segment is read once here and, beyond the resident limit, dropped again
+        long now = nowMinute();
+        long total = 0;
+        courseIndex = new CourseIndex();
+        for (Classroom room : classrooms) {
+            String roomKey = key(room.getRoomNumber());
+            boolean indexed = classroomsByNumber.get(roomKey) == room;
+            //a room shadowed by an earlier one with the same number keeps its bookings in
+            //classrooms.dat, the two would share a segment file
+            if (segments != null && indexed) {
+                room.useSegments(segments);
+            }
+            BookingTable table = room.peekBookingTable();
+            if (segments != null && indexed) {
+                segments.stamp(room);
+            }
+            total += table.size();
+            courseIndex.addRoom(room, table);
+            if (indexed) {
+                stats.updateRoom(roomKey, table, now);
+            }
+        }
+        armRoomCheck();
+        bookingCount = total;
+    }
+    
+    private <T> List<T> snapshot(List<T> list) {
+        readLock.lock();
+        try {
+            return List.copyOf(list);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private static String key(String id) {
+        return id.trim().toUpperCase(Locale.ROOT);
+    }
+
+    //dashboard
+
+    //all the dashboard numbers at one moment, read from counters kept up to date by every
+    //change so this costs the same however much data there is
+    public CampusStats getStats() {
+        readLock.lock();
+        try {
+            return new CampusStats(
+                stats.getStudentCount(),
+                stats.getRoomCount(),
+                stats.getRoomsInUse(),
+                stats.getResourceCount(),
+                stats.getResourceCount(ResourceStatus.AVAILABLE),
+                stats.getResourceCount(ResourceStatus.CHECKED_OUT),
+                stats.getResourceCount(ResourceStatus.ON_HOLD),
+                loans.getOverdueCount(),
+                bookingCount,
+                stats.resourcesByType(ResourceStatus.AVAILABLE),
+                stats.studentsByDegree());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private static long nowMinute() {
+        return BookingTable.toMinutes(LocalDateTime.now());
+    }
+
+    //rooms beyond the resident limit are evicted soon after, not by the reader that read
+    //them in, evicting needs the write lock. it runs on the change executor, the Swing
+    //window reads bookings on the event dispatch thread without the lock
+    private void scheduleTrim() {
+        if (trimPending.compareAndSet(false, true)) {
+            DeadlineScheduler.shared().schedule(System.currentTimeMillis(),
+                () -> changeExecutor.execute(this::trimBookings));
+        }
+    }
+
+    //evicting writes segments, so it holds the data directory lock like a save
+    private void trimBookings() {
+        try (DataDirLock.Held _ = lockData(true)) {
+            writeLock.lock();
+            try {
+                trimPending.set(false);
+                for (Classroom room : segments.overLimit()) {
+                    try {
+                        room.evict();
+                        CampusMetrics.ROOMS_EVICTED.increment();
+                    } catch (IOException e) {
+                        CampusMetrics.SAVE_ERRORS.increment();
+                        System.err.println("There has been an error while saving the bookings of " + room.getRoomNumber() + ": " + e.getMessage());
+                    }
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    public int getResidentRoomLimit() {
+        return segments == null ? Integer.MAX_VALUE : segments.getMaxResident();
+    }
+
+    //how many rooms keep their bookings in memory, the least recently used go first
+    public void setResidentRoomLimit(int rooms) {
+        if (segments != null) {
+            segments.setMaxResident(rooms);
+        }
+    }
+
+    //called with the write lock held after the room or its bookings changed
+    private void roomChanged(Classroom room) {
+        stats.updateRoom(key(room.getRoomNumber()), room.peekBookingTable(), nowMinute());
+        armRoomCheck();
+    }
+
+    //one deadline at the next booking start or end in any room, like armOverdueCheck
+    private void armRoomCheck() {
+        long next = stats.nextRoomChange();
+        long nextMillis = next == Long.MAX_VALUE ? Long.MAX_VALUE
+            : BookingTable.fromMinutes(next).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (roomCheck != null && !roomCheck.isCancelled() && roomCheck.getDueMillis() <= nextMillis) {
+            return;
+        }
+        if (roomCheck != null) {
+            roomCheck.cancel();
+            roomCheck = null;
+        }
+        if (next != Long.MAX_VALUE) {
+            roomCheck = DeadlineScheduler.shared().schedule(nextMillis, () -> changeExecutor.execute(this::refreshRooms));
+        }
+    }
+
+    //runs on the change executor as bookings start and end
+    private void refreshRooms() {
+        List<String> changed = new ArrayList<>();
+        writeLock.lock();
+        try {
+            roomCheck = null;
+            long now = nowMinute();
+            for (String roomKey : stats.roomsChangedBy(now)) {
+                Classroom room = classroomsByNumber.get(roomKey);
+                if (room != null) {
+                    stats.updateRoom(roomKey, room.peekBookingTable(), now);
+                    changed.add(room.getRoomNumber());
+                } else {
+                    stats.removeRoom(roomKey);
+                }
+            }
+            armRoomCheck();
+        } finally {
+            writeLock.unlock();
+        }
+        tellListeners(new ExternalChanges(0, 0, 0, changed));
+    }
+
+    //students
+    public List<Student> getStudents() { return students; }
+    //a copy taken under the lock, for threads other than the one the list changes on
+    public List<Student> snapshotStudents() { return snapshot(students); }
+
+    public Student searchForStudent(String searchTerm) {
+        long started = System.nanoTime();
+        CampusEvents.Search event = new CampusEvents.Search();
+        event.begin();
+        Student found = null;
+        readLock.lock();
+        try {
+            found = students.stream()
+                .filter(student ->
+                    student.getId().equalsIgnoreCase(searchTerm) ||
+                    student.getName().toLowerCase().contains(searchTerm.toLowerCase()))
+                .findFirst()
+                .orElse(null);
+            return found;
+        } finally {
+            readLock.unlock();
+            CampusMetrics.SEARCH_STUDENT.recordSince(started);
+            commitSearch(event, "searchForStudent", students.size(), found != null);
+        }
+    }
+
+    //exact, case insensitive ID lookup
+    public Student findStudent(String id) {
+        long started = System.nanoTime();
+        CampusEvents.Search event = new CampusEvents.Search();
+        event.begin();
+        Student found = null;
+        readLock.lock();
+        try {
+            found = studentsById.get(key(id));
+            return found;
+        } finally {
+            readLock.unlock();
+            CampusMetrics.FIND_STUDENT.recordSince(started);
+            commitSearch(event, "findStudent", studentsById.size(), found != null);
+        }
+    }
+
+    private static void commitSearch(CampusEvents.Search event, String kind, int entities, boolean found) {
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.entities = entities;
+            event.found = found;
+            event.commit();
+        }
+    }
+
+    public boolean isStudentIdUnique(String id) {
+        return findStudent(id) == null;
+    }
+
+    public boolean isValidStudentId(String studentId) {
+        return findStudent(studentId) != null;
+    }
+
+    public boolean isValidEmail(String email) {
+        return EMAIL_PATTERN.matcher(email).matches();
+    }
+
+    //bulk imports validate their rows up front, these add a whole batch under one write
+    //lock and hand back (index in batch, reason) for rows that clashed with changes made
+    //since they were validated
+
+    public int importStudents(List<Student> batch, BiConsumer<Integer, String> rejected) {
+        checkWritable();
+        writeLock.lock();
+        try {
+            int added = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                Student student = batch.get(i);
+                if (studentsById.putIfAbsent(key(student.getId()), student) != null) {
+                    rejected.accept(i, "Student ID already exists!");
+                    continue;
+                }
+                students.add(student);
+                stats.addStudent(student);
+                publishStudent(student, false);
+                added++;
+            }
+            return added;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int importClassrooms(List<Classroom> batch, BiConsumer<Integer, String> rejected) {
+        checkWritable();
+        writeLock.lock();
+        try {
+            int added = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                Classroom room = batch.get(i);
+                if (classroomsByNumber.putIfAbsent(key(room.getRoomNumber()), room) != null) {
+                    rejected.accept(i, "Room number already exists!");
+                    continue;
+                }
+                classrooms.add(room);
+                if (segments != null) {
+                    room.useSegments(segments);
+                }
+                bookingCount += room.getBookingCount();
+                courseIndex.addRoom(room, room.getBookingTable());
+                roomChanged(room);
+                publishRoom(room);
+                added++;
+            }
+            return added;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int importBookings(List<Booking> batch, BiConsumer<Integer, String> rejected) {
+        checkWritable();
+        writeLock.lock();
+        try {
+            int added = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                Booking booking = batch.get(i);
+                Booking existing = findBookingConflict(booking.getClassroom(), booking.getStartTime(), booking.getEndTime(), null);
+                if (existing == null) {
+                    existing = courseIndex.findOverlap(booking.getCourseId(), booking.getStartMinutes(),
+                        booking.getEndMinutes(), null, 0);
+                }
+                if (existing != null) {
+                    rejected.accept(i, new BookingConflictException(existing).getMessage());
+                    continue;
+                }
+                booking.getClassroom().addBooking(booking);
+                indexBooking(booking);
+                bookingCount++;
+                roomChanged(booking.getClassroom());
+                publishBookingAdded(booking);
+                added++;
+            }
+            return added;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int importResources(List<Resource> batch, BiConsumer<Integer, String> rejected) {
+        checkWritable();
+        writeLock.lock();
+        try {
+            int added = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                Resource resource = batch.get(i);
+                String holder = resource.getCheckedOutBy();
+                if (holder != null && !studentsById.containsKey(key(holder))) {
+                    rejected.accept(i, "Only registered students can check out resources.");
+                    continue;
+                }
+                if (resourcesById.putIfAbsent(key(resource.getId()), resource) != null) {
+                    rejected.accept(i, "Resource ID already exists!");
+                    continue;
+                }
+                resources.add(resource);
+                stats.addResource(resource);
+                if (resource.getStatusCode() == ResourceStatus.CHECKED_OUT && holder != null) {
+                    indexLoan(resource);
+                }
+                publishResource(resource, false);
+                added++;
+            }
+            return added;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public Student addStudent(String id, String name, String degree, String email) {
+        if (id.isEmpty() || name.isEmpty() || degree.isEmpty() || email.isEmpty()) {
+            throw new IllegalArgumentException("Please fill in all fields.");
+        }
+        if (!isValidEmail(email)) {
+            throw new IllegalArgumentException("Email must be a valid .edu address!");
+        }
+        checkWritable();
+        writeLock.lock();
+        try {
+            if (studentsById.containsKey(key(id))) {
+                throw new IllegalArgumentException("Student ID already exists!");
+            }
+            Student student = new Student(id, name, degree, email);
+            students.add(student);
+            studentsById.put(key(id), student);
+            stats.addStudent(student);
+            publishStudent(student, false);
+            return student;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void updateStudent(Student student, String name, String degree, String email) {
+        if (name.isEmpty() || degree.isEmpty() || email.isEmpty()) {
+            throw new IllegalArgumentException("Please fill in all fields.");
+        }
+        if (!isValidEmail(email)) {
+            throw new IllegalArgumentException("Email must be a valid .edu address!");
+        }
+        checkWritable();
+        writeLock.lock();
+        try {
+            student.setName(name);
+            stats.removeStudent(student);
+            student.setDegree(degree);
+            stats.addStudent(student);
+            student.setEmail(email);
+            publishStudent(student, false);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void removeStudent(Student student) {
+        checkWritable();
+        writeLock.lock();
+        try {
+            if (students.remove(student)) {
+                studentsById.remove(key(student.getId()));
+                stats.removeStudent(student);
+                enrollments.removeStudent(key(student.getId()));
+                publishStudent(student, true);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //enrollments and timetables
+
+    public void enrollStudent(String studentId, String course) {
+        if (course == null || course.isBlank()) {
+            throw new IllegalArgumentException("Please enter a course code.");
+        }
+        checkWritable();
+        writeLock.lock();
+        try {
+            Student student = studentsById.get(key(studentId));
+            if (student == null) {
+                throw new IllegalArgumentException("Error: Student ID " + studentId + " not found!");
+            }
+            int courseId = StringDictionary.COURSES.id(course.trim());
+            if (!enrollments.enroll(key(studentId), student.getId(), courseId)) {
+                throw new IllegalStateException("Student is already enrolled in " + course.trim() + ".");
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void dropCourse(String studentId, String course) {
+        checkWritable();
+        writeLock.lock();
+        try {
+            if (!enrollments.drop(key(studentId), StringDictionary.COURSES.find(course.trim()))) {
+                throw new IllegalArgumentException("Student " + studentId + " is not enrolled in " + course.trim() + ".");
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public List<String> getEnrolledCourses(String studentId) {
+        readLock.lock();
+        try {
+            List<String> courses = new ArrayList<>();
+            for (int course : enrollments.courses(key(studentId))) {
+                courses.add(StringDictionary.COURSES.get(course));
+            }
+            courses.sort(null);
+            return courses;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public int getCourseHeadcount(String course) {
+        readLock.lock();
+        try {
+            return enrollments.headcount(StringDictionary.COURSES.find(course.trim()));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    //the bookings of the student's courses overlapping [from, to), in start order
+    public List<Booking> getTimetable(String studentId, LocalDateTime from, LocalDateTime to) {
+        readLock.lock();
+        try {
+            int[] courses = enrollments.courses(key(studentId));
+            List<Booking> timetable = new ArrayList<>();
+            if (courses.length > 0) {
+                long start = BookingTable.toMinutes(from);
+                long end = BookingTable.toMinutes(to);
+                for (int course : courses) {
+                    courseIndex.bookingsBetween(course, start, end, timetable);
+                }
+            }
+            timetable.sort(Comparator.comparingLong(Booking::getStartMinutes));
+            return timetable;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    //pairs of the student's courses with bookings at the same time
+    public List<TimetableClash> getTimetableClashes(String studentId) {
+        TimetableClashes clashes;
+        int[] courses;
+        readLock.lock();
+        try {
+            courses = enrollments.courses(key(studentId));
+            if (courses.length < 2) {
+                return List.of();
+            }
+            int[] wanted = courses;
+            clashes = TimetableClashes.of(courseIndex, course -> Arrays.binarySearch(wanted, course) >= 0);
+        } finally {
+            readLock.unlock();
+        }
+        return clashes.clashes(courses);
+    }
+
+    //every student with clashing courses, student ID -> clashes. the bookings are copied
+    //under the read lock and the students then checked in parallel without it
+    public Map<String, List<TimetableClash>> findAllTimetableClashes() {
+        long started = System.nanoTime();
+        TimetableClashes clashes;
+        Map<String, int[]> taking;
+        readLock.lock();
+        try {
+            taking = enrollments.snapshot();
+            clashes = TimetableClashes.of(courseIndex, course -> enrollments.headcount(course) > 0);
+        } finally {
+            readLock.unlock();
+        }
+        try {
+            return clashes.clashes(taking);
+        } finally {
+            CampusMetrics.TIMETABLE_CLASHES.recordSince(started);
+        }
+    }
+
+    //students no longer registered are skipped
+    private void loadEnrollments(List<Enrollment> saved) {
+        writeLock.lock();
+        try {
+            for (Enrollment enrollment : saved) {
+                Student student = studentsById.get(key(enrollment.studentId()));
+                if (student != null) {
+                    enrollments.enroll(key(student.getId()), student.getId(),
+                        StringDictionary.COURSES.id(enrollment.course()));
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //classrooms and bookings
+    public List<Classroom> getClassrooms() { return classrooms; }
+    public List<Classroom> snapshotClassrooms() { return snapshot(classrooms); }
+
+    public Classroom findClassroom(String roomNumber) {
+        readLock.lock();
+        try {
+            return classroomsByNumber.get(key(roomNumber));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public Classroom addClassroom(String roomNumber, String type, int capacity) {
+        if (roomNumber.isEmpty() || type.isEmpty()) {
+            throw new IllegalArgumentException("Please fill in all fields.");
+        }
+        checkWritable();
+        writeLock.lock();
+        try {
+            Classroom classroom = new Classroom(roomNumber, type, capacity);
+            classrooms.add(classroom);
+            if (classroomsByNumber.putIfAbsent(key(roomNumber), classroom) == null) {
+                if (segments != null) {
+                    classroom.useSegments(segments);
+                }
+                roomChanged(classroom);
+                publishRoom(classroom);
+            }
+            return classroom;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //all bookings from all classrooms, in classroom order, read like peekBookings
+    public List<Booking> getAllBookings() {
+        readLock.lock();
+        try {
+            List<Booking> allBookings = new ArrayList<>();
+            for (Classroom room : classrooms) {
+                allBookings.addAll(peekBookings(room));
+            }
+            return allBookings;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    //one room's bookings for a scan over the campus, which should not push out the rooms in
+    //use: a room whose bookings are not in memory is read without paging it in and gives
+    //copies rather than the bookings themselves. look one up with findBooking to change or
+    //remove it
+    public List<Booking> peekBookings(Classroom room) {
+        readLock.lock();
+        try {
+            //a resident room stays resident while the read lock is held, evicting needs the
+            //write lock
+            if (room.isResident()) {
+                return room.peekBookingTable().views(room);
+            }
+            return room.peekBookingTable().copies(room);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    //the booking in the room starting exactly at the given time, used to address a
+    //booking from outside the application
+    public Booking findBooking(Classroom room, LocalDateTime start) {
+        readLock.lock();
+        try {
+            return room.findBookingAt(start);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    //the first booking in the room overlapping [start, end), ignoring the given booking
+    //so an edit does not conflict with itself
+    public Booking findBookingConflict(Classroom room, LocalDateTime start, LocalDateTime end, Booking ignore) {
+        CampusEvents.BookingConflictCheck event = new CampusEvents.BookingConflictCheck();
+        event.begin();
+        Booking conflict = null;
+        readLock.lock();
+        try {
+            conflict = room.findConflict(start, end, ignore);
+            return conflict;
+        } finally {
+            if (event.shouldCommit()) {
+                event.room = room.getRoomNumber();
+                event.bookings = room.getBookingCount();
+                event.conflict = conflict != null;
+                event.commit();
+            }
+            readLock.unlock();
+        }
+    }
+
+    //classrooms with at least minCapacity seats and no booking overlapping [start, end)
+    public List<Classroom> findFreeClassrooms(LocalDateTime start, LocalDateTime end, int minCapacity) {
+        long started = System.nanoTime();
+        readLock.lock();
+        try {
+            List<Classroom> free = new ArrayList<>();
+            //converted once and checked straight against each room's columns
+            long from = BookingTable.toMinutes(start);
+            long to = BookingTable.toMinutes(end);
+            for (Classroom room : classrooms) {
+                if (room.getCapacity() >= minCapacity && room.peekBookingTable().findOverlap(from, to, -1) < 0) {
+                    free.add(room);
+                }
+            }
+            return free;
+        } finally {
+            readLock.unlock();
+            CampusMetrics.FREE_ROOMS.recordSince(started);
+        }
+    }
+
+    //archive
+
+    public Duration getArchiveAge() { return archiveAge; }
+
+    //how long after ending archivePastBookings leaves a booking live
+    public void setArchiveAge(Duration archiveAge) {
+        if (archiveAge.isNegative()) {
+            throw new IllegalArgumentException("Archive age cannot be negative.");
+        }
+        this.archiveAge = archiveAge;
+    }
+
+    public int archivePastBookings() {
+        return archiveBookings(LocalDateTime.now().minus(archiveAge));
+    }
+
+    //moves every booking ending at or before before into the archive, then saves so
+    //classrooms.dat no longer holds them. the archive is written and synced before any
+    //booking leaves its room, so a failed write loses nothing
+    public int archiveBookings(LocalDateTime before) {
+        checkWritable();
+        if (archive == null) {
+            throw new IllegalStateException("No booking archive is open.");
+        }
+        long horizon = BookingTable.toMinutes(before);
+        int archived = 0;
+        writeLock.lock();
+        try {
+            List<ArchivedBooking> moving = new ArrayList<>();
+            List<Booking> leaving = new ArrayList<>();
+            for (Classroom room : classrooms) {
+                BookingTable table = room.getBookingTable();
+                for (int row = 0, n = table.rowCount(); row < n; row++) {
+                    //removed rows end at Long.MIN_VALUE
+                    if (table.end(row) <= horizon && table.end(row) != Long.MIN_VALUE) {
+                        Booking booking = table.view(room, row);
+                        leaving.add(booking);
+                        moving.add(new ArchivedBooking(room.getRoomNumber(), booking.getCourse(),
+                            booking.getStartTime(), booking.getEndTime()));
+                    }
+                }
+            }
+            if (leaving.isEmpty()) {
+                return 0;
+            }
+            try {
+                archive.append(moving);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not write the booking archive: " + e.getMessage(), e);
+            }
+            Set<Classroom> touched = new HashSet<>();
+            for (Booking booking : leaving) {
+                unindexBooking(booking);
+                booking.getClassroom().removeBooking(booking);
+                touched.add(booking.getClassroom());
+            }
+            bookingCount -= leaving.size();
+            touched.forEach(this::roomChanged);
+            touched.forEach(this::publishRoom);
+            archived = leaving.size();
+        } finally {
+            writeLock.unlock();
+        }
+        CampusMetrics.BOOKINGS_ARCHIVED.add(archived);
+        saveAllData();
+        return archived;
+    }
+
+    //archived bookings of the room, read from the archive files the first time they are asked for
+    public List<ArchivedBooking> getArchivedBookings(String roomNumber) {
+        return archive == null ? List.of() : archive.ofRoom(roomNumber.trim());
+    }
+
+    //archived bookings of every room starting in [from, to)
+    public List<ArchivedBooking> getArchivedBookings(LocalDateTime from, LocalDateTime to) {
+        return archive == null ? List.of()
+            : archive.between(null, BookingTable.toMinutes(from), BookingTable.toMinutes(to));
+    }
+
+    private void indexBooking(Booking booking) {
+        courseIndex.add(booking.getClassroom(), booking.getCourseId(), booking.getStartMinutes(), booking.getEndMinutes());
+    }
+
+    //false for a booking no longer in its room
+    private boolean unindexBooking(Booking booking) {
+        return booking.getRow() >= 0 && courseIndex.remove(booking.getClassroom(), booking.getCourseId(),
+            booking.getStartMinutes(), booking.getEndMinutes());
+    }
+
+    //the smallest rooms seating at least seats that are free in [from, to), for suggesting
+    //where a booking that does not fit could go instead. rooms are tried smallest first so
+    //only the candidates actually suggested have their bookings checked
+    private List<Classroom> bestFitClassrooms(long from, long to, int seats) {
+        List<Classroom> candidates = new ArrayList<>();
+        for (Classroom room : classrooms) {
+            if (room.getCapacity() >= seats) {
+                candidates.add(room);
+            }
+        }
+        candidates.sort(Comparator.comparingInt(Classroom::getCapacity).thenComparing(Classroom::getRoomNumber));
+        List<Classroom> free = new ArrayList<>();
+        for (Classroom room : candidates) {
+            if (room.peekBookingTable().findOverlap(from, to, -1) < 0) {
+                free.add(room);
+                if (free.size() == MAX_ROOM_SUGGESTIONS) {
+                    break;
+                }
+            }
+        }
+        return free;
+    }
+
+    //room use between from and to against the usual opening hours, counted in parallel
+    public UtilizationReport reportUtilization(LocalDateTime from, LocalDateTime to) {
+        return reportUtilization(from, to, UtilizationReport.DEFAULT_OPEN_HOUR, UtilizationReport.DEFAULT_CLOSE_HOUR);
+    }
+
+    public UtilizationReport reportUtilization(LocalDateTime from, LocalDateTime to, int openHour, int closeHour) {
+        long started = System.nanoTime();
+        readLock.lock();
+        try {
+            return UtilizationReport.compute(new ArrayList<>(classrooms), from, to, openHour, closeHour);
+        } finally {
+            readLock.unlock();
+            CampusMetrics.UTILIZATION_REPORT.recordSince(started);
+        }
+    }
+
+    public Booking addBooking(Classroom room, String course, LocalDateTime start, LocalDateTime end) {
+        String code = course == null ? null : course.trim();
+        checkWritable();
+        writeLock.lock();
+        try {
+            validateBooking(room, code, start, end, null);
+            Booking booking = new Booking(room, code, start, end);
+            room.addBooking(booking);
+            indexBooking(booking);
+            bookingCount++;
+            roomChanged(room);
+            publishBookingAdded(booking);
+            return booking;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void updateBooking(Booking booking, String course, LocalDateTime start, LocalDateTime end) {
+        String code = course == null ? null : course.trim();
+        checkWritable();
+        writeLock.lock();
+        try {
+            //found before the lock was taken, it may have been removed since
+            if (booking.getRow() < 0) {
+                throw new IllegalStateException("This booking has been removed.");
+            }
+            validateBooking(booking.getClassroom(), code, start, end, booking);
+            long oldStart = booking.getStartMinutes();
+            unindexBooking(booking);
+            booking.setCourse(code);
+            booking.setStartTime(start);
+            booking.setEndTime(end);
+            //a booking that had no course was not in the index, but may have one now. every
+            //edit goes to the followers, course or not
+            indexBooking(booking);
+            publishBookingRemoved(booking.getClassroom(), oldStart);
+            publishBookingAdded(booking);
+            roomChanged(booking.getClassroom());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void removeBooking(Booking booking) {
+        checkWritable();
+        writeLock.lock();
+        try {
+            Classroom room = booking.getClassroom();
+            int before = room.getBookingCount();
+            long start = booking.getStartMinutes();
+            unindexBooking(booking);
+            room.removeBooking(booking);
+            bookingCount -= before - room.getBookingCount();
+            roomChanged(room);
+            if (room.getBookingCount() != before) {
+                publishBookingRemoved(room, start);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //course comes trimmed by addBooking/updateBooking, every check uses the code as stored
+    private void validateBooking(Classroom room, String course, LocalDateTime start, LocalDateTime end, Booking ignore) {
+        long started = System.nanoTime();
+        try {
+            if (course == null || course.isEmpty()) {
+                throw new IllegalArgumentException("Please fill in all fields.");
+            }
+            if (end.isBefore(start)) {
+                throw new IllegalArgumentException("End time must be after start time.");
+            }
+            Booking existing = findBookingConflict(room, start, end, ignore);
+            if (existing != null) {
+                CampusMetrics.BOOKING_CONFLICTS.increment();
+                throw new BookingConflictException(existing);
+            }
+            //the same course cannot be in two rooms at once
+            Booking elsewhere = courseIndex.findOverlap(StringDictionary.COURSES.find(course),
+                BookingTable.toMinutes(start), BookingTable.toMinutes(end),
+                ignore == null ? null : ignore.getClassroom(), ignore == null ? 0 : ignore.getStartMinutes());
+            if (elsewhere != null) {
+                CampusMetrics.BOOKING_CONFLICTS.increment();
+                throw new BookingConflictException(elsewhere);
+            }
+            //the headcount is kept up to date by enrolling and dropping, so this is a lookup
+            int headcount = enrollments.headcount(StringDictionary.COURSES.find(course));
+            if (headcount > room.getCapacity()) {
+                CampusMetrics.BOOKING_OVER_CAPACITY.increment();
+                throw new CapacityException(room, course, headcount,
+                    bestFitClassrooms(BookingTable.toMinutes(start), BookingTable.toMinutes(end), headcount));
+            }
+        } finally {
+            CampusMetrics.BOOKING_VALIDATION.recordSince(started);
+        }
+    }
+
+    //resources
+    public List<Resource> getResources() { return resources; }
+    public List<Resource> snapshotResources() { return snapshot(resources); }
+
+    public Resource searchForResource(String searchTerm) {
+        long started = System.nanoTime();
+        CampusEvents.Search event = new CampusEvents.Search();
+        event.begin();
+        Resource found = null;
+        readLock.lock();
+        try {
+            found = resources.stream()
+                .filter(resource ->
+                	resource.getId().equalsIgnoreCase(searchTerm) ||
+                	resource.getName().toLowerCase().contains(searchTerm.toLowerCase()))
+                .findFirst()
+                .orElse(null);
+            return found;
+        } finally {
+            readLock.unlock();
+            CampusMetrics.SEARCH_RESOURCE.recordSince(started);
+            commitSearch(event, "searchForResource", resources.size(), found != null);
+        }
+    }
+
+    //exact, case insensitive ID lookup
+    public Resource findResource(String id) {
+        long started = System.nanoTime();
+        CampusEvents.Search event = new CampusEvents.Search();
+        event.begin();
+        Resource found = null;
+        readLock.lock();
+        try {
+            found = resourcesById.get(key(id));
+            return found;
+        } finally {
+            readLock.unlock();
+            CampusMetrics.FIND_RESOURCE.recordSince(started);
+            commitSearch(event, "findResource", resourcesById.size(), found != null);
+        }
+    }
+
+    public List<Resource> getCheckedOutResources(String studentId) {
+        readLock.lock();
+        try {
+            return loans.loansFor(key(studentId));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public Resource addResource(String id, String name, String type, String status) {
+        if (id.isEmpty() || name.isEmpty()) {
+            throw new IllegalArgumentException("Please fill in all fields.");
+        }
+        checkWritable();
+        writeLock.lock();
+        try {
+            if (resourcesById.containsKey(key(id))) {
+                throw new IllegalArgumentException("Resource ID already exists!");
+            }
+            Resource resource = new Resource(id, name, type, status);
+            resources.add(resource);
+            resourcesById.put(key(id), resource);
+            stats.addResource(resource);
+            publishResource(resource, false);
+            return resource;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void updateResource(Resource resource, String name, String type, String status) {
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Please fill in all fields.");
+        }
+        checkWritable();
+        writeLock.lock();
+        try {
+            resource.setName(name);
+            stats.removeResource(resource);
+            int oldType = resource.getTypeId();
+            resource.setType(type);
+            //overdue loans are grouped by type
+            if (resource.getTypeId() != oldType && resource.getStatusCode() == ResourceStatus.CHECKED_OUT) {
+                indexLoan(resource);
+            }
+            //a checked out or held resource keeps its status until it is returned or collected
+            ResourceStatus current = resource.getStatusCode();
+            if (current != ResourceStatus.CHECKED_OUT && current != ResourceStatus.ON_HOLD) {
+                resource.setStatus(status);
+                //back from maintenance with students waiting
+                if (current != ResourceStatus.AVAILABLE && resource.getStatusCode() == ResourceStatus.AVAILABLE) {
+                    offerToNextInLine(resource);
+                }
+            }
+            stats.addResource(resource);
+            publishResource(resource, false);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void removeResource(Resource resource) {
+        checkWritable();
+        writeLock.lock();
+        try {
+            if (resources.remove(resource)) {
+                resourcesById.remove(key(resource.getId()));
+                stats.removeResource(resource);
+                waitlists.clear(key(resource.getId()));
+                loans.remove(key(resource.getId()));
+                publishResource(resource, true);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //for the usual loan period from now
+    public void checkOutResource(Resource resource, String studentId) {
+        long now = System.currentTimeMillis();
+        checkOutResource(resource, studentId, now, now + loanPeriod.toMillis());
+    }
+
+    public void checkOutResource(Resource resource, String studentId, LocalDateTime dueAt) {
+        long now = System.currentTimeMillis();
+        long due = dueAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (due <= now) {
+            throw new IllegalArgumentException("Due date must be in the future.");
+        }
+        checkOutResource(resource, studentId, now, due);
+    }
+
+    private void checkOutResource(Resource resource, String studentId, long checkedOutAt, long dueAt) {
+        long started = System.nanoTime();
+        CampusEvents.Checkout event = new CampusEvents.Checkout();
+        event.begin();
+        boolean accepted = false;
+        checkWritable();
+        writeLock.lock();
+        try {
+            String resourceKey = key(resource.getId());
+            Student student = studentsById.get(key(studentId));
+            ResourceStatus status = resource.getStatusCode();
+            if (status == ResourceStatus.ON_HOLD) {
+                Reservation hold = waitlists.hold(resourceKey);
+                if (hold != null && (student == null || !hold.studentId().equalsIgnoreCase(student.getId()))) {
+                    CampusMetrics.CHECKOUTS_REJECTED.increment();
+                    throw new IllegalStateException("Resource is on hold for another student.");
+                }
+            } else if (status != ResourceStatus.AVAILABLE) {
+                CampusMetrics.CHECKOUTS_REJECTED.increment();
+                throw new IllegalStateException("Resource is not available for checkout.");
+            }
+            if (student == null) {
+                CampusMetrics.CHECKOUTS_REJECTED.increment();
+                throw new IllegalArgumentException("Error: Student ID " + studentId + " not found!\n" +
+                    "Only registered students can check out resources.");
+            }
+            waitlists.removeHold(resourceKey);
+            Reservation waiting = waitlists.find(resourceKey, student.getId());
+            if (waiting != null) {
+                waitlists.remove(resourceKey, waiting);
+            }
+            //updates both status and checkedOutBy fields, sharing the student's ID string
+            stats.removeResource(resource);
+            resource.checkOut(student.getId(), checkedOutAt, dueAt);
+            stats.addResource(resource);
+            indexLoan(resource);
+            if (ledger != null) {
+                ledger.append(CheckoutLedger.Kind.CHECKOUT, checkedOutAt, resource.getId(), student.getId(), dueAt);
+            }
+            publishResource(resource, false);
+            CampusMetrics.CHECKOUTS.increment();
+            accepted = true;
+        } finally {
+            writeLock.unlock();
+            CampusMetrics.CHECKOUT.recordSince(started);
+            if (event.shouldCommit()) {
+                event.resource = resource.getId();
+                event.student = studentId;
+                event.accepted = accepted;
+                event.commit();
+            }
+        }
+    }
+
+    //the finished loan, with when it was returned
+    public Loan returnResource(Resource resource) {
+        checkWritable();
+        writeLock.lock();
+        try {
+            if (resource.getStatusCode() != ResourceStatus.CHECKED_OUT) {
+                throw new IllegalStateException("Resource is not checked out.");
+            }
+            Loan loan = resource.getLoan();
+            loans.remove(key(resource.getId()));
+            stats.removeResource(resource);
+            resource.setStatus(ResourceStatus.AVAILABLE);
+            //clear checkedOutBy and the loan times
+            resource.endLoan();
+            CampusMetrics.RETURNS.increment();
+            offerToNextInLine(resource);
+            stats.addResource(resource);
+            publishResource(resource, false);
+            long returnedAt = System.currentTimeMillis();
+            if (ledger != null) {
+                ledger.append(CheckoutLedger.Kind.RETURN, returnedAt, loan.resourceId(), loan.studentId(), loan.dueAt());
+            }
+            return new Loan(loan.resourceId(), loan.studentId(), loan.checkedOutAt(), loan.dueAt(), returnedAt);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //loans and overdue items
+
+    public Duration getLoanPeriod() { return loanPeriod; }
+
+    //used for checkouts without a due date, loans already out keep theirs
+    public void setLoanPeriod(Duration loanPeriod) {
+        if (loanPeriod.isNegative() || loanPeriod.isZero()) {
+            throw new IllegalArgumentException("Loan period must be positive.");
+        }
+        this.loanPeriod = loanPeriod;
+    }
+
+    public boolean isOverdue(Resource resource) {
+        readLock.lock();
+        try {
+            return loans.isOverdue(key(resource.getId()));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    //these answer from the overdue groups, without looking at resources still on time
+
+    public List<Resource> getOverdueResources() {
+        readLock.lock();
+        try {
+            return loans.overdue();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public List<Resource> getOverdueResources(String studentId) {
+        readLock.lock();
+        try {
+            return loans.overdueFor(key(studentId));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public List<Resource> getOverdueResourcesOfType(String type) {
+        readLock.lock();
+        try {
+            int typeId = StringDictionary.RESOURCE_TYPES.find(type);
+            return typeId == StringDictionary.NONE ? List.of() : loans.overdueOfType(typeId);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public int getOverdueCount() {
+        readLock.lock();
+        try {
+            return loans.getOverdueCount();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    //checkout history, read from the ledger files rather than memory. empty without a ledger
+
+    public List<CheckoutLedger.Entry> getResourceHistory(String resourceId) {
+        return ledger == null ? List.of() : ledger.historyOf(resourceId);
+    }
+
+    public List<CheckoutLedger.Entry> getBorrowingHistory(String studentId) {
+        return ledger == null ? List.of() : ledger.borrowedBy(studentId);
+    }
+
+    public List<CheckoutLedger.Entry> getCheckoutActivity(LocalDateTime from, LocalDateTime to) {
+        if (ledger == null) {
+            return List.of();
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        return ledger.between(from.atZone(zone).toInstant().toEpochMilli(), to.atZone(zone).toInstant().toEpochMilli());
+    }
+
+    //called with the write lock held after a checkout or a change to a loaned resource
+    private void indexLoan(Resource resource) {
+        loans.add(key(resource.getId()), resource, key(resource.getCheckedOutBy()));
+        armOverdueCheck();
+    }
+
+    //keeps one deadline at the earliest due date. one armed earlier than that is left, it
+    //only finds nothing to flag and arms the next
+    private void armOverdueCheck() {
+        long next = loans.nextDue();
+        if (overdueCheck != null && !overdueCheck.isCancelled() && overdueCheck.getDueMillis() <= next) {
+            return;
+        }
+        if (overdueCheck != null) {
+            overdueCheck.cancel();
+            overdueCheck = null;
+        }
+        if (next != Long.MAX_VALUE) {
+            overdueCheck = DeadlineScheduler.shared().schedule(next, this::flagOverdue);
+        }
+    }
+
+    //runs on the scheduler thread as loans pass their due date
+    private void flagOverdue() {
+        writeLock.lock();
+        try {
+            overdueCheck = null;
+            List<Resource> flagged = loans.markOverdue(System.currentTimeMillis());
+            CampusMetrics.LOANS_OVERDUE.add(flagged.size());
+            armOverdueCheck();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //replication
+
+    //the log every change is written to from now on, started when the first follower connects
+    ReplicationLog replicationLog() {
+        writeLock.lock();
+        try {
+            if (replicationLog == null) {
+                replicationLog = new ReplicationLog(ReplicationLog.DEFAULT_CAPACITY);
+            }
+            return replicationLog;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //everything a follower copies, with the offset of the last change it includes. taken
+    //under the read lock, so no change falls between the two
+    ReplicationLog.Snapshot replicationSnapshot(ReplicationLog log) {
+        readLock.lock();
+        try {
+            List<ReplicationLog.Change> changes = new ArrayList<>();
+            for (Student student : students) {
+                if (studentsById.get(key(student.getId())) == student) {
+                    changes.add(new ReplicationLog.Change(0, ReplicationLog.STUDENT, student.getId(), ReplicationLog.serialize(student)));
+                }
+            }
+            for (Classroom room : classrooms) {
+                if (classroomsByNumber.get(key(room.getRoomNumber())) == room) {
+                    changes.add(new ReplicationLog.Change(0, ReplicationLog.ROOM, room.getRoomNumber(),
+                        ReplicationLog.room(room, room.peekBookingTable())));
+                }
+            }
+            for (Resource resource : resources) {
+                if (resourcesById.get(key(resource.getId())) == resource) {
+                    changes.add(new ReplicationLog.Change(0, ReplicationLog.RESOURCE, resource.getId(), ReplicationLog.serialize(resource)));
+                }
+            }
+            return new ReplicationLog.Snapshot(log.getLogId(), log.getLastOffset(), changes);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    //these log a change made under the write lock, when there is a log. enrollments and
+    //reservations stay with the leader
+
+    private void publishStudent(Student student, boolean removed) {
+        ReplicationLog log = replicationLog;
+        if (log != null) {
+            log.append(ReplicationLog.STUDENT, student.getId(), removed ? null : ReplicationLog.serialize(student));
+        }
+    }
+
+    private void publishResource(Resource resource, boolean removed) {
+        ReplicationLog log = replicationLog;
+        if (log != null) {
+            log.append(ReplicationLog.RESOURCE, resource.getId(), removed ? null : ReplicationLog.serialize(resource));
+        }
+    }
+
+    //a room shadowed by an earlier one with the same number is not replicated, a follower
+    //finds rooms by number
+    private void publishRoom(Classroom room) {
+        ReplicationLog log = replicationLog;
+        if (log != null && classroomsByNumber.get(key(room.getRoomNumber())) == room) {
+            log.append(ReplicationLog.ROOM, room.getRoomNumber(), ReplicationLog.room(room, room.peekBookingTable()));
+        }
+    }
+
+    private void publishBookingAdded(Booking booking) {
+        ReplicationLog log = replicationLog;
+        Classroom room = booking.getClassroom();
+        if (log != null && classroomsByNumber.get(key(room.getRoomNumber())) == room) {
+            String course = booking.getCourse();
+            log.append(ReplicationLog.BOOKING_ADDED, room.getRoomNumber(), ReplicationLog.bookingAdded(
+                course == null ? "" : course, booking.getStartMinutes(), booking.getEndMinutes()));
+        }
+    }
+
+    private void publishBookingRemoved(Classroom room, long start) {
+        ReplicationLog log = replicationLog;
+        if (log != null && classroomsByNumber.get(key(room.getRoomNumber())) == room) {
+            log.append(ReplicationLog.BOOKING_REMOVED, room.getRoomNumber(), ReplicationLog.bookingRemoved(start));
+        }
+    }
+
+    //a follower's copy replaced by the leader's snapshot
+    void installSnapshot(List<ReplicationLog.Change> changes) throws IOException {
+        List<Student> newStudents = new ArrayList<>();
+        List<Classroom> newClassrooms = new ArrayList<>();
+        List<Resource> newResources = new ArrayList<>();
+        for (ReplicationLog.Change change : changes) {
+            switch (change.kind()) {
+                case ReplicationLog.STUDENT -> newStudents.add((Student) ReplicationLog.deserialize(change.data()));
+                case ReplicationLog.ROOM -> newClassrooms.add(readRoom(change.key(), change.data()));
+                case ReplicationLog.RESOURCE -> newResources.add((Resource) ReplicationLog.deserialize(change.data()));
+                default -> throw new IOException("Unexpected change in snapshot: " + change.kind());
+            }
+        }
+        writeLock.lock();
+        try {
+            for (String resourceKey : resourcesById.keySet()) {
+                loans.remove(resourceKey);
+            }
+            students = newStudents;
+            classrooms = newClassrooms;
+            resources = newResources;
+            rebuildIndexes();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //a change from the leader applied to a follower's copy, without the checks the leader
+    //already made
+    void applyChange(ReplicationLog.Change change) throws IOException {
+        Object decoded = null;
+        if ((change.kind() == ReplicationLog.STUDENT || change.kind() == ReplicationLog.RESOURCE) && change.data() != null) {
+            decoded = ReplicationLog.deserialize(change.data());
+        }
+        writeLock.lock();
+        try {
+            switch (change.kind()) {
+                case ReplicationLog.STUDENT -> replaceStudent(change.key(), (Student) decoded);
+                case ReplicationLog.RESOURCE -> replaceResource(change.key(), (Resource) decoded);
+                case ReplicationLog.ROOM -> replaceRoom(readRoom(change.key(), change.data()));
+                case ReplicationLog.BOOKING_ADDED, ReplicationLog.BOOKING_REMOVED -> applyBookingChange(change);
+                default -> throw new IOException("Unknown change: " + change.kind());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //null removes the student
+    private void replaceStudent(String id, Student student) {
+        Student old = student == null ? studentsById.remove(key(id)) : studentsById.put(key(id), student);
+        if (old != null) {
+            stats.removeStudent(old);
+            int at = students.indexOf(old);
+            if (student != null) {
+                students.set(at, student);
+            } else {
+                students.remove(at);
+            }
+        } else if (student != null) {
+            students.add(student);
+        }
+        if (student != null) {
+            stats.addStudent(student);
+        }
+    }
+
+    //null removes the resource
+    private void replaceResource(String id, Resource resource) {
+        String resourceKey = key(id);
+        Resource old = resource == null ? resourcesById.remove(resourceKey) : resourcesById.put(resourceKey, resource);
+        if (old != null) {
+            stats.removeResource(old);
+            loans.remove(resourceKey);
+            int at = resources.indexOf(old);
+            if (resource != null) {
+                resources.set(at, resource);
+            } else {
+                resources.remove(at);
+            }
+        } else if (resource != null) {
+            resources.add(resource);
+        }
+        if (resource != null) {
+            stats.addResource(resource);
+            if (resource.getStatusCode() == ResourceStatus.CHECKED_OUT && resource.getCheckedOutBy() != null) {
+                indexLoan(resource);
+            }
+        }
+    }
+
+    private void replaceRoom(Classroom room) {
+        Classroom old = classroomsByNumber.put(key(room.getRoomNumber()), room);
+        if (old != null) {
+            courseIndex.removeRoom(old);
+            bookingCount -= old.getBookingCount();
+            classrooms.set(classrooms.indexOf(old), room);
+        } else {
+            classrooms.add(room);
+        }
+        BookingTable table = room.getBookingTable();
+        bookingCount += table.size();
+        courseIndex.addRoom(room, table);
+        roomChanged(room);
+    }
+
+    private void applyBookingChange(ReplicationLog.Change change) throws IOException {
+        Classroom room = classroomsByNumber.get(key(change.key()));
+        if (room == null) {
+            throw new IOException("Change for unknown room " + change.key());
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(change.data()));
+        if (change.kind() == ReplicationLog.BOOKING_ADDED) {
+            String course = in.readUTF();
+            long start = in.readLong();
+            long end = in.readLong();
+            Booking booking = new Booking(room, course.isEmpty() ? null : course,
+                BookingTable.fromMinutes(start), BookingTable.fromMinutes(end));
+            room.addBooking(booking);
+            indexBooking(booking);
+            bookingCount++;
+        } else {
+            Booking booking = room.findBookingAt(BookingTable.fromMinutes(in.readLong()));
+            if (booking == null) {
+                return;
+            }
+            unindexBooking(booking);
+            room.removeBooking(booking);
+            bookingCount--;
+        }
+        roomChanged(room);
+    }
+
+    //a follower keeps every room's bookings in memory
+    private static Classroom readRoom(String roomNumber, byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        Classroom room = new Classroom(roomNumber, in.readUTF(), in.readInt());
+        BookingTable table = room.getBookingTable();
+        for (int i = 0, n = in.readInt(); i < n; i++) {
+            String course = in.readUTF();
+            long start = in.readLong();
+            long end = in.readLong();
+            table.add(null, start, end, course.isEmpty() ? StringDictionary.NONE : StringDictionary.COURSES.id(course));
+        }
+        return room;
+    }
+
+    //waitlists and holds
+
+    public Duration getHoldDuration() { return holdDuration; }
+
+    //how long a returned resource is kept for the next student in line, holds already
+    //running keep the time they were given
+    public void setHoldDuration(Duration holdDuration) {
+        if (holdDuration.isNegative() || holdDuration.isZero()) {
+            throw new IllegalArgumentException("Hold duration must be positive.");
+        }
+        this.holdDuration = holdDuration;
+    }
+
+    //puts the student in line for a resource that is out, held or in maintenance
+    public Reservation reserveResource(Resource resource, String studentId, int priority) {
+        checkWritable();
+        writeLock.lock();
+        try {
+            Student student = studentsById.get(key(studentId));
+            if (student == null) {
+                throw new IllegalArgumentException("Error: Student ID " + studentId + " not found!\n" +
+                    "Only registered students can reserve resources.");
+            }
+            String resourceKey = key(resource.getId());
+            if (resource.getStatusCode() == ResourceStatus.AVAILABLE) {
+                throw new IllegalStateException("Resource is available, check it out instead.");
+            }
+            Reservation hold = waitlists.hold(resourceKey);
+            if (student.getId().equals(resource.getCheckedOutBy())
+                    || (hold != null && hold.studentId().equals(student.getId()))
+                    || waitlists.find(resourceKey, student.getId()) != null) {
+                throw new IllegalStateException("Student is already waiting for or holding this resource.");
+            }
+            Reservation reservation = new Reservation(resource.getId(), student.getId(), priority,
+                System.currentTimeMillis(), 0);
+            waitlists.add(resourceKey, reservation);
+            CampusMetrics.RESERVATIONS.increment();
+            return reservation;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //takes the student out of line, or gives up their hold so the next student gets it
+    public void cancelReservation(Resource resource, String studentId) {
+        checkWritable();
+        writeLock.lock();
+        try {
+            String resourceKey = key(resource.getId());
+            Reservation hold = waitlists.hold(resourceKey);
+            if (hold != null && hold.studentId().equalsIgnoreCase(studentId.trim())) {
+                waitlists.removeHold(resourceKey);
+                stats.removeResource(resource);
+                offerToNextInLine(resource);
+                stats.addResource(resource);
+                publishResource(resource, false);
+                return;
+            }
+            Reservation waiting = waitlists.find(resourceKey, studentId.trim());
+            if (waiting == null) {
+                throw new IllegalArgumentException("Student " + studentId + " has no reservation for this resource.");
+            }
+            waitlists.remove(resourceKey, waiting);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //in the order they will be offered the resource
+    public List<Reservation> getWaitlist(Resource resource) {
+        readLock.lock();
+        try {
+            return waitlists.waiting(key(resource.getId()));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    //the hold keeping a returned resource for a student, or null
+    public Reservation getHold(Resource resource) {
+        readLock.lock();
+        try {
+            return waitlists.hold(key(resource.getId()));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    //called with the write lock held once a resource is free: holds it for the first
+    //student in line who is still registered, or makes it available
+    private void offerToNextInLine(Resource resource) {
+        String resourceKey = key(resource.getId());
+        Reservation next;
+        do {
+            next = waitlists.poll(resourceKey);
+        } while (next != null && !studentsById.containsKey(key(next.studentId())));
+        if (next == null) {
+            resource.setStatus(ResourceStatus.AVAILABLE);
+            return;
+        }
+        placeHold(resourceKey, resource, next.toHold(System.currentTimeMillis() + holdDuration.toMillis()));
+    }
+
+    private void placeHold(String resourceKey, Resource resource, Reservation hold) {
+        resource.setStatus(ResourceStatus.ON_HOLD);
+        DeadlineScheduler.Deadline expiry = DeadlineScheduler.shared()
+            .schedule(hold.holdUntil(), () -> changeExecutor.execute(() -> expireHold(resource, hold)));
+        waitlists.putHold(resourceKey, hold, expiry);
+    }
+
+    //runs on the change executor when a hold's time is up, the resource changes status
+    private void expireHold(Resource resource, Reservation hold) {
+        writeLock.lock();
+        try {
+            String resourceKey = key(resource.getId());
+            //collected, cancelled or replaced in the meantime
+            if (waitlists.hold(resourceKey) != hold || resourcesById.get(resourceKey) != resource) {
+                return;
+            }
+            waitlists.removeHold(resourceKey);
+            CampusMetrics.HOLDS_EXPIRED.increment();
+            stats.removeResource(resource);
+            offerToNextInLine(resource);
+            stats.addResource(resource);
+            publishResource(resource, false);
+        } finally {
+            writeLock.unlock();
+        }
+        tellListeners(new ExternalChanges(0, 0, 1, List.of()));
+    }
+
+    //puts saved reservations back, holds that ran out while the application was closed
+    //expire straight away on the change executor
+    private void loadReservations(List<Reservation> saved) {
+        writeLock.lock();
+        try {
+            for (Reservation reservation : saved) {
+                String resourceKey = key(reservation.resourceId());
+                Resource resource = resourcesById.get(resourceKey);
+                if (resource == null) {
+                    continue;
+                }
+                if (reservation.isHold()) {
+                    stats.removeResource(resource);
+                    placeHold(resourceKey, resource, reservation);
+                    stats.addResource(resource);
+                } else {
+                    waitlists.add(resourceKey, reservation);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package smart;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+//several campuses or buildings kept apart, each a CampusService over a data directory of
+//its own under one root, e.g. data/campuses/north/ and data/campuses/south/, so each has
+//its own files, indexes, locks and saves and one campus growing does not slow the others.
+//a campus is loaded the first time something asks for it. questions about every campus
+//go to each one at once, on virtual threads, and the answers are merged in campus name
+//order. changes go to the campus that owns the record, through campus(name). each campus's
+//metrics gauges are named campus.<name>.<gauge>, e.g. campus.north.bookings
+public class CampusShards implements AutoCloseable {
+    //a campus is a directory name, nothing that could leave the root
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]+");
+
+    //an answer and the campus it came from, which is the one to change it through
+    public record Hit<T>(String campus, T value) {}
+
+    private final File root;
+    private final Map<String, CompletableFuture<CampusService>> loaded = new ConcurrentHashMap<>();
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+    public CampusShards(File root) {
+        this.root = root;
+        CampusMetrics.registerGauge("campuses.loaded", loaded::size);
+    }
+
+    //data/campuses/
+    public static File defaultRoot() {
+        return new File(SaveData.dataDir(), "campuses");
+    }
+
+    //every campus directory under the root, loaded or not
+    public List<String> getCampusNames() {
+        File[] dirs = root.listFiles(file -> file.isDirectory() && NAME.matcher(file.getName()).matches());
+        if (dirs == null) {
+            return List.of();
+        }
+        return Arrays.stream(dirs).map(File::getName).sorted().toList();
+    }
+
+    public List<String> getLoadedCampusNames() {
+        return loaded.keySet().stream().sorted().toList();
+    }
+
+    //the campus, loaded now if it is not yet. callers asking while it loads wait for the
+    //same load
+    public CampusService campus(String name) {
+        if (name == null || !NAME.matcher(name).matches() || !new File(root, name).isDirectory()) {
+            throw new IllegalArgumentException("No campus named " + name + " in " + root + ".");
+        }
+        CompletableFuture<CampusService> load = loaded.computeIfAbsent(name,
+            _ -> CompletableFuture.supplyAsync(() -> CampusService.load(new File(root, name), "campus." + name + "."), workers));
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            //a failed load is tried again next time
+            loaded.remove(name, load);
+            throw unwrap(e);
+        }
+    }
+
+    //exact ID lookup in every campus, IDs are only unique within a campus
+    public List<Hit<Student>> findStudent(String id) {
+        return fanOut(campus -> single(campus.findStudent(id)));
+    }
+
+    //each campus's first student whose ID or name matches, as CampusService.searchForStudent
+    public List<Hit<Student>> searchStudents(String term) {
+        return fanOut(campus -> single(campus.searchForStudent(term)));
+    }
+
+    public List<Hit<Classroom>> findFreeClassrooms(LocalDateTime start, LocalDateTime end, int minCapacity) {
+        return fanOut(campus -> campus.findFreeClassrooms(start, end, minCapacity));
+    }
+
+    //by campus name, loading every campus
+    public Map<String, CampusStats> getStats() {
+        Map<String, CampusStats> stats = new LinkedHashMap<>();
+        for (Hit<CampusStats> hit : fanOut(campus -> List.of(campus.getStats()))) {
+            stats.put(hit.campus(), hit.value());
+        }
+        return stats;
+    }
+
+    //saves the campuses loaded so far, each under its own locks
+    public void saveAll() {
+        List<CompletableFuture<Void>> saves = new ArrayList<>();
+        for (String name : getLoadedCampusNames()) {
+            saves.add(CompletableFuture.runAsync(() -> campus(name).saveAllData(), workers));
+        }
+        try {
+            CompletableFuture.allOf(saves.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    //stops the query threads, nothing is saved
+    @Override
+    public void close() {
+        workers.shutdown();
+    }
+
+    private static <T> List<T> single(T value) {
+        return value == null ? List.of() : List.of(value);
+    }
+
+    //asks every campus at once and merges the answers in campus name order
+    private <T> List<Hit<T>> fanOut(Function<CampusService, List<T>> query) {
+        List<String> names = getCampusNames();
+        List<CompletableFuture<List<T>>> answers = new ArrayList<>(names.size());
+        for (String name : names) {
+            answers.add(CompletableFuture.supplyAsync(() -> query.apply(campus(name)), workers));
+        }
+        List<Hit<T>> merged = new ArrayList<>();
+        try {
+            for (int i = 0; i < names.size(); i++) {
+                for (T value : answers.get(i).join()) {
+                    merged.add(new Hit<>(names.get(i), value));
+                }
+            }
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+        return merged;
+    }
+
+    private static RuntimeException unwrap(CompletionException e) {
+        return e.getCause() instanceof RuntimeException cause ? cause : e;
+    }
+}
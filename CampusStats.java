@@ -0,0 +1,9 @@
+package smart;
+
+import java.util.Map;
+
+//the numbers shown on the dashboard, taken together at one moment
+public record CampusStats(int students, int rooms, int roomsInUse, int resources, int available,
+        int checkedOut, int onHold, int overdue, long bookings,
+        Map<String, Integer> availableByType, Map<String, Integer> studentsByDegree) {
+}
@@ -0,0 +1,24 @@
+package smart;
+
+import java.util.List;
+
+//thrown when more students are enrolled in a course than the room seats, carries the
+//free rooms that would fit them, smallest first
+public class CapacityException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+    private final transient Classroom room;
+    private final int headcount;
+    private final transient List<Classroom> alternatives;
+
+    public CapacityException(Classroom room, String course, int headcount, List<Classroom> alternatives) {
+        super(course + " has " + headcount + " students enrolled but " + room.getRoomNumber() +
+            " only seats " + room.getCapacity());
+        this.room = room;
+        this.headcount = headcount;
+        this.alternatives = alternatives;
+    }
+
+    public Classroom getRoom() { return room; }
+    public int getHeadcount() { return headcount; }
+    public List<Classroom> getAlternatives() { return alternatives; }
+}
@@ -0,0 +1,367 @@
+package smart;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+//every checkout and return, kept in append-only binary files with one partition per month
+//(UTC), e.g. ledger/2026-10.ledger. entries are fixed size records:
+//
+//  long at, long dueAt, int resource, int student, int kind, int reserved
+//
+//resource and student are numbers from ids.dat, where each ID is written once the first
+//time it is seen. only the ID table and, per partition, a bitset of the resources and
+//students it mentions are kept in memory, so a history query maps and scans just the
+//partitions that can hold an answer, and a date range query just the months it covers.
+//nothing written is ever changed.
+//
+//instances sharing the data directory append to the same files. an append holds the
+//directory's DataDirLock and first reads what the others appended to ids.dat and to the
+//partition it writes to, refresh reads everything the others appended
+final class CheckoutLedger {
+    public enum Kind { CHECKOUT, RETURN }
+
+    public record Entry(Kind kind, long at, String resourceId, String studentId, long dueAt) {}
+
+    private static final int RECORD_BYTES = 32;
+    private static final String SUFFIX = ".ledger";
+
+    private static final class Partition {
+        final File file;
+        final BitSet resources = new BitSet();
+        final BitSet students = new BitSet();
+        //records fully written, queries never read past this
+        volatile long records;
+        FileChannel channel;
+
+        Partition(File file) {
+            this.file = file;
+        }
+    }
+
+    private final File dir;
+    private final TreeMap<YearMonth, Partition> partitions = new TreeMap<>();
+    private final Map<String, Integer> refs = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    //ids.dat, read up to idsLength
+    private final FileChannel idsChannel;
+    private long idsLength;
+    private final DataDirLock lock;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+    //read by the gauges without the lock
+    private volatile long entryCount;
+
+    private CheckoutLedger(File dir) throws IOException {
+        this.dir = dir;
+        this.lock = DataDirLock.of(dir);
+        idsChannel = FileChannel.open(new File(dir, "ids.dat").toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try (DataDirLock.Held _ = lock.shared()) {
+            readAppended();
+        } catch (IOException | RuntimeException e) {
+            idsChannel.close();
+            throw e;
+        }
+    }
+
+    //the ledger in dir, created if missing. null if it cannot be opened, the application
+    //runs without history then
+    public static CheckoutLedger open(File dir) {
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);
+            }
+            return new CheckoutLedger(dir);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error opening checkout ledger in " + dir + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    //takes in what other instances appended since, called after loading the other data files
+    public synchronized void refresh() {
+        try (DataDirLock.Held _ = lock.shared()) {
+            readAppended();
+        } catch (IOException e) {
+            System.err.println("Error reading checkout ledger: " + e.getMessage());
+        }
+    }
+
+    //the IDs and records appended since last read, and any new partitions
+    private void readAppended() throws IOException {
+        readIds();
+        File[] files = dir.listFiles((_, name) -> name.endsWith(SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                YearMonth month = YearMonth.parse(name.substring(0, name.length() - SUFFIX.length()));
+                indexPartition(partitions.computeIfAbsent(month, _ -> new Partition(file)));
+            }
+        }
+    }
+
+    //the IDs past idsLength, a torn ID at the end, from a crash mid write, is dropped
+    private void readIds() throws IOException {
+        long size = idsChannel.size();
+        if (size <= idsLength) {
+            return;
+        }
+        ByteBuffer bytes = ByteBuffer.allocate((int) (size - idsLength));
+        while (bytes.hasRemaining() && idsChannel.read(bytes, idsLength + bytes.position()) >= 0) {
+            //until the buffer is full
+        }
+        long good = idsLength;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.array(), 0, bytes.position()))) {
+            while (true) {
+                String id = in.readUTF();
+                refs.put(id, ids.size());
+                ids.add(id);
+                good += 2 + utfLength(id);
+            }
+        } catch (EOFException e) {
+            //end of the table
+        }
+        if (good < size) {
+            idsChannel.truncate(good);
+        }
+        idsLength = good;
+    }
+
+    private static int utfLength(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            length += c >= 0x0001 && c <= 0x007F ? 1 : c > 0x07FF ? 3 : 2;
+        }
+        return length;
+    }
+
+    //one sequential pass over the records past those already in the partition's bitsets, a
+    //torn last record is dropped
+    private void indexPartition(Partition partition) throws IOException {
+        try (FileChannel channel = FileChannel.open(partition.file.toPath(), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long records = size / RECORD_BYTES;
+            if (records * RECORD_BYTES != size) {
+                channel.truncate(records * RECORD_BYTES);
+            }
+            long known = partition.records;
+            if (records > known) {
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, known * RECORD_BYTES,
+                    (records - known) * RECORD_BYTES);
+                for (long i = 0; i < records - known; i++) {
+                    int offset = (int) (i * RECORD_BYTES);
+                    partition.resources.set(map.getInt(offset + 16));
+                    partition.students.set(map.getInt(offset + 20));
+                }
+                partition.records = records;
+                entryCount += records - known;
+            }
+        }
+    }
+
+    public synchronized void append(Kind kind, long at, String resourceId, String studentId, long dueAt) {
+        try (DataDirLock.Held _ = lock.exclusive()) {
+            readIds();
+            int resource = ref(resourceId);
+            int student = ref(studentId == null ? "" : studentId);
+            Partition partition = partitionFor(at);
+            if (partition.channel.size() > partition.records * RECORD_BYTES) {
+                indexPartition(partition);
+            }
+            record.clear();
+            record.putLong(at).putLong(dueAt).putInt(resource).putInt(student).putInt(kind.ordinal()).putInt(0);
+            record.flip();
+            long position = partition.records * RECORD_BYTES;
+            while (record.hasRemaining()) {
+                position += partition.channel.write(record, position);
+            }
+            partition.resources.set(resource);
+            partition.students.set(student);
+            partition.records++;
+            entryCount++;
+            CampusMetrics.LEDGER_APPENDS.increment();
+        } catch (IOException e) {
+            System.err.println("Error writing to checkout ledger: " + e.getMessage());
+        }
+    }
+
+    private int ref(String id) throws IOException {
+        Integer ref = refs.get(id);
+        if (ref == null) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            new DataOutputStream(bytes).writeUTF(id);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                idsLength += idsChannel.write(buffer, idsLength);
+            }
+            ref = ids.size();
+            refs.put(id, ref);
+            ids.add(id);
+        }
+        return ref;
+    }
+
+    private Partition partitionFor(long at) throws IOException {
+        YearMonth month = YearMonth.from(Instant.ofEpochMilli(at).atOffset(ZoneOffset.UTC));
+        Partition partition = partitions.get(month);
+        if (partition == null) {
+            partition = new Partition(new File(dir, month + SUFFIX));
+            partitions.put(month, partition);
+        }
+        if (partition.channel == null) {
+            partition.channel = FileChannel.open(partition.file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        }
+        return partition;
+    }
+
+    //every checkout and return of the resource, oldest first
+    public List<Entry> historyOf(String resourceId) {
+        Integer ref = lookup(resourceId);
+        return ref == null ? List.of() : scan(select(p -> p.resources.get(ref)), 16, ref, _ -> true);
+    }
+
+    //every checkout by the student, oldest first
+    public List<Entry> borrowedBy(String studentId) {
+        Integer ref = lookup(studentId);
+        if (ref == null) {
+            return List.of();
+        }
+        List<Entry> entries = scan(select(p -> p.students.get(ref)), 20, ref, _ -> true);
+        entries.removeIf(entry -> entry.kind() != Kind.CHECKOUT);
+        return entries;
+    }
+
+    //everything from from up to but not including to, oldest first
+    public List<Entry> between(long from, long to) {
+        if (to <= from) {
+            return List.of();
+        }
+        YearMonth first = YearMonth.from(Instant.ofEpochMilli(from).atOffset(ZoneOffset.UTC));
+        YearMonth last = YearMonth.from(Instant.ofEpochMilli(to - 1).atOffset(ZoneOffset.UTC));
+        List<Snapshot> selected = new ArrayList<>();
+        synchronized (this) {
+            for (Partition partition : partitions.subMap(first, true, last, true).values()) {
+                selected.add(new Snapshot(partition.file, partition.records));
+            }
+        }
+        return scan(selected, -1, 0, at -> at >= from && at < to);
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    public long getEntryBytes() {
+        return entryCount * RECORD_BYTES;
+    }
+
+    public synchronized int getPartitionCount() {
+        return partitions.size();
+    }
+
+    //written records reach the disk, called when the rest of the data is saved
+    public synchronized void force() {
+        try {
+            for (Partition partition : partitions.values()) {
+                if (partition.channel != null) {
+                    partition.channel.force(false);
+                }
+            }
+            idsChannel.force(false);
+        } catch (IOException e) {
+            System.err.println("Error flushing checkout ledger: " + e.getMessage());
+        }
+    }
+
+    public synchronized void close() {
+        force();
+        try {
+            for (Partition partition : partitions.values()) {
+                if (partition.channel != null) {
+                    partition.channel.close();
+                    partition.channel = null;
+                }
+            }
+            idsChannel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing checkout ledger: " + e.getMessage());
+        }
+    }
+
+    private synchronized Integer lookup(String id) {
+        return id == null ? null : refs.get(id.trim());
+    }
+
+    private record Snapshot(File file, long records) {}
+
+    //the partitions to scan and how far, taken under the lock so the scan itself is not
+    private synchronized List<Snapshot> select(Predicate<Partition> filter) {
+        List<Snapshot> selected = new ArrayList<>();
+        for (Partition partition : partitions.values()) {
+            if (partition.records > 0 && filter.test(partition)) {
+                selected.add(new Snapshot(partition.file, partition.records));
+            }
+        }
+        return selected;
+    }
+
+    //maps each partition and keeps the records whose int at refOffset is ref (any record
+    //with a negative offset) and whose time passes the test
+    private List<Entry> scan(List<Snapshot> snapshots, int refOffset, int ref, LongPredicate time) {
+        List<Entry> entries = new ArrayList<>();
+        for (Snapshot snapshot : snapshots) {
+            if (snapshot.records == 0) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(snapshot.file.toPath(), StandardOpenOption.READ)) {
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, snapshot.records * RECORD_BYTES);
+                for (long i = 0; i < snapshot.records; i++) {
+                    int offset = (int) (i * RECORD_BYTES);
+                    if (refOffset >= 0 && map.getInt(offset + refOffset) != ref) {
+                        continue;
+                    }
+                    long at = map.getLong(offset);
+                    if (time.test(at)) {
+                        entries.add(entry(map, offset, at));
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading checkout ledger " + snapshot.file + ": " + e.getMessage());
+            }
+        }
+        return entries;
+    }
+
+    private Entry entry(MappedByteBuffer map, int offset, long at) {
+        String student;
+        String resource;
+        synchronized (this) {
+            resource = ids.get(map.getInt(offset + 16));
+            student = ids.get(map.getInt(offset + 20));
+        }
+        return new Entry(Kind.values()[map.getInt(offset + 24)], at, resource,
+            student.isEmpty() ? null : student, map.getLong(offset + 8));
+    }
+}
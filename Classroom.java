@@ -1,41 +1,253 @@
 package smart;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 
 public class Classroom implements Serializable {
 	private static final long serialVersionUID = 1L;
+    //the .dat files keep the original layout, the type as text
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("roomNumber", String.class),
+        new ObjectStreamField("type", String.class),
+        new ObjectStreamField("capacity", int.class),
+        new ObjectStreamField("bookings", List.class)
+    };
     private String roomNumber;
-    private String type;
+    //id in StringDictionary.ROOM_TYPES
+    private int type;
     private int capacity;
-    private List<Booking> bookings;
+    //null while the bookings are only in the room's segment file, see BookingSegments
+    private transient volatile BookingTable bookings;
+    //bumped whenever a booking is added, removed or changed
+    private transient int version;
+    //where the bookings are paged from, null keeps them in memory and in classrooms.dat
+    private transient BookingSegments segments;
+    //the version last written to the segment, -1 when it never was
+    private transient int savedVersion = -1;
+    private transient volatile long lastUsed;
+    //views handed out before the bookings were evicted, bound again when they are read back
+    private transient List<Booking> parked = List.of();
+    //the booking count while the bookings are not in memory, -1 until the segment is read.
+    //it follows the bookings the service has indexed, a segment another instance saved
+    //since only counts once reload takes it in
+    private transient int evictedCount;
 
     public Classroom(String roomNumber, String type, int capacity) {
         this.roomNumber = roomNumber;
-        this.type = type;
+        this.type = StringDictionary.ROOM_TYPES.id(type);
         this.capacity = capacity;
-        this.bookings = new ArrayList<>();
+        this.bookings = new BookingTable();
     }
 
     
     public void addBooking(Booking booking) {
-        bookings.add(booking);
+        if (booking.getClassroom() != this) {
+            throw new IllegalArgumentException("Booking belongs to another classroom.");
+        }
+        booking.attach(getBookingTable());
+        version++;
     }
 
     //overloaded method for convenience
     public void addBooking(String course, LocalDateTime startTime, LocalDateTime endTime) {
-        bookings.add(new Booking(this, course, startTime, endTime));
+        addBooking(new Booking(this, course, startTime, endTime));
     }
 
     public void removeBooking(Booking booking) {
-        bookings.remove(booking);
+        BookingTable table = getBookingTable();
+        int row = booking.getClassroom() == this ? booking.getRow() : -1;
+        if (row >= 0) {
+            booking.detach(table);
+            table.remove(row);
+            version++;
+        }
+    }
+    
+    //bookings overlapping [from, to), used so views only ask for the range on screen
+    public List<Booking> getBookingsBetween(LocalDateTime from, LocalDateTime to) {
+        return getBookingTable().viewsBetween(this, BookingTable.toMinutes(from), BookingTable.toMinutes(to));
+    }
+
+    //the first booking overlapping [start, end) other than ignore, or null
+    public Booking findConflict(LocalDateTime start, LocalDateTime end, Booking ignore) {
+        int ignoreRow = ignore != null && ignore.getClassroom() == this ? ignore.getRow() : -1;
+        BookingTable table = getBookingTable();
+        int row = table.findOverlap(BookingTable.toMinutes(start), BookingTable.toMinutes(end), ignoreRow);
+        return row < 0 ? null : table.view(this, row);
+    }
+
+    //the booking starting at exactly start, to the minute, or null
+    public Booking findBookingAt(LocalDateTime start) {
+        BookingTable table = getBookingTable();
+        int row = table.findStart(BookingTable.toMinutes(start));
+        return row < 0 ? null : table.view(this, row);
+    }
+
+    public int getBookingCount() {
+        BookingTable table = bookings;
+        if (table != null) {
+            return table.size();
+        }
+        return evictedCount >= 0 ? evictedCount : peekBookingTable().size();
+    }
+
+    //the bookings, read from the segment file first if they are not in memory
+    BookingTable getBookingTable() {
+        BookingTable table = bookings;
+        if (table == null) {
+            table = pageIn();
+        }
+        if (segments != null) {
+            lastUsed = segments.tick();
+        }
+        return table;
+    }
+
+    //the bookings for reading only, without keeping them in memory if they were not already,
+    //so a scan over every room does not push out the rooms in use
+    BookingTable peekBookingTable() {
+        BookingTable table = bookings;
+        if (table != null) {
+            return table;
+        }
+        table = segments.read(this);
+        if (evictedCount < 0) {
+            evictedCount = table.size();
+        }
+        return table;
+    }
+
+    private synchronized BookingTable pageIn() {
+        BookingTable table = bookings;
+        if (table != null) {
+            return table;
+        }
+        if (segments == null) {
+            throw new IllegalStateException("The bookings of " + roomNumber + " are not loaded.");
+        }
+        table = segments.read(this);
+        for (Booking view : parked) {
+            int row = table.findStart(view.getStartMinutes());
+            if (row >= 0) {
+                view.reattach(table, row);
+            } else {
+                view.unpark();
+            }
+        }
+        parked = List.of();
+        bookings = table;
+        segments.paged(this);
+        return table;
+    }
+
+    //bookings from now on live in segment files. rooms read from an older classrooms.dat
+    //still hold their bookings and count as unsaved until their segment is written
+    void useSegments(BookingSegments segments) {
+        this.segments = segments;
+        if (bookings != null) {
+            segments.paged(this);
+        }
+    }
+
+    boolean isResident() { return bookings != null; }
+    boolean hasUnsavedChanges() { return segments != null && bookings != null && version != savedVersion; }
+    long getLastUsed() { return lastUsed; }
+
+    //writes the segment if the bookings changed since it was last written
+    synchronized void saveSegment() throws IOException {
+        BookingTable table = bookings;
+        if (segments != null && table != null && version != savedVersion) {
+            segments.write(this, table);
+            savedVersion = version;
+        }
+    }
+
+    //drops the bookings from memory, saving them first. only with no one else reading them,
+    //CampusService calls it under its write lock
+    synchronized void evict() throws IOException {
+        BookingTable table = bookings;
+        if (segments == null || table == null) {
+            return;
+        }
+        saveSegment();
+        List<Booking> views = table.boundViews();
+        for (Booking view : views) {
+            view.park(table);
+        }
+        parked = views;
+        evictedCount = table.size();
+        bookings = null;
+        segments.evicted(this);
+    }
+
+    //another instance saved the room's segment: drops the bookings held here, which have no
+    //unsaved changes, and returns the segment as now saved. views handed out are bound
+    //again to the booking with the same start when the bookings are next read in, and are
+    //left detached if there is none
+    synchronized BookingTable reload() {
+        BookingTable table = bookings;
+        if (table != null) {
+            List<Booking> views = table.boundViews();
+            for (Booking view : views) {
+                view.park(table);
+            }
+            parked = views;
+            bookings = null;
+            segments.evicted(this);
+        }
+        BookingTable saved = segments.read(this);
+        evictedCount = saved.size();
+        version++;
+        savedVersion = version;
+        return saved;
+    }
+    
+    void bookingChanged() {
+        version++;
     }
 
     //getters
     public String getRoomNumber() { return roomNumber; }
-    public String getType() { return type; }
+    public String getType() { return StringDictionary.ROOM_TYPES.get(type); }
+    public int getTypeId() { return type; }
     public int getCapacity() { return capacity; }
-    public List<Booking> getBookings() { return bookings; }
+    //a new list of the bookings in the order they were added, changing it changes nothing
+    public List<Booking> getBookings() { return getBookingTable().views(this); }
+    public int getVersion() { return version; }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("roomNumber", roomNumber);
+        fields.put("type", getType());
+        fields.put("capacity", capacity);
+        //rooms paged from segment files leave their bookings out
+        fields.put("bookings", segments == null ? getBookings() : null);
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        roomNumber = (String) fields.get("roomNumber", null);
+        type = StringDictionary.ROOM_TYPES.id((String) fields.get("type", null));
+        capacity = fields.get("capacity", 0);
+        parked = List.of();
+        savedVersion = -1;
+        List<Booking> saved = (List<Booking>) fields.get("bookings", null);
+        if (saved != null) {
+            bookings = new BookingTable();
+            for (Booking booking : saved) {
+                booking.attach(bookings);
+            }
+        } else {
+            //in the room's segment file
+            savedVersion = version;
+            evictedCount = -1;
+        }
+    }
 }
@@ -0,0 +1,193 @@
+package smart;
+
+import java.util.Arrays;
+import java.util.List;
+
+//every booking on campus by course, so a course can be checked against its bookings in
+//all rooms without walking every room's table. each course keeps a sorted interval set,
+//start << 32 | length in epoch minutes in one long array, so a plain sort orders them by
+//start, with the room of each interval in a parallel array. a lookup is a binary search,
+//adding or removing moves only that course's entries.
+//
+//bookings made before courses were checked across rooms may already overlap each other,
+//so a lookup walks back from the binary search as far as the course's longest booking
+//could reach instead of trusting the one interval before it. only a container, the rules
+//live in CampusService which also guards it
+final class CourseIndex {
+    private static final class Intervals {
+        long[] packed = new long[4];
+        Classroom[] rooms = new Classroom[4];
+        int size;
+        //never shrinks, a removed long booking only makes lookups walk a little further
+        long longest;
+    }
+
+    //by StringDictionary.COURSES id
+    private Intervals[] courses = new Intervals[64];
+
+    private static long pack(long start, long end) {
+        return start << 32 | Math.max(0, end - start) & 0xFFFFFFFFL;
+    }
+
+    private static long startOf(long packed) {
+        return packed >> 32;
+    }
+
+    private static long endOf(long packed) {
+        return startOf(packed) + (packed & 0xFFFFFFFFL);
+    }
+
+    private Intervals intervals(int course) {
+        return course >= 0 && course < courses.length ? courses[course] : null;
+    }
+
+    //every live row of the room's table
+    void addRoom(Classroom room, BookingTable table) {
+        for (int row = 0, n = table.rowCount(); row < n; row++) {
+            //removed rows start at Long.MAX_VALUE
+            if (table.start(row) != Long.MAX_VALUE) {
+                add(room, table.course(row), table.start(row), table.end(row));
+            }
+        }
+    }
+
+    void add(Classroom room, int course, long start, long end) {
+        if (course < 0) {
+            return;
+        }
+        if (course >= courses.length) {
+            courses = Arrays.copyOf(courses, Math.max(course + 1, courses.length * 2));
+        }
+        Intervals set = courses[course];
+        if (set == null) {
+            set = new Intervals();
+            courses[course] = set;
+        }
+        long packed = pack(start, end);
+        int at = insertionPoint(set, packed);
+        if (set.size == set.packed.length) {
+            set.packed = Arrays.copyOf(set.packed, set.size * 2);
+            set.rooms = Arrays.copyOf(set.rooms, set.size * 2);
+        }
+        System.arraycopy(set.packed, at, set.packed, at + 1, set.size - at);
+        System.arraycopy(set.rooms, at, set.rooms, at + 1, set.size - at);
+        set.packed[at] = packed;
+        set.rooms[at] = room;
+        set.size++;
+        set.longest = Math.max(set.longest, end - start);
+    }
+
+    //false if the room had no such booking for the course
+    boolean remove(Classroom room, int course, long start, long end) {
+        Intervals set = intervals(course);
+        if (set == null) {
+            return false;
+        }
+        long packed = pack(start, end);
+        for (int i = firstAtOrAfter(set, packed); i < set.size && set.packed[i] == packed; i++) {
+            if (set.rooms[i] == room) {
+                System.arraycopy(set.packed, i + 1, set.packed, i, set.size - i - 1);
+                System.arraycopy(set.rooms, i + 1, set.rooms, i, set.size - i - 1);
+                set.size--;
+                set.rooms[set.size] = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //every entry of the room, for when its bookings are no longer known. walks every course
+    void removeRoom(Classroom room) {
+        for (Intervals set : courses) {
+            if (set == null) {
+                continue;
+            }
+            int kept = 0;
+            for (int i = 0; i < set.size; i++) {
+                if (set.rooms[i] != room) {
+                    set.packed[kept] = set.packed[i];
+                    set.rooms[kept] = set.rooms[i];
+                    kept++;
+                }
+            }
+            Arrays.fill(set.rooms, kept, set.size, null);
+            set.size = kept;
+        }
+    }
+
+    //a booking of the course in any room overlapping [start, end), other than the one in
+    //ignoreRoom starting at ignoreStart, or null
+    Booking findOverlap(int course, long start, long end, Classroom ignoreRoom, long ignoreStart) {
+        Intervals set = intervals(course);
+        if (set == null) {
+            return null;
+        }
+        //intervals from here on start at or after end and cannot overlap
+        for (int i = firstAtOrAfter(set, end << 32) - 1; i >= 0; i--) {
+            long other = set.packed[i];
+            long otherStart = startOf(other);
+            if (otherStart + set.longest <= start) {
+                break;
+            }
+            if (start < endOf(other) && end > otherStart
+                    && !(set.rooms[i] == ignoreRoom && otherStart == ignoreStart)) {
+                return set.rooms[i].findBookingAt(BookingTable.fromMinutes(otherStart));
+            }
+        }
+        return null;
+    }
+
+    //adds the course's bookings overlapping [from, to) to into
+    void bookingsBetween(int course, long from, long to, List<Booking> into) {
+        Intervals set = intervals(course);
+        if (set == null) {
+            return;
+        }
+        int last = firstAtOrAfter(set, to << 32);
+        int i = last;
+        while (i > 0 && startOf(set.packed[i - 1]) + set.longest > from) {
+            i--;
+        }
+        for (; i < last; i++) {
+            long packed = set.packed[i];
+            if (endOf(packed) > from) {
+                into.add(set.rooms[i].findBookingAt(BookingTable.fromMinutes(startOf(packed))));
+            }
+        }
+    }
+
+    //a copy of the course's intervals, start << 32 | length and sorted
+    long[] times(int course) {
+        Intervals set = intervals(course);
+        return set == null ? new long[0] : Arrays.copyOf(set.packed, set.size);
+    }
+
+    //course ids run from 0 up to this
+    int courseLimit() {
+        return courses.length;
+    }
+
+    int size(int course) {
+        Intervals set = intervals(course);
+        return set == null ? 0 : set.size;
+    }
+
+    private static int firstAtOrAfter(Intervals set, long packed) {
+        int lo = 0;
+        int hi = set.size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (set.packed[mid] < packed) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    //after any equal intervals, so bookings loaded in order stay in that order
+    private static int insertionPoint(Intervals set, long packed) {
+        return firstAtOrAfter(set, packed == Long.MAX_VALUE ? packed : packed + 1);
+    }
+}
@@ -0,0 +1,180 @@
+package smart;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+//the dashboard's numbers kept up to date as things change instead of counted when shown:
+//students per degree, resources per type and status, and which rooms are in use right now.
+//counts are arrays indexed by the StringDictionary ids, so every update and every total is
+//O(1). a room's in use state only changes at its next booking start or end, each room keeps
+//that minute and rooms are ordered by it, so the service only looks at rooms whose moment
+//has come. only a container, CampusService guards it and calls it on every change
+final class DashboardStats {
+    private static final ResourceStatus[] STATUSES = ResourceStatus.values();
+
+    private int[] studentsByDegree = new int[8];
+    private int studentCount;
+    //[type * STATUSES.length + status]
+    private int[] resourcesByType = new int[8 * STATUSES.length];
+    private final int[] resourcesByStatus = new int[STATUSES.length];
+    private int resourceCount;
+
+    private static final class RoomState implements Comparable<RoomState> {
+        final String key;
+        boolean inUse;
+        //the next minute the room starts or stops being in use
+        long next;
+
+        RoomState(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(RoomState other) {
+            int byNext = Long.compare(next, other.next);
+            return byNext != 0 ? byNext : key.compareTo(other.key);
+        }
+    }
+
+    private final Map<String, RoomState> rooms = new HashMap<>();
+    private final TreeSet<RoomState> byNextChange = new TreeSet<>();
+    private int roomsInUse;
+
+    //students
+
+    void addStudent(Student student) {
+        studentsByDegree = count(studentsByDegree, student.getDegreeId(), 1);
+        studentCount++;
+    }
+
+    void removeStudent(Student student) {
+        studentsByDegree = count(studentsByDegree, student.getDegreeId(), -1);
+        studentCount--;
+    }
+
+    private static int[] count(int[] counts, int index, int delta) {
+        if (index < 0) {
+            return counts;
+        }
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length * 2));
+        }
+        counts[index] += delta;
+        return counts;
+    }
+
+    //resources, removed before a change and added back after it
+
+    void addResource(Resource resource) {
+        resourceCounted(resource, 1);
+    }
+
+    void removeResource(Resource resource) {
+        resourceCounted(resource, -1);
+    }
+
+    private void resourceCounted(Resource resource, int delta) {
+        int status = resource.getStatusCode().ordinal();
+        int type = resource.getTypeId();
+        if (type >= 0) {
+            //grown a whole type at a time so the array stays a multiple of STATUSES.length
+            int needed = (type + 1) * STATUSES.length;
+            if (needed > resourcesByType.length) {
+                resourcesByType = Arrays.copyOf(resourcesByType, Math.max(needed, resourcesByType.length * 2));
+            }
+            resourcesByType[type * STATUSES.length + status] += delta;
+        }
+        resourcesByStatus[status] += delta;
+        resourceCount += delta;
+    }
+
+    //rooms
+
+    //works out whether the room is in use at minute now and when that next changes, from
+    //the room's own bookings. called after any change to them
+    void updateRoom(String key, BookingTable table, long now) {
+        RoomState state = rooms.get(key);
+        if (state == null) {
+            state = new RoomState(key);
+            rooms.put(key, state);
+        } else {
+            byNextChange.remove(state);
+        }
+        int row = table.findOverlap(now, now + 1, -1);
+        boolean inUse = row >= 0;
+        if (inUse != state.inUse) {
+            roomsInUse += inUse ? 1 : -1;
+            state.inUse = inUse;
+        }
+        state.next = inUse ? table.end(row) : table.nextStartAfter(now);
+        if (state.next != Long.MAX_VALUE) {
+            byNextChange.add(state);
+        }
+    }
+
+    void removeRoom(String key) {
+        RoomState state = rooms.remove(key);
+        if (state != null) {
+            byNextChange.remove(state);
+            if (state.inUse) {
+                roomsInUse--;
+            }
+        }
+    }
+
+    //the earliest minute any room changes, Long.MAX_VALUE if none will
+    long nextRoomChange() {
+        return byNextChange.isEmpty() ? Long.MAX_VALUE : byNextChange.first().next;
+    }
+
+    //the keys of rooms whose moment has come by minute now, for the service to update
+    List<String> roomsChangedBy(long now) {
+        List<String> keys = new ArrayList<>();
+        for (RoomState state : byNextChange) {
+            if (state.next > now) {
+                break;
+            }
+            keys.add(state.key);
+        }
+        return keys;
+    }
+
+    //the numbers
+
+    int getStudentCount() { return studentCount; }
+    int getResourceCount() { return resourceCount; }
+    int getRoomCount() { return rooms.size(); }
+    int getRoomsInUse() { return roomsInUse; }
+
+    int getResourceCount(ResourceStatus status) {
+        return resourcesByStatus[status.ordinal()];
+    }
+
+    //degree -> students, leaving out degrees nobody is studying
+    Map<String, Integer> studentsByDegree() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int degree = 0; degree < studentsByDegree.length; degree++) {
+            if (studentsByDegree[degree] > 0) {
+                counts.put(StringDictionary.DEGREES.get(degree), studentsByDegree[degree]);
+            }
+        }
+        return counts;
+    }
+
+    //type -> resources with that status, leaving out types with none
+    Map<String, Integer> resourcesByType(ResourceStatus status) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int type = 0; type * STATUSES.length < resourcesByType.length; type++) {
+            int count = resourcesByType[type * STATUSES.length + status.ordinal()];
+            if (count > 0) {
+                counts.put(StringDictionary.RESOURCE_TYPES.get(type), count);
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,99 @@
+package smart;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+//advisory lock on a data directory, so instances sharing the directory never read a file
+//another is halfway through writing. writers hold the .lock file exclusively, readers
+//shared. a FileLock belongs to the whole process and cannot be taken twice by it, so
+//threads of the process queue on a local lock first, one per directory, and a thread
+//already holding the lock can take it again, the first hold decides whether it is shared
+final class DataDirLock {
+    private static final Map<File, DataDirLock> BY_DIR = new ConcurrentHashMap<>();
+
+    //released with try-with-resources, never throws
+    interface Held extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final File file;
+    private final ReentrantLock local = new ReentrantLock();
+    private FileChannel channel;
+
+    private DataDirLock(File file) {
+        this.file = file;
+    }
+
+    //the one lock of the directory in this process
+    static DataDirLock of(File dir) {
+        File file = new File(dir.getAbsoluteFile(), ".lock");
+        try {
+            file = file.getCanonicalFile();
+        } catch (IOException e) {
+            //the absolute path will do
+        }
+        return BY_DIR.computeIfAbsent(file, DataDirLock::new);
+    }
+
+    Held exclusive() throws IOException {
+        return acquire(false);
+    }
+
+    Held shared() throws IOException {
+        return acquire(true);
+    }
+
+    private Held acquire(boolean shared) throws IOException {
+        local.lock();
+        if (local.getHoldCount() == 1) {
+            try {
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+                channel.lock(0, Long.MAX_VALUE, shared);
+            } catch (IOException | RuntimeException e) {
+                closeChannel();
+                local.unlock();
+                throw e;
+            }
+        }
+        return this::release;
+    }
+
+    private void release() {
+        if (local.getHoldCount() == 1) {
+            closeChannel();
+        }
+        local.unlock();
+    }
+
+    //closing the channel releases the lock
+    private void closeChannel() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error releasing " + file + ": " + e.getMessage());
+        }
+        channel = null;
+    }
+
+    //changes whenever the file is written or replaced, "" while it does not exist. taken
+    //under the lock, it tells whether another instance saved the file since
+    static String stamp(File file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            return attributes.lastModifiedTime().toInstant() + "/" + attributes.size() + "/" + attributes.fileKey();
+        } catch (IOException e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package smart;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+//watches a data directory, and the rooms/ and ledger/ directories in it, on a daemon thread
+//and hands onChange to an executor after something else wrote there, e.g. the event
+//dispatch thread when the data is shown in Swing. a save writes many files, so onChange
+//waits until no event has come for QUIET_MILLIS. the lock file and temporary files are
+//ignored. this instance's own saves wake it too, onChange then finds every file as it was
+//left and does nothing
+final class DataDirWatcher {
+    private static final long QUIET_MILLIS = 200;
+    //created by the first save that needs them, and watched from then on
+    private static final List<String> SUBDIRS = List.of("rooms", "ledger");
+
+    private final Path dir;
+    private final WatchService watch;
+    private final Executor executor;
+    private final Runnable onChange;
+
+    private DataDirWatcher(File dir, Executor executor, Runnable onChange) throws IOException {
+        this.dir = dir.toPath();
+        this.executor = executor;
+        this.onChange = onChange;
+        this.watch = this.dir.getFileSystem().newWatchService();
+        register(this.dir);
+        for (String subdir : SUBDIRS) {
+            if (new File(dir, subdir).isDirectory()) {
+                register(this.dir.resolve(subdir));
+            }
+        }
+    }
+
+    //null if the directory cannot be watched, changes from elsewhere are then only taken in
+    //when saving
+    static DataDirWatcher start(File dir, Executor executor, Runnable onChange) {
+        try {
+            DataDirWatcher watcher = new DataDirWatcher(dir, executor, onChange);
+            Thread thread = new Thread(watcher::run, "campus-data-watcher");
+            thread.setDaemon(true);
+            thread.start();
+            return watcher;
+        } catch (IOException e) {
+            System.err.println("Error watching " + dir + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void register(Path path) throws IOException {
+        path.register(watch, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                boolean changed = drain(watch.take());
+                WatchKey key;
+                while ((key = watch.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(key);
+                }
+                if (changed) {
+                    executor.execute(this::changed);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            //stopped
+        }
+    }
+
+    private void changed() {
+        try {
+            onChange.run();
+        } catch (RuntimeException e) {
+            System.err.println("Error reloading " + dir + ": " + e.getMessage());
+        }
+    }
+
+    //true if any event was for a data file
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        Path parent = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+                continue;
+            }
+            String name = event.context().toString();
+            if (name.equals(".lock") || name.endsWith(".tmp")) {
+                continue;
+            }
+            if (parent.equals(dir) && SUBDIRS.contains(name) && event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                try {
+                    register(dir.resolve(name));
+                } catch (IOException e) {
+                    System.err.println("Error watching " + dir.resolve(name) + ": " + e.getMessage());
+                }
+            }
+            changed = true;
+        }
+        key.reset();
+        return changed;
+    }
+}
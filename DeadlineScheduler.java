@@ -0,0 +1,110 @@
+package smart;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//runs tasks at wall clock deadlines from one daemon thread waiting on a DelayQueue, so a
+//deadline costs a queue entry and nothing happens until the earliest one is due, however
+//many there are. cancelling only marks the entry, it is dropped when it comes up, which
+//keeps cancel O(1) instead of searching the queue.
+//
+//tasks run one at a time on the scheduler thread and must be short, anything slow should
+//be handed to another executor
+final class DeadlineScheduler {
+    private static volatile DeadlineScheduler shared;
+
+    private final DelayQueue<Deadline> queue = new DelayQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public final class Deadline implements Delayed {
+        private final long dueMillis;
+        private final long order;
+        private final Runnable task;
+        private volatile boolean cancelled;
+
+        private Deadline(long dueMillis, Runnable task) {
+            this.dueMillis = dueMillis;
+            this.order = sequence.getAndIncrement();
+            this.task = task;
+        }
+
+        public long getDueMillis() { return dueMillis; }
+
+        //false if it had already been cancelled
+        public boolean cancel() {
+            boolean wasActive = !cancelled;
+            cancelled = true;
+            return wasActive;
+        }
+
+        public boolean isCancelled() { return cancelled; }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        //earliest first, and in the order they were scheduled when due at the same time
+        @Override
+        public int compareTo(Delayed other) {
+            Deadline that = (Deadline) other;
+            int byDue = Long.compare(dueMillis, that.dueMillis);
+            return byDue != 0 ? byDue : Long.compare(order, that.order);
+        }
+    }
+
+    private DeadlineScheduler(String name) {
+        Thread thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+        CampusMetrics.registerGauge("queue.deadlines", queue::size);
+    }
+
+    //the scheduler shared by the whole application, started on first use
+    public static DeadlineScheduler shared() {
+        DeadlineScheduler scheduler = shared;
+        if (scheduler == null) {
+            synchronized (DeadlineScheduler.class) {
+                scheduler = shared;
+                if (scheduler == null) {
+                    scheduler = new DeadlineScheduler("campus-deadlines");
+                    shared = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    //a deadline already in the past runs as soon as the thread gets to it
+    public Deadline schedule(long dueMillis, Runnable task) {
+        Deadline deadline = new Deadline(dueMillis, task);
+        queue.add(deadline);
+        return deadline;
+    }
+
+    public int getPending() {
+        return queue.size();
+    }
+
+    private void run() {
+        while (true) {
+            Deadline deadline;
+            try {
+                deadline = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (deadline.cancelled) {
+                continue;
+            }
+            try {
+                deadline.task.run();
+            } catch (RuntimeException e) {
+                //one failing task must not stop every later deadline
+                System.err.println("A scheduled task failed: " + e);
+            }
+        }
+    }
+}
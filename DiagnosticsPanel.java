@@ -0,0 +1,137 @@
+package smart;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+//the "Diagnostics" card: latency percentiles, heap use, data file sizes and background
+//queues, refreshed once a second while the card is on screen. everything shown is read
+//from CampusMetrics, nothing is counted or measured here, so leaving it open costs no
+//more than reading a few hundred numbers a second
+class DiagnosticsPanel extends JPanel {
+    private static final int REFRESH_MILLIS = 1000;
+    private static final String[] LATENCY_COLUMNS = {"Operation", "Count", "p50 (us)", "p99 (us)", "Max (us)"};
+    private static final String[] VALUE_COLUMNS = {"Name", "Value"};
+
+    private final DefaultTableModel latencyModel = readOnlyModel(LATENCY_COLUMNS);
+    private final DefaultTableModel memoryModel = readOnlyModel(VALUE_COLUMNS);
+    private final DefaultTableModel storageModel = readOnlyModel(VALUE_COLUMNS);
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final Timer timer = new Timer(REFRESH_MILLIS, _ -> refresh());
+
+    public DiagnosticsPanel(Color titleColor) {
+        super(new BorderLayout());
+        setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JLabel titleLabel = new JLabel("Diagnostics", JLabel.CENTER);
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 20));
+        titleLabel.setForeground(titleColor);
+        add(titleLabel, BorderLayout.NORTH);
+
+        JPanel tables = new JPanel(new GridLayout(3, 1, 0, 10));
+        tables.add(titled("Latency", new JTable(latencyModel)));
+        tables.add(titled("Memory (entity sizes are estimates)", new JTable(memoryModel)));
+        tables.add(titled("Data files and background queues", new JTable(storageModel)));
+        add(tables, BorderLayout.CENTER);
+
+        //only tick while the card is showing
+        addHierarchyListener(_ -> {
+            if (isShowing()) {
+                refresh();
+                timer.start();
+            } else {
+                timer.stop();
+            }
+        });
+    }
+
+    private static JComponent titled(String title, JTable table) {
+        table.setFillsViewportHeight(true);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setBorder(BorderFactory.createTitledBorder(title));
+        return scrollPane;
+    }
+
+    private static DefaultTableModel readOnlyModel(String[] columns) {
+        return new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+
+    private void refresh() {
+        List<Object[]> latency = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(CampusMetrics.getHistograms()).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            latency.add(new Object[]{entry.getKey(), histogram.getCount(),
+                histogram.getP50Micros(), histogram.getP99Micros(), histogram.getMaxMicros()});
+        }
+        update(latencyModel, latency);
+
+        Map<String, LongSupplier> gauges = new TreeMap<>(CampusMetrics.getGauges());
+        List<Object[]> heap = new ArrayList<>();
+        MemoryUsage usage = memory.getHeapMemoryUsage();
+        heap.add(new Object[]{"Heap used", megabytes(usage.getUsed())});
+        heap.add(new Object[]{"Heap committed", megabytes(usage.getCommitted())});
+        heap.add(new Object[]{"Heap max", usage.getMax() < 0 ? "-" : megabytes(usage.getMax())});
+        List<Object[]> storage = new ArrayList<>();
+        long queued = 0;
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            String name = gauge.getKey();
+            long value = gauge.getValue().getAsLong();
+            //a campus's own gauges are campus.<name>.<gauge>, shown as "<name> <gauge>"
+            String campus = "";
+            int dot = name.startsWith("campus.") ? name.indexOf('.', 7) : -1;
+            if (dot > 0) {
+                campus = name.substring(7, dot) + " ";
+                name = name.substring(dot + 1);
+            }
+            if (name.startsWith("heap.")) {
+                heap.add(new Object[]{campus + name.substring(5), megabytes(value)});
+            } else if (name.endsWith(".bytes")) {
+                storage.add(new Object[]{campus + name.substring(0, name.length() - 6), kilobytes(value)});
+            } else if (name.startsWith("queue.")) {
+                storage.add(new Object[]{name.substring(6) + " queue", value});
+                queued += value;
+            }
+        }
+        storage.add(new Object[]{"Background queue total", queued});
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(CampusMetrics.getCounters()).entrySet()) {
+            storage.add(new Object[]{counter.getKey(), counter.getValue().sum()});
+        }
+        update(memoryModel, heap);
+        update(storageModel, storage);
+    }
+
+    //changes cells in place, so selection and scrolling survive the refresh
+    private static void update(DefaultTableModel model, List<Object[]> rows) {
+        model.setRowCount(rows.size());
+        for (int row = 0; row < rows.size(); row++) {
+            Object[] values = rows.get(row);
+            for (int column = 0; column < values.length; column++) {
+                if (!values[column].equals(model.getValueAt(row, column))) {
+                    model.setValueAt(values[column], row, column);
+                }
+            }
+        }
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    private static String kilobytes(long bytes) {
+        return String.format("%,d KB", (bytes + 1023) / 1024);
+    }
+}
@@ -0,0 +1,96 @@
+package smart;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//caches the formatted cells of bookings and resources between table rebuilds.
+//entries are keyed by the entity itself and remember the entity version they were
+//rendered from, so a row is only re-formatted after the entity has actually changed
+class DisplayCache {
+    private static final DateTimeFormatter FALLBACK_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyy HH:mm");
+    //"dd-MM-yyyy HH:mm"
+    private static final int TIME_WIDTH = 16;
+
+    private final Map<Object, Cells> cells;
+    //reused by every format call, only the final String is allocated
+    private final char[] buffer = new char[TIME_WIDTH];
+
+    public DisplayCache(int maxEntries) {
+        //access ordered so the least recently shown rows are dropped first
+        this.cells = new LinkedHashMap<>(Math.min(maxEntries, 1024), 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Cells> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    //returns {start, end} for the booking, do not modify the returned array
+    public synchronized String[] bookingTimes(Booking booking) {
+        Cells cached = cells.get(booking);
+        if (cached != null && cached.version == booking.getVersion()) {
+            return cached.values;
+        }
+        String[] values = {formatTime(booking.getStartTime()), formatTime(booking.getEndTime())};
+        cells.put(booking, new Cells(booking.getVersion(), values));
+        return values;
+    }
+
+    public synchronized String resourceStatus(Resource resource) {
+        Cells cached = cells.get(resource);
+        if (cached != null && cached.version == resource.getVersion()) {
+            return cached.values[0];
+        }
+        String[] values = {resource.getStatus()};
+        cells.put(resource, new Cells(resource.getVersion(), values));
+        return values[0];
+    }
+
+    public synchronized int size() {
+        return cells.size();
+    }
+
+    public synchronized void clear() {
+        cells.clear();
+    }
+
+    //same output as the "dd-MM-yyy HH:mm" pattern for four digit years, written
+    //straight into the shared buffer instead of going through DateTimeFormatter
+    private String formatTime(LocalDateTime time) {
+        int year = time.getYear();
+        if (year < 1000 || year > 9999) {
+            return time.format(FALLBACK_FORMAT);
+        }
+        char[] b = buffer;
+        putTwoDigits(b, 0, time.getDayOfMonth());
+        b[2] = '-';
+        putTwoDigits(b, 3, time.getMonthValue());
+        b[5] = '-';
+        putTwoDigits(b, 6, year / 100);
+        putTwoDigits(b, 8, year % 100);
+        b[10] = ' ';
+        putTwoDigits(b, 11, time.getHour());
+        b[13] = ':';
+        putTwoDigits(b, 14, time.getMinute());
+        return new String(b, 0, TIME_WIDTH);
+    }
+
+    private static void putTwoDigits(char[] b, int offset, int value) {
+        b[offset] = (char) ('0' + value / 10);
+        b[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    private static final class Cells {
+        final int version;
+        final String[] values;
+
+        Cells(int version, String[] values) {
+            this.version = version;
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package smart;
+
+import java.io.Serializable;
+
+//a student taking a course, as saved in enrollments.dat
+public record Enrollment(String studentId, String course) implements Serializable {
+}
@@ -0,0 +1,103 @@
+package smart;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//which courses each student takes, keyed by the student's upper cased ID, with the courses
+//as sorted StringDictionary.COURSES ids. a headcount per course is kept as enrollments
+//change so course sizes never need counting. only a container, CampusService guards it
+final class Enrollments {
+    private record Taking(String studentId, int[] courses) {}
+
+    private final Map<String, Taking> byStudent = new HashMap<>();
+    private int[] headcounts = new int[64];
+    private int size;
+
+    //false if the student already takes the course
+    boolean enroll(String studentKey, String studentId, int course) {
+        Taking taking = byStudent.get(studentKey);
+        int[] courses = taking == null ? new int[0] : taking.courses;
+        int at = Arrays.binarySearch(courses, course);
+        if (at >= 0) {
+            return false;
+        }
+        int insert = -at - 1;
+        int[] grown = new int[courses.length + 1];
+        System.arraycopy(courses, 0, grown, 0, insert);
+        grown[insert] = course;
+        System.arraycopy(courses, insert, grown, insert + 1, courses.length - insert);
+        byStudent.put(studentKey, new Taking(studentId, grown));
+        if (course >= headcounts.length) {
+            headcounts = Arrays.copyOf(headcounts, Math.max(course + 1, headcounts.length * 2));
+        }
+        headcounts[course]++;
+        size++;
+        return true;
+    }
+
+    //false if the student does not take the course
+    boolean drop(String studentKey, int course) {
+        Taking taking = byStudent.get(studentKey);
+        int at = taking == null ? -1 : Arrays.binarySearch(taking.courses, course);
+        if (at < 0) {
+            return false;
+        }
+        int[] courses = taking.courses;
+        if (courses.length == 1) {
+            byStudent.remove(studentKey);
+        } else {
+            int[] shrunk = new int[courses.length - 1];
+            System.arraycopy(courses, 0, shrunk, 0, at);
+            System.arraycopy(courses, at + 1, shrunk, at, courses.length - at - 1);
+            byStudent.put(studentKey, new Taking(taking.studentId, shrunk));
+        }
+        headcounts[course]--;
+        size--;
+        return true;
+    }
+
+    //everything for a removed student
+    void removeStudent(String studentKey) {
+        Taking taking = byStudent.remove(studentKey);
+        if (taking != null) {
+            for (int course : taking.courses) {
+                headcounts[course]--;
+            }
+            size -= taking.courses.length;
+        }
+    }
+
+    //sorted course ids, never changed in place so callers may keep it
+    int[] courses(String studentKey) {
+        Taking taking = byStudent.get(studentKey);
+        return taking == null ? new int[0] : taking.courses;
+    }
+
+    int headcount(int course) {
+        return course >= 0 && course < headcounts.length ? headcounts[course] : 0;
+    }
+
+    int size() { return size; }
+
+    //student ID -> sorted course ids, for checks that run outside the service's lock
+    Map<String, int[]> snapshot() {
+        Map<String, int[]> copy = new HashMap<>(byStudent.size() * 2);
+        for (Taking taking : byStudent.values()) {
+            copy.put(taking.studentId, taking.courses);
+        }
+        return copy;
+    }
+
+    List<Enrollment> all() {
+        List<Enrollment> all = new ArrayList<>(size);
+        for (Taking taking : byStudent.values()) {
+            for (int course : taking.courses) {
+                all.add(new Enrollment(taking.studentId, StringDictionary.COURSES.get(course)));
+            }
+        }
+        return all;
+    }
+}
@@ -0,0 +1,15 @@
+package smart;
+
+import java.util.List;
+
+//what changed in CampusService other than through its methods: taken in from files
+//another instance saved, how many students, classrooms and resources were new and the
+//rooms whose bookings were read again, or brought about by a deadline passing, a resource
+//whose hold ran out and the rooms that came into or out of use
+public record ExternalChanges(int students, int classrooms, int resources, List<String> rooms) {
+    public static final ExternalChanges NONE = new ExternalChanges(0, 0, 0, List.of());
+
+    public boolean isEmpty() {
+        return students == 0 && classrooms == 0 && resources == 0 && rooms.isEmpty();
+    }
+}
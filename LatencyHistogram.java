@@ -0,0 +1,122 @@
+package smart;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//latencies in buckets that are at most 1/16 apart, from 1 microsecond to days. recording
+//is a few atomic increments with no locks and no allocation, so histograms can stay on in
+//production and be written by any number of threads; reads see a slightly moving picture
+class LatencyHistogram implements CampusMetrics.LatencyMXBean {
+    private static final int SUB_BUCKETS = 16;
+    private static final int BUCKETS = 40 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long micros = Math.max(1, nanos / 1000);
+        counts.incrementAndGet(bucket(micros));
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    //for the usual "long started = System.nanoTime(); try { ... } finally { ... }"
+    public void recordSince(long startedNanos) {
+        record(System.nanoTime() - startedNanos);
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalNanos.addAndGet(other.totalNanos.get());
+        long max = other.maxNanos.get();
+        long current = maxNanos.get();
+        while (max > current && !maxNanos.compareAndSet(current, max)) {
+            current = maxNanos.get();
+        }
+    }
+
+    private static int bucket(long micros) {
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent < 4) {
+            return (int) micros;
+        }
+        int sub = (int) (micros >>> (exponent - 4)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, (exponent - 3) * SUB_BUCKETS + sub);
+    }
+
+    //upper bound of a bucket in microseconds
+    private static long upper(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + 3;
+        long base = 1L << exponent;
+        return base + ((bucket % SUB_BUCKETS) + 1) * (base / SUB_BUCKETS);
+    }
+
+    @Override
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long count = getCount();
+        return count == 0 ? 0 : totalNanos.get() / 1000.0 / count;
+    }
+
+    @Override
+    public long getMaxMicros() { return maxNanos.get() / 1000; }
+    @Override
+    public long getP50Micros() { return percentileMicros(50); }
+    @Override
+    public long getP90Micros() { return percentileMicros(90); }
+    @Override
+    public long getP99Micros() { return percentileMicros(99); }
+    @Override
+    public long getP999Micros() { return percentileMicros(99.9); }
+
+    public long percentileMicros(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upper(i), getMaxMicros());
+            }
+        }
+        return getMaxMicros();
+    }
+
+    //not atomic with concurrent recording, a few samples may land either side of it
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+}
@@ -0,0 +1,15 @@
+package smart;
+
+//one checkout of a resource, times are epoch milliseconds. returnedAt is 0 while the
+//resource is still out
+public record Loan(String resourceId, String studentId, long checkedOutAt, long dueAt, long returnedAt) {
+
+    public boolean isReturned() {
+        return returnedAt > 0;
+    }
+
+    //past due at the given time, or was returned after it
+    public boolean isOverdue(long now) {
+        return dueAt > 0 && (isReturned() ? returnedAt : now) > dueAt;
+    }
+}
@@ -0,0 +1,122 @@
+package smart;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+//the due dates of every resource on loan, keyed by the resource's upper cased ID. loans
+//not yet due are ordered by due date so the next one to come due is found in O(log n)
+//without looking at the inventory. every loan is grouped by student, and overdue loans by
+//student and by type, so those queries only touch the answer. only a container,
+//CampusService guards it
+final class LoanIndex {
+    //what the loan was indexed under, so it is removed from the same places after the
+    //resource has changed
+    private record Entry(long dueAt, String resourceKey, String studentKey, int type, Resource resource)
+            implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            int byDue = Long.compare(dueAt, other.dueAt);
+            return byDue != 0 ? byDue : resourceKey.compareTo(other.resourceKey);
+        }
+    }
+
+    private final TreeMap<Entry, Resource> pending = new TreeMap<>();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, String> holders = new HashMap<>();
+    private final Map<String, Map<String, Resource>> byStudent = new HashMap<>();
+    private final Map<String, Resource> overdue = new LinkedHashMap<>();
+    private final Map<String, Map<String, Resource>> overdueByStudent = new HashMap<>();
+    private final Map<Integer, Map<String, Resource>> overdueByType = new HashMap<>();
+
+    //a resource checked out without a due date, as in older data files, is only kept by
+    //student, it never comes due
+    void add(String resourceKey, Resource resource, String studentKey) {
+        remove(resourceKey);
+        holders.put(resourceKey, studentKey);
+        byStudent.computeIfAbsent(studentKey, _ -> new LinkedHashMap<>()).put(resourceKey, resource);
+        if (resource.getDueAt() <= 0) {
+            return;
+        }
+        Entry entry = new Entry(resource.getDueAt(), resourceKey, studentKey, resource.getTypeId(), resource);
+        entries.put(resourceKey, entry);
+        pending.put(entry, resource);
+    }
+
+    void remove(String resourceKey) {
+        String studentKey = holders.remove(resourceKey);
+        if (studentKey != null) {
+            removeFrom(byStudent, studentKey, resourceKey);
+        }
+        Entry entry = entries.remove(resourceKey);
+        if (entry == null) {
+            return;
+        }
+        if (pending.remove(entry) == null) {
+            overdue.remove(resourceKey);
+            removeFrom(overdueByStudent, entry.studentKey, resourceKey);
+            removeFrom(overdueByType, entry.type, resourceKey);
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, Map<String, Resource>> groups, K group, String resourceKey) {
+        Map<String, Resource> members = groups.get(group);
+        if (members != null) {
+            members.remove(resourceKey);
+            if (members.isEmpty()) {
+                groups.remove(group);
+            }
+        }
+    }
+
+    //when the next loan comes due, Long.MAX_VALUE if none will
+    long nextDue() {
+        return pending.isEmpty() ? Long.MAX_VALUE : pending.firstKey().dueAt;
+    }
+
+    //moves every loan due by now over to the overdue groups, returning them
+    List<Resource> markOverdue(long now) {
+        List<Resource> flagged = new ArrayList<>();
+        while (!pending.isEmpty() && pending.firstKey().dueAt <= now) {
+            Map.Entry<Entry, Resource> first = pending.pollFirstEntry();
+            Entry entry = first.getKey();
+            overdue.put(entry.resourceKey, entry.resource);
+            overdueByStudent.computeIfAbsent(entry.studentKey, _ -> new LinkedHashMap<>())
+                .put(entry.resourceKey, entry.resource);
+            overdueByType.computeIfAbsent(entry.type, _ -> new LinkedHashMap<>())
+                .put(entry.resourceKey, entry.resource);
+            flagged.add(entry.resource);
+        }
+        return flagged;
+    }
+
+    boolean isOverdue(String resourceKey) {
+        return overdue.containsKey(resourceKey);
+    }
+
+    List<Resource> overdue() {
+        return List.copyOf(overdue.values());
+    }
+
+    //everything the student has on loan, due or not
+    List<Resource> loansFor(String studentKey) {
+        Map<String, Resource> members = byStudent.get(studentKey);
+        return members == null ? List.of() : List.copyOf(members.values());
+    }
+
+    List<Resource> overdueFor(String studentKey) {
+        Map<String, Resource> members = overdueByStudent.get(studentKey);
+        return members == null ? List.of() : List.copyOf(members.values());
+    }
+
+    List<Resource> overdueOfType(int type) {
+        Map<String, Resource> members = overdueByType.get(type);
+        return members == null ? List.of() : List.copyOf(members.values());
+    }
+
+    int getActiveCount() { return entries.size(); }
+    int getOverdueCount() { return overdue.size(); }
+}
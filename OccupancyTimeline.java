@@ -0,0 +1,305 @@
+package smart;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//room occupancy across many rooms at once, one row per classroom and time along the x axis.
+//the grid is painted in tiles of one day by TILE_ROWS rooms, each tile is cached as an image
+//and only repainted when a booking in one of its rooms changes
+class OccupancyTimeline extends JComponent implements Scrollable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int DAY_SCALE = 40;   //pixels per hour
+    public static final int WEEK_SCALE = 8;
+
+    private static final int ROW_HEIGHT = 20;
+    private static final int TILE_ROWS = 32;
+    //a tile is 4 bytes a pixel, 2.4 MB a day wide at DAY_SCALE, so the cache is bounded by
+    //size rather than by count
+    private static final long MAX_TILE_BYTES = 64L * 1024 * 1024;
+    private static final Color GRID_COLOR = new Color(225, 225, 225);
+    private static final Color DAY_LINE_COLOR = new Color(150, 150, 150);
+    private static final Color BOOKING_COLOR = new Color(113, 154, 191);
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("EEE dd-MM");
+    private static final DateTimeFormatter TIP_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyy HH:mm");
+
+    private final List<Classroom> rooms;
+    private final LocalDate firstDay;
+    private final int days;
+    private int hourWidth;
+    private JComponent columnHeader;
+
+    //access ordered, so the tiles furthest from the current view are dropped first
+    private final Map<Long, Tile> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private long tileBytes;
+
+    public OccupancyTimeline(List<Classroom> rooms, LocalDate firstDay, int days, int hourWidth) {
+        this.rooms = rooms;
+        this.firstDay = firstDay;
+        this.days = days;
+        this.hourWidth = hourWidth;
+        setOpaque(true);
+        setToolTipText("");
+        updateSize();
+    }
+
+    public void setHourWidth(int hourWidth) {
+        if (this.hourWidth == hourWidth) {
+            return;
+        }
+        this.hourWidth = hourWidth;
+        tiles.clear();
+        tileBytes = 0;
+        updateSize();
+        revalidate();
+        repaint();
+    }
+
+    public int getHourWidth() { return hourWidth; }
+
+    public int getDayWidth() { return hourWidth * 24; }
+
+    public int getRowHeight() { return ROW_HEIGHT; }
+
+    public LocalDate getFirstDay() { return firstDay; }
+
+    public int getDays() { return days; }
+
+    public List<Classroom> getRooms() { return rooms; }
+
+    //x position of the given time, used to scroll the view to "now"
+    public int xFor(LocalDateTime time) {
+        long minutes = Duration.between(firstDay.atStartOfDay(), time).toMinutes();
+        return (int) (minutes * hourWidth / 60);
+    }
+
+    private void updateSize() {
+        setPreferredSize(new Dimension(days * getDayWidth(), rooms.size() * ROW_HEIGHT));
+        if (columnHeader != null) {
+            columnHeader.setPreferredSize(new Dimension(days * getDayWidth(), 20));
+            columnHeader.revalidate();
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(getWidth(), getHeight());
+        }
+        g.setColor(Color.WHITE);
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        int dayWidth = getDayWidth();
+        int tileHeight = TILE_ROWS * ROW_HEIGHT;
+        int firstCol = Math.max(0, clip.x / dayWidth);
+        int lastCol = Math.min(days - 1, (clip.x + clip.width - 1) / dayWidth);
+        int blocks = (rooms.size() + TILE_ROWS - 1) / TILE_ROWS;
+        int firstBlock = Math.max(0, clip.y / tileHeight);
+        int lastBlock = Math.min(blocks - 1, (clip.y + clip.height - 1) / tileHeight);
+
+        for (int block = firstBlock; block <= lastBlock; block++) {
+            long stamp = blockStamp(block);
+            for (int col = firstCol; col <= lastCol; col++) {
+                long key = ((long) col << 32) | block;
+                Tile tile = tiles.get(key);
+                if (tile == null || tile.stamp != stamp) {
+                    tile = new Tile(renderTile(col, block), stamp);
+                    cacheTile(key, tile);
+                }
+                g.drawImage(tile.image, col * dayWidth, block * tileHeight, null);
+            }
+        }
+    }
+
+    //drops the least recently painted tiles once the cache is over MAX_TILE_BYTES, never the
+    //one just added
+    private void cacheTile(long key, Tile tile) {
+        Tile old = tiles.put(key, tile);
+        tileBytes += tile.bytes() - (old == null ? 0 : old.bytes());
+        Iterator<Tile> eldest = tiles.values().iterator();
+        while (tileBytes > MAX_TILE_BYTES && tiles.size() > 1) {
+            tileBytes -= eldest.next().bytes();
+            eldest.remove();
+        }
+    }
+
+    //changes whenever any room in the block gains, loses or edits a booking
+    private long blockStamp(int block) {
+        long stamp = 17;
+        int end = Math.min(rooms.size(), (block + 1) * TILE_ROWS);
+        for (int i = block * TILE_ROWS; i < end; i++) {
+            stamp = stamp * 31 + rooms.get(i).getVersion();
+        }
+        return stamp;
+    }
+
+    private BufferedImage renderTile(int col, int block) {
+        int dayWidth = getDayWidth();
+        int firstRow = block * TILE_ROWS;
+        int rowCount = Math.min(TILE_ROWS, rooms.size() - firstRow);
+        BufferedImage image = new BufferedImage(dayWidth, TILE_ROWS * ROW_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+
+            //hour grid
+            g.setColor(GRID_COLOR);
+            int step = hourWidth >= 20 ? 1 : 6;
+            for (int hour = step; hour < 24; hour += step) {
+                g.drawLine(hour * hourWidth, 0, hour * hourWidth, image.getHeight());
+            }
+            for (int row = 1; row <= rowCount; row++) {
+                g.drawLine(0, row * ROW_HEIGHT - 1, dayWidth, row * ROW_HEIGHT - 1);
+            }
+            g.setColor(DAY_LINE_COLOR);
+            g.drawLine(0, 0, 0, image.getHeight());
+
+            //only the bookings inside this tile's day are asked for
+            LocalDateTime dayStart = firstDay.plusDays(col).atStartOfDay();
+            LocalDateTime dayEnd = dayStart.plusDays(1);
+            FontMetrics metrics = g.getFontMetrics();
+            for (int row = 0; row < rowCount; row++) {
+                Classroom room = rooms.get(firstRow + row);
+                for (Booking booking : room.getBookingsBetween(dayStart, dayEnd)) {
+                    int x1 = minuteX(dayStart, booking.getStartTime(), dayWidth);
+                    int x2 = minuteX(dayStart, booking.getEndTime(), dayWidth);
+                    int y = row * ROW_HEIGHT + 2;
+                    g.setColor(BOOKING_COLOR);
+                    g.fillRect(x1, y, Math.max(1, x2 - x1), ROW_HEIGHT - 5);
+                    if (x2 - x1 > metrics.stringWidth(booking.getCourse()) + 4) {
+                        g.setColor(Color.WHITE);
+                        g.drawString(booking.getCourse(), x1 + 2, y + metrics.getAscent());
+                    }
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private int minuteX(LocalDateTime dayStart, LocalDateTime time, int dayWidth) {
+        long minutes = Duration.between(dayStart, time).toMinutes();
+        long x = minutes * hourWidth / 60;
+        return (int) Math.max(0, Math.min(dayWidth, x));
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        int row = e.getY() / ROW_HEIGHT;
+        if (row < 0 || row >= rooms.size()) {
+            return null;
+        }
+        Classroom room = rooms.get(row);
+        LocalDateTime at = firstDay.atStartOfDay().plusMinutes((long) e.getX() * 60 / hourWidth);
+        List<Booking> found = room.getBookingsBetween(at, at.plusMinutes(1));
+        if (!found.isEmpty()) {
+            Booking booking = found.get(0);
+            return room.getRoomNumber() + " - " + booking.getCourse() + " (" +
+                booking.getStartTime().format(TIP_FORMAT) + " to " + booking.getEndTime().format(TIP_FORMAT) + ")";
+        }
+        return room.getRoomNumber() + " - free at " + at.format(TIP_FORMAT);
+    }
+
+    //room numbers down the left, used as the row header of the scroll pane
+    public JComponent createRowHeader() {
+        JComponent header = new JComponent() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void paintComponent(Graphics g) {
+                Rectangle clip = g.getClipBounds();
+                g.setColor(getBackground() != null ? getBackground() : Color.WHITE);
+                g.fillRect(clip.x, clip.y, clip.width, clip.height);
+                int first = Math.max(0, clip.y / ROW_HEIGHT);
+                int last = Math.min(rooms.size() - 1, (clip.y + clip.height) / ROW_HEIGHT);
+                FontMetrics metrics = g.getFontMetrics();
+                for (int row = first; row <= last; row++) {
+                    g.setColor(Color.BLACK);
+                    g.drawString(rooms.get(row).getRoomNumber(), 4, row * ROW_HEIGHT + metrics.getAscent() + 2);
+                    g.setColor(GRID_COLOR);
+                    g.drawLine(0, (row + 1) * ROW_HEIGHT - 1, getWidth(), (row + 1) * ROW_HEIGHT - 1);
+                }
+            }
+        };
+        header.setPreferredSize(new Dimension(80, rooms.size() * ROW_HEIGHT));
+        return header;
+    }
+
+    //day labels across the top, used as the column header of the scroll pane
+    public JComponent createColumnHeader() {
+        JComponent header = new JComponent() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void paintComponent(Graphics g) {
+                Rectangle clip = g.getClipBounds();
+                int dayWidth = getDayWidth();
+                g.setColor(new Color(240, 240, 240));
+                g.fillRect(clip.x, clip.y, clip.width, clip.height);
+                int first = Math.max(0, clip.x / dayWidth);
+                int last = Math.min(days - 1, (clip.x + clip.width) / dayWidth);
+                FontMetrics metrics = g.getFontMetrics();
+                for (int col = first; col <= last; col++) {
+                    int x = col * dayWidth;
+                    g.setColor(DAY_LINE_COLOR);
+                    g.drawLine(x, 0, x, getHeight());
+                    g.setColor(Color.BLACK);
+                    g.drawString(firstDay.plusDays(col).format(DAY_FORMAT), x + 4, metrics.getAscent() + 2);
+                }
+            }
+        };
+        columnHeader = header;
+        updateSize();
+        return header;
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(Math.min(getPreferredSize().width, 7 * 24 * WEEK_SCALE),
+            Math.min(getPreferredSize().height, 20 * ROW_HEIGHT));
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? ROW_HEIGHT : hourWidth;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : getDayWidth();
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() { return false; }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() { return false; }
+
+    private static final class Tile {
+        final BufferedImage image;
+        final long stamp;
+
+        Tile(BufferedImage image, long stamp) {
+            this.image = image;
+            this.stamp = stamp;
+        }
+
+        //TYPE_INT_RGB
+        long bytes() {
+            return (long) image.getWidth() * image.getHeight() * 4;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package smart;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+//keeps a read-only CampusService a copy of a ReplicationLeader's, on a daemon thread. it
+//starts from the leader's snapshot and applies each change after it. when the connection
+//drops it reconnects with the log id and offset it got to and picks up from there, or
+//from a new snapshot if the leader no longer has them. lookups on the replica answer from
+//the last change applied
+final class ReplicationFollower {
+    private static final long RETRY_MILLIS = 1000;
+    //a leader sends at least a heartbeat this often
+    private static final int READ_TIMEOUT_MILLIS = (int) (ReplicationLeader.HEARTBEAT_MILLIS * 5);
+
+    private final CampusService replica;
+    private final InetSocketAddress leader;
+    private volatile long logId;
+    private volatile long offset;
+    private volatile boolean connected;
+    private volatile boolean stopped;
+    private volatile Socket socket;
+
+    private ReplicationFollower(CampusService replica, InetSocketAddress leader) {
+        this.replica = replica;
+        this.leader = leader;
+    }
+
+    //replica comes from CampusService.replica()
+    public static ReplicationFollower start(CampusService replica, String host, int port) {
+        ReplicationFollower follower = new ReplicationFollower(replica, new InetSocketAddress(host, port));
+        Thread thread = new Thread(follower::run, "campus-replication-follower");
+        thread.setDaemon(true);
+        thread.start();
+        CampusMetrics.registerGauge("replication.offset", () -> follower.offset);
+        return follower;
+    }
+
+    public long getOffset() { return offset; }
+    public boolean isConnected() { return connected; }
+
+    public void stop() {
+        stopped = true;
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                //closing anyway
+            }
+        }
+    }
+
+    private void run() {
+        while (!stopped) {
+            try (Socket current = new Socket()) {
+                socket = current;
+                current.connect(leader, READ_TIMEOUT_MILLIS);
+                current.setSoTimeout(READ_TIMEOUT_MILLIS);
+                current.setTcpNoDelay(true);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(current.getOutputStream()));
+                out.writeInt(ReplicationLeader.VERSION);
+                out.writeLong(logId);
+                out.writeLong(offset);
+                out.flush();
+                connected = true;
+                follow(new DataInputStream(new BufferedInputStream(current.getInputStream())));
+            } catch (EOFException e) {
+                if (!stopped) {
+                    System.err.println("Replication from " + leader + " stopped: the leader closed the connection");
+                }
+            } catch (IOException e) {
+                if (!stopped) {
+                    System.err.println("Replication from " + leader + " stopped: " + e.getMessage());
+                }
+            } finally {
+                connected = false;
+            }
+            try {
+                Thread.sleep(RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void follow(DataInputStream in) throws IOException {
+        while (!stopped) {
+            int frame = in.readByte();
+            switch (frame) {
+                case ReplicationLeader.SNAPSHOT -> {
+                    long snapshotLog = in.readLong();
+                    long snapshotOffset = in.readLong();
+                    int count = in.readInt();
+                    List<ReplicationLog.Change> changes = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        changes.add(ReplicationLog.read(in, snapshotOffset));
+                    }
+                    replica.installSnapshot(changes);
+                    logId = snapshotLog;
+                    offset = snapshotOffset;
+                }
+                case ReplicationLeader.CHANGE -> {
+                    long changeOffset = in.readLong();
+                    ReplicationLog.Change change = ReplicationLog.read(in, changeOffset);
+                    if (changeOffset != offset + 1) {
+                        throw new IOException("Expected change " + (offset + 1) + " but got " + changeOffset);
+                    }
+                    replica.applyChange(change);
+                    offset = changeOffset;
+                    CampusMetrics.REPLICATION_CHANGES.increment();
+                }
+                case ReplicationLeader.HEARTBEAT -> {
+                    //the leader is there, nothing changed
+                }
+                default -> throw new IOException("Unknown replication frame " + frame);
+            }
+        }
+    }
+}
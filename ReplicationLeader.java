@@ -0,0 +1,148 @@
+package smart;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//streams a CampusService's ReplicationLog to ReplicationFollowers over TCP, one thread per
+//follower. a follower opens with
+//
+//  int VERSION, long log id, long offset      (0, 0 when it has nothing yet)
+//
+//and the leader answers with frames:
+//
+//  SNAPSHOT  long log id, long offset, int count, count x change
+//  CHANGE    long offset, change
+//  HEARTBEAT
+//
+//it gets a snapshot when its offset is from another log or no longer kept, then every
+//change after. a heartbeat goes out when nothing has changed for HEARTBEAT_MILLIS, so a
+//follower can tell a quiet leader from a dead one
+final class ReplicationLeader {
+    static final int VERSION = 1;
+    static final int SNAPSHOT = 1;
+    static final int CHANGE = 2;
+    static final int HEARTBEAT = 3;
+    static final long HEARTBEAT_MILLIS = 1000;
+    public static final int DEFAULT_PORT = 7070;
+
+    private final CampusService service;
+    private final ReplicationLog log;
+    private final ServerSocket server;
+    private final AtomicInteger followers = new AtomicInteger();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private ReplicationLeader(CampusService service, ServerSocket server) {
+        this.service = service;
+        this.log = service.replicationLog();
+        this.server = server;
+    }
+
+    //binds to the loopback interface unless another address is given, like CampusHttpServer
+    public static ReplicationLeader start(CampusService service, InetAddress address, int port) throws IOException {
+        ServerSocket server = new ServerSocket();
+        server.bind(new InetSocketAddress(address != null ? address : InetAddress.getLoopbackAddress(), port));
+        ReplicationLeader leader = new ReplicationLeader(service, server);
+        Thread acceptor = new Thread(leader::accept, "campus-replication-leader");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        CampusMetrics.registerGauge("replication.followers", leader.followers::get);
+        CampusMetrics.registerGauge("replication.offset", leader.log::getLastOffset);
+        return leader;
+    }
+
+    //the port actually bound, useful when started on port 0
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public int getFollowerCount() {
+        return followers.get();
+    }
+
+    public void stop() {
+        try {
+            server.close();
+        } catch (IOException e) {
+            System.err.println("Error closing replication socket: " + e.getMessage());
+        }
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread thread = new Thread(() -> serve(socket), "campus-replication-" + connections.incrementAndGet());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    System.err.println("Error accepting follower: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        followers.incrementAndGet();
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readInt() != VERSION) {
+                throw new IOException("Unknown replication version");
+            }
+            long logId = in.readLong();
+            long offset = in.readLong();
+            if (logId != log.getLogId() || log.after(offset, 0) == null) {
+                offset = sendSnapshot(out);
+            }
+            while (!server.isClosed()) {
+                List<ReplicationLog.Change> changes = log.after(offset, HEARTBEAT_MILLIS);
+                if (changes == null) {
+                    //fell further behind than the log keeps, it reconnects for a snapshot
+                    throw new IOException("Follower fell behind the replication log");
+                }
+                if (changes.isEmpty()) {
+                    out.writeByte(HEARTBEAT);
+                }
+                for (ReplicationLog.Change change : changes) {
+                    out.writeByte(CHANGE);
+                    out.writeLong(change.offset());
+                    ReplicationLog.write(out, change);
+                    offset = change.offset();
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Replication to " + socket.getRemoteSocketAddress() + " stopped: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            followers.decrementAndGet();
+        }
+    }
+
+    //the offset the follower is at afterwards
+    private long sendSnapshot(DataOutputStream out) throws IOException {
+        ReplicationLog.Snapshot snapshot = service.replicationSnapshot(log);
+        out.writeByte(SNAPSHOT);
+        out.writeLong(snapshot.logId());
+        out.writeLong(snapshot.offset());
+        out.writeInt(snapshot.changes().size());
+        for (ReplicationLog.Change change : snapshot.changes()) {
+            ReplicationLog.write(out, change);
+        }
+        out.flush();
+        CampusMetrics.REPLICATION_SNAPSHOTS.increment();
+        return snapshot.offset();
+    }
+}
@@ -0,0 +1,174 @@
+package smart;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+//the changes a leading CampusService streams to its followers, see ReplicationLeader. a
+//change carries the new state of what changed rather than the call that changed it, so
+//applying one twice or on top of a snapshot that already has it does no harm:
+//
+//  STUDENT, RESOURCE           key = ID, data = the serialized object, null once removed
+//  ROOM                        key = room number, data = type, capacity and every booking
+//  BOOKING_ADDED               key = room number, data = course, start, end
+//  BOOKING_REMOVED             key = room number, data = start
+//
+//with booking times in epoch minutes, as BookingTable keeps them. offsets count up from 1
+//and only the last `capacity` changes are kept, a follower further behind than that starts
+//again from a snapshot. the log id tells a follower whether its offset is from this log at
+//all, offsets start over when the leader restarts
+final class ReplicationLog {
+    static final int STUDENT = 1;
+    static final int RESOURCE = 2;
+    static final int ROOM = 3;
+    static final int BOOKING_ADDED = 4;
+    static final int BOOKING_REMOVED = 5;
+
+    public static final int DEFAULT_CAPACITY = 100_000;
+
+    record Change(long offset, int kind, String key, byte[] data) {}
+
+    //the whole store as changes, the state after the change at offset
+    record Snapshot(long logId, long offset, List<Change> changes) {}
+
+    private final long logId = ThreadLocalRandom.current().nextLong();
+    private final int capacity;
+    private final ArrayDeque<Change> changes = new ArrayDeque<>();
+    private long lastOffset;
+
+    ReplicationLog(int capacity) {
+        this.capacity = capacity;
+    }
+
+    long getLogId() { return logId; }
+
+    synchronized long getLastOffset() { return lastOffset; }
+
+    //called by CampusService with its write lock held, so changes are logged in the order
+    //they were made
+    synchronized void append(int kind, String key, byte[] data) {
+        lastOffset++;
+        changes.addLast(new Change(lastOffset, kind, key, data));
+        if (changes.size() > capacity) {
+            changes.removeFirst();
+        }
+        notifyAll();
+    }
+
+    //the changes after offset, waiting up to waitMillis for one if there are none yet. null
+    //if some of them are no longer kept
+    synchronized List<Change> after(long offset, long waitMillis) throws InterruptedException {
+        if (offset >= lastOffset && waitMillis > 0) {
+            wait(waitMillis);
+        }
+        if (offset > lastOffset || offset < lastOffset - changes.size()) {
+            return null;
+        }
+        List<Change> after = new ArrayList<>((int) (lastOffset - offset));
+        //the deque is in offset order, skip what the follower already has
+        long skip = offset - (lastOffset - changes.size());
+        for (Change change : changes) {
+            if (skip-- <= 0) {
+                after.add(change);
+            }
+        }
+        return after;
+    }
+
+    //on the wire: byte kind, UTF key, int length (-1 for no data), bytes
+
+    static void write(DataOutputStream out, Change change) throws IOException {
+        out.writeByte(change.kind());
+        out.writeUTF(change.key());
+        byte[] data = change.data();
+        out.writeInt(data == null ? -1 : data.length);
+        if (data != null) {
+            out.write(data);
+        }
+    }
+
+    static Change read(DataInputStream in, long offset) throws IOException {
+        int kind = in.readByte();
+        String key = in.readUTF();
+        int length = in.readInt();
+        byte[] data = null;
+        if (length >= 0) {
+            data = new byte[length];
+            in.readFully(data);
+        }
+        return new Change(offset, kind, key, data);
+    }
+
+    //students and resources go as they are saved in the .dat files
+
+    static byte[] serialize(Serializable object) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize " + object + ": " + e.getMessage(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Object deserialize(byte[] data) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown class in change: " + e.getMessage(), e);
+        }
+    }
+
+    static byte[] room(Classroom room, BookingTable table) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + table.size() * 24);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(room.getType());
+            out.writeInt(room.getCapacity());
+            out.writeInt(table.size());
+            for (int row = 0, n = table.rowCount(); row < n; row++) {
+                //removed rows start at Long.MAX_VALUE
+                if (table.start(row) != Long.MAX_VALUE) {
+                    int course = table.course(row);
+                    out.writeUTF(course == StringDictionary.NONE ? "" : StringDictionary.COURSES.get(course));
+                    out.writeLong(table.start(row));
+                    out.writeLong(table.end(row));
+                }
+            }
+        } catch (IOException e) {
+            //written to memory
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static byte[] bookingAdded(String course, long start, long end) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(course);
+            out.writeLong(start);
+            out.writeLong(end);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static byte[] bookingRemoved(long start) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(start);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
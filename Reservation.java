@@ -0,0 +1,25 @@
+package smart;
+
+import java.io.Serializable;
+
+//a student's place in a resource's waitlist, or once the resource comes back, the hold
+//keeping it for them until holdUntil. higher priorities go first, then earlier requests
+public record Reservation(String resourceId, String studentId, int priority, long requestedAt, long holdUntil)
+        implements Serializable, Comparable<Reservation> {
+    public static final int NORMAL = 0;
+    public static final int HIGH = 10;
+
+    public boolean isHold() {
+        return holdUntil > 0;
+    }
+
+    Reservation toHold(long until) {
+        return new Reservation(resourceId, studentId, priority, requestedAt, until);
+    }
+
+    @Override
+    public int compareTo(Reservation other) {
+        int byPriority = Integer.compare(other.priority, priority);
+        return byPriority != 0 ? byPriority : Long.compare(requestedAt, other.requestedAt);
+    }
+}
@@ -1,46 +1,136 @@
 package smart;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 
 public class Resource implements Serializable {
 	private static final long serialVersionUID = 1L;
+    //the .dat files keep the original layout, type and status as text. the loan times were
+    //added later and read as 0 from older files
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("id", String.class),
+        new ObjectStreamField("name", String.class),
+        new ObjectStreamField("type", String.class),
+        new ObjectStreamField("status", String.class),
+        new ObjectStreamField("checkedOutBy", String.class),
+        new ObjectStreamField("checkedOutAt", long.class),
+        new ObjectStreamField("dueAt", long.class)
+    };
     private String id;
     private String name;
-    private String type;
-    private String status;
+    //id in StringDictionary.RESOURCE_TYPES
+    private int type;
+    private ResourceStatus status;
+    //the student holding a checked out resource
     private String checkedOutBy;
-    
+    //epoch milliseconds of the current loan, 0 when not checked out or not known
+    private long checkedOutAt;
+    private long dueAt;
+    //bumped on every change so cached display cells know when to re-render
+    private transient int version;
+
 
     public Resource(String id, String name, String type, String status) {
         this.id = id;
         this.name = name;
-        this.type = type;
-        this.status = status;
-        this.checkedOutBy = null;
+        this.type = StringDictionary.RESOURCE_TYPES.id(type);
+        this.status = ResourceStatus.parse(status);
+        this.checkedOutBy = ResourceStatus.holderIn(status);
     }
-    
+
+    //a loan without known times, as imported or in older data
     public void checkOut(String studentId) {
+        checkOut(studentId, 0, 0);
+    }
+
+    public void checkOut(String studentId, long checkedOutAt, long dueAt) {
         this.checkedOutBy = studentId;
-        this.status = "Checked Out to " + studentId;
+        this.checkedOutAt = checkedOutAt;
+        this.dueAt = dueAt;
+        this.status = ResourceStatus.CHECKED_OUT;
+        version++;
+    }
+
+    //back from a loan, the caller decides what the status becomes
+    void endLoan() {
+        this.checkedOutBy = null;
+        this.checkedOutAt = 0;
+        this.dueAt = 0;
+        version++;
     }
 
     //getters and Setters
-    public String getId() { 
+    public String getId() {
     	return id; }
-    public String getName() { 
+    public String getName() {
     	return name; }
-    public void setName(String name) { 
-    	this.name = name; }
-    public String getType() { return type; }
-    public void setType(String type) { 
-    	this.type = type; }
-    public String getStatus() { 
+    public void setName(String name) {
+    	this.name = name;
+    	version++; }
+    public String getType() { return StringDictionary.RESOURCE_TYPES.get(type); }
+    public int getTypeId() { return type; }
+    public void setType(String type) {
+    	this.type = StringDictionary.RESOURCE_TYPES.id(type);
+    	version++; }
+    //the status as shown to users, including who has it when checked out
+    public String getStatus() {
+    	return status.describe(checkedOutBy); }
+    public ResourceStatus getStatusCode() {
     	return status; }
-    public void setStatus(String status) { 
-    	this.status = status; }
+    public void setStatus(ResourceStatus status) {
+    	this.status = status;
+    	version++; }
+    public void setStatus(String status) {
+    	setStatus(ResourceStatus.parse(status)); }
 	public String getCheckedOutBy() {
 		return checkedOutBy; }
 	public void setCheckedOutBy(String checkedOutBy) {
-		this.checkedOutBy = checkedOutBy; }
-	
+		this.checkedOutBy = checkedOutBy;
+		version++; }
+	public long getCheckedOutAt() {
+		return checkedOutAt; }
+	public long getDueAt() {
+		return dueAt; }
+	//the current loan, or null when the resource is not checked out
+	public Loan getLoan() {
+		return status == ResourceStatus.CHECKED_OUT
+			? new Loan(id, checkedOutBy, checkedOutAt, dueAt, 0) : null; }
+	public int getVersion() {
+		return version; }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("id", id);
+        fields.put("name", name);
+        fields.put("type", getType());
+        fields.put("status", getStatus());
+        fields.put("checkedOutBy", checkedOutBy);
+        fields.put("checkedOutAt", checkedOutAt);
+        fields.put("dueAt", dueAt);
+        out.writeFields();
+    }
+
+    //older files may hold any status text, anything unrecognised is treated as not
+    //available so it still cannot be checked out
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        id = (String) fields.get("id", null);
+        name = (String) fields.get("name", null);
+        type = StringDictionary.RESOURCE_TYPES.id((String) fields.get("type", null));
+        String text = (String) fields.get("status", null);
+        checkedOutBy = (String) fields.get("checkedOutBy", null);
+        checkedOutAt = fields.get("checkedOutAt", 0L);
+        dueAt = fields.get("dueAt", 0L);
+        try {
+            status = ResourceStatus.parse(text);
+        } catch (IllegalArgumentException e) {
+            status = ResourceStatus.MAINTENANCE;
+        }
+        if (checkedOutBy == null) {
+            checkedOutBy = ResourceStatus.holderIn(text);
+        }
+    }
 }
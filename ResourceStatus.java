@@ -0,0 +1,53 @@
+package smart;
+
+//what a resource can be doing. who has a checked out resource is kept next to it on the
+//Resource, so checking out no longer builds a "Checked Out to ..." string per resource.
+//who a resource is on hold for is kept with the waitlists in CampusService
+public enum ResourceStatus {
+    AVAILABLE("Available"),
+    MAINTENANCE("Maintenance"),
+    CHECKED_OUT("Checked Out"),
+    //returned while students were waiting, kept for the first of them for a while
+    ON_HOLD("On Hold");
+
+    private static final String HOLDER_PREFIX = "Checked Out to ";
+
+    private final String label;
+
+    ResourceStatus(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() { return label; }
+
+    //the text shown for a resource, "Checked Out to S1001" when the holder is known
+    public String describe(String holder) {
+        return this == CHECKED_OUT && holder != null ? HOLDER_PREFIX + holder : label;
+    }
+
+    //accepts the labels and the older "Checked Out to <id>" text, ignoring case
+    public static ResourceStatus parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Status cannot be empty");
+        }
+        String trimmed = text.trim();
+        for (ResourceStatus status : values()) {
+            if (status.label.equalsIgnoreCase(trimmed)) {
+                return status;
+            }
+        }
+        if (trimmed.regionMatches(true, 0, HOLDER_PREFIX, 0, HOLDER_PREFIX.length())) {
+            return CHECKED_OUT;
+        }
+        throw new IllegalArgumentException("Unknown status: " + text);
+    }
+
+    //the student ID in "Checked Out to <id>", or null
+    public static String holderIn(String text) {
+        if (text != null && text.regionMatches(true, 0, HOLDER_PREFIX, 0, HOLDER_PREFIX.length())) {
+            String holder = text.substring(HOLDER_PREFIX.length()).trim();
+            return holder.isEmpty() ? null : holder;
+        }
+        return null;
+    }
+}
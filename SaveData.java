@@ -11,28 +11,68 @@ class SaveData {
         new File(DATA_DIR).mkdirs();
     }
 
+    public static File dataDir() {
+        return new File(DATA_DIR);
+    }
+
     public static <T> void saveData(String filename, List<T> data) {
+        saveData(new File(DATA_DIR), filename, data);
+    }
+
+    //same as above for another data directory, e.g. a scratch copy used by the benchmarks
+    public static <T> void saveData(File dir, String filename, List<T> data) {
+        long started = System.nanoTime();
+        CampusEvents.DataFileSave event = new CampusEvents.DataFileSave();
+        event.begin();
+        File file = new File(dir, filename);
         try (ObjectOutputStream oos = new ObjectOutputStream(
-             new FileOutputStream(DATA_DIR + filename))) {
+             new FileOutputStream(file))) {
             oos.writeObject(data);
         } catch (IOException e) {
+            CampusMetrics.SAVE_ERRORS.increment();
             System.err.println("There has been an error while saving " + filename + ": " + e.getMessage());
+        } finally {
+            CampusMetrics.SAVE.recordSince(started);
+            if (event.shouldCommit()) {
+                event.file = filename;
+                event.entities = data.size();
+                event.bytes = file.length();
+                event.commit();
+            }
         }
     }
 
-    @SuppressWarnings("unchecked")
     public static <T> List<T> loadData(String filename) {
-        File file = new File(DATA_DIR + filename);
+        return loadData(new File(DATA_DIR), filename);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> List<T> loadData(File dir, String filename) {
+        File file = new File(dir, filename);
         if (!file.exists()) {
             return new ArrayList<>();
         }
-        
+
+        long started = System.nanoTime();
+        CampusEvents.DataFileLoad event = new CampusEvents.DataFileLoad();
+        event.begin();
+        List<T> data = null;
         try (ObjectInputStream ois = new ObjectInputStream(
              new FileInputStream(file))) {
-            return (List<T>) ois.readObject();
+            data = (List<T>) ois.readObject();
+            return data;
         } catch (IOException | ClassNotFoundException e) {
+            CampusMetrics.LOAD_ERRORS.increment();
             System.out.println("There is no existing " + filename + " found or a reading error has occured. Starting anew.");
             return new ArrayList<>();
+        } finally {
+            CampusMetrics.LOAD.recordSince(started);
+            if (event.shouldCommit()) {
+                event.file = filename;
+                event.entities = data == null ? 0 : data.size();
+                event.bytes = file.length();
+                event.commit();
+            }
         }
     }
 }
@@ -1,14 +1,21 @@
 package smart;
-package smart;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.HierarchyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.TextStyle;
 import java.util.*;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -22,81 +29,53 @@ public class SmartCampusSystem {
     private CardLayout cardLayout;
     private JPanel cardPanel;
     
-    //data storage
-    private List<Student> students = new ArrayList<>();
-    private List<Classroom> classrooms = new ArrayList<>();
-    private List<Resource> resources = new ArrayList<>();
+    //data storage and business rules
+    private final CampusService service;
+    
+    //formatted booking times and resource statuses, reused across panel rebuilds
+    private final DisplayCache displayCache = new DisplayCache(20_000);
     
     public SmartCampusSystem() {
     	//load data from files
-        students = SaveData.loadData("students.dat");
-        classrooms = SaveData.loadData("classrooms.dat");
-        resources = SaveData.loadData("resources.dat");
-
-        //if no data exists, initialise with the sample data
-        if (students.isEmpty() && classrooms.isEmpty() && resources.isEmpty()) {
-            initSampleData();
-        }
+        this(CampusService.load());
+    }
+    
+    public SmartCampusSystem(CampusService service) {
+        this.service = service;
+        
+        //another instance sharing the data directory saved, take its changes in on the event
+        //dispatch thread, which the panels read the lists on, and show them here too. set
+        //before the panels are built, building them reads bookings in and may evict others
+        service.watchDataDir(SwingUtilities::invokeLater,
+            changes -> SwingUtilities.invokeLater(() -> showExternalChanges(changes)));
         
         createMainFrame();
         createMenuBar();
         createPanels();
         mainFrame.setVisible(true);
         mainFrame.setResizable(false);
-        
     }
    
-    private void initSampleData() {
-        //sample students
-        students.add(new Student("S1001", "Josh Williams", "Animation", "JWilliams@SmartUni.edu"));
-        students.add(new Student("S1002", "Maria Kool", "Engineering", "MKool@SmartUni.edu"));
-        students.add(new Student("S1003", "Nico Robin", "Ancient History", "NRobin@SmartUni.edu"));
-        students.add(new Student("S1004", "Ben Leslie", "Culinary Arts", "BLeslie@SmartUni.edu"));
-        
-        //sample classrooms
-        classrooms.add(new Classroom("R101", "Lecture Hall", 120));
-        classrooms.add(new Classroom("R202", "Computer Lab", 30));
-        classrooms.add(new Classroom("R305", "Seminar Room", 20));
-        
-        //sample bookings
-        classrooms.get(0).addBooking("CS101", LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(1).plusHours(2));
-        classrooms.get(1).addBooking("ENG201", LocalDateTime.now().plusDays(2), LocalDateTime.now().plusDays(2).plusHours(3));
-        
-        //sample resources
-        resources.add(new Resource("B001", "Advanced Java Programming", "Book", "Available"));
-        resources.add(new Resource("L002", "Microscope", "Lab Equipment", "Checked Out"));
-        resources.add(new Resource("C003", "Arduino Kit", "Electronics", "Available"));
-        
-        saveAllData();
-    }
-    
     private void saveAllData() {
-    	SaveData.saveData("students.dat", students);
-    	SaveData.saveData("classrooms.dat", classrooms);
-    	SaveData.saveData("resources.dat", resources);
+    	service.saveAllData();
     }
     
-    private Student searchForStudent(String searchTerm) {
-        return students.stream()
-            .filter(student -> 
-                student.getId().equalsIgnoreCase(searchTerm) || 
-                student.getName().toLowerCase().contains(searchTerm.toLowerCase()))
-            .findFirst()
-            .orElse(null);
-    }
-    
-    private Resource searchForResource(String searchTerm) {
-        return resources.stream()
-            .filter(resource -> 
-            	resource.getId().equalsIgnoreCase(searchTerm) || 
-            	resource.getName().toLowerCase().contains(searchTerm.toLowerCase()))
-            .findFirst()
-            .orElse(null);
+    //rebuilds only the panels whose data changed, staying on the panel being shown
+    private void showExternalChanges(ExternalChanges changes) {
+        if (changes.students() > 0) {
+            refreshStudentsPanel();
+        }
+        if (changes.classrooms() > 0 || !changes.rooms().isEmpty()) {
+            refreshClassroomsPanel();
+        }
+        if (changes.resources() > 0) {
+            refreshResourcesPanel();
+        }
+        cardLayout.show(cardPanel, currentPanel);
     }
     
     private String getCheckedOutResources(String studentId) {
-        return resources.stream()
-        	.filter(r -> studentId.equals(r.getCheckedOutBy()))
+        return service.getCheckedOutResources(studentId).stream()
             .map(r -> "- " + r.getName() + " (" + r.getId() + ")")
             .collect(Collectors.joining("\n"));
     }
@@ -205,9 +184,18 @@ public class SmartCampusSystem {
         });
 
         
+        JMenuItem diagnosticsItem = new JMenuItem("Diagnostics");
+        diagnosticsItem.addActionListener(_ -> {
+            cardLayout.show(cardPanel, "diagnostics");
+            currentPanel = "diagnostics";
+            updateWindowResizable();
+        });
+
         navMenu.add(studentsItem);
         navMenu.add(classroomsItem);
         navMenu.add(resourcesItem);
+        navMenu.addSeparator();
+        navMenu.add(diagnosticsItem);
         
         //help menu
         JMenu helpMenu = new JMenu("Help");
@@ -237,6 +225,7 @@ public class SmartCampusSystem {
         cardPanel.add(createStudentsPanel(), "students");
         cardPanel.add(createClassroomsPanel(), "classrooms");
         cardPanel.add(createResourcesPanel(), "resources");
+        cardPanel.add(new DiagnosticsPanel(PRIMARY_COLOR), "diagnostics");
         
         mainFrame.add(cardPanel);
     }
@@ -312,11 +301,18 @@ public class SmartCampusSystem {
         statusPanel.add(statusLabel);
         panel.add(statusPanel, BorderLayout.SOUTH);
         
+        //live campus numbers, cheap to read so they can tick every second while showing
+        javax.swing.Timer statsTimer = new javax.swing.Timer(1000, _ -> showCampusStats(statusLabel));
+        
         panel.addHierarchyListener(e -> {
             if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
                 if (panel.isShowing()) {
                     currentPanel = "welcome";
                     updateWindowResizable();
+                    showCampusStats(statusLabel);
+                    statsTimer.start();
+                } else {
+                    statsTimer.stop();
                 }
             }
         });
@@ -325,6 +321,19 @@ public class SmartCampusSystem {
     }
     
 
+    private void showCampusStats(JLabel statusLabel) {
+        CampusStats stats = service.getStats();
+        statusLabel.setText(String.format(
+            "Students: %d   |   Rooms in use: %d of %d   |   Resources available: %d of %d   |   Checked out: %d (%d overdue)   |   On hold: %d",
+            stats.students(), stats.roomsInUse(), stats.rooms(), stats.available(), stats.resources(),
+            stats.checkedOut(), stats.overdue(), stats.onHold()));
+        StringBuilder tip = new StringBuilder("<html><b>Available by type</b>");
+        stats.availableByType().forEach((type, count) -> tip.append("<br>").append(type).append(": ").append(count));
+        tip.append("<br><br><b>Students by degree</b>");
+        stats.studentsByDegree().forEach((degree, count) -> tip.append("<br>").append(degree).append(": ").append(count));
+        statusLabel.setToolTipText(tip.append("</html>").toString());
+    }
+    
     private JPanel createScreenshotCard(String title, String imagePath) {
         JPanel panel = new JPanel(new BorderLayout(5, 5));
         panel.setBackground(Color.WHITE);
@@ -363,18 +372,8 @@ public class SmartCampusSystem {
         panel.add(titleLabel, BorderLayout.NORTH);
         
         //table for displaying students
-        String[] columnNames = {"Student ID", "Name", "Degree", "Email"};
-        Object[][] data = new Object[students.size()][4];
-        
-        for (int i = 0; i < students.size(); i++) {
-            Student student = students.get(i);
-            data[i][0] = student.getId();
-            data[i][1] = student.getName();
-            data[i][2] = student.getDegree();
-            data[i][3] = student.getEmail();
-        }
-        
-        JTable studentTable = new JTable(data, columnNames);
+        Object[][] data = TableData.studentRows(service.getStudents());
+        JTable studentTable = new JTable(data, TableData.STUDENT_COLUMNS);
         studentTable.setFillsViewportHeight(true);
         JScrollPane scrollPane = new JScrollPane(studentTable);
         
@@ -391,7 +390,7 @@ public class SmartCampusSystem {
         editButton.addActionListener(_ -> {
             int selectedRow = studentTable.getSelectedRow();
             if (selectedRow >= 0) {
-                showEditStudentDialog(students.get(selectedRow));
+                showEditStudentDialog(service.getStudents().get(selectedRow));
             } else {
                 JOptionPane.showMessageDialog(panel, "Please select a student to edit.", "No Selection.", JOptionPane.WARNING_MESSAGE);
             }
@@ -412,10 +411,25 @@ public class SmartCampusSystem {
             }
         });
         
+        JButton importButton = new JButton("Import Students");
+        importButton.addActionListener(_ -> showImportStudentsDialog());
+        
+        JButton timetableButton = new JButton("Timetable");
+        timetableButton.addActionListener(_ -> {
+            int selectedRow = studentTable.getSelectedRow();
+            if (selectedRow >= 0) {
+                showTimetableDialog(service.getStudents().get(selectedRow));
+            } else {
+                JOptionPane.showMessageDialog(panel, "Please select a student to see their timetable.", "No Selection.", JOptionPane.WARNING_MESSAGE);
+            }
+        });
+        
         buttonPanel.add(addButton);
         buttonPanel.add(searchButton);
         buttonPanel.add(editButton);
         buttonPanel.add(deleteButton);
+        buttonPanel.add(importButton);
+        buttonPanel.add(timetableButton);
         
         panel.add(scrollPane, BorderLayout.CENTER);
         panel.add(buttonPanel, BorderLayout.SOUTH);
@@ -423,15 +437,124 @@ public class SmartCampusSystem {
         return panel;
     }
     
-    
-    private boolean isStudentIdUnique(String id) {
-        return students.stream().noneMatch(s -> s.getId().equalsIgnoreCase(id));
+    //imports a whole intake from a CSV or JSON Lines file, off the event thread
+    //the student's courses, with enroll and drop, and their next four weeks of classes
+    private void showTimetableDialog(Student student) {
+        JDialog dialog = new JDialog(mainFrame, "Timetable for " + student.getName(), true);
+        dialog.setSize(600, 500);
+        dialog.setLocationRelativeTo(mainFrame);
+        
+        DefaultListModel<String> courseModel = new DefaultListModel<>();
+        JList<String> courseList = new JList<>(courseModel);
+        JTextArea timetableArea = new JTextArea();
+        timetableArea.setEditable(false);
+        
+        Runnable refresh = () -> {
+            courseModel.clear();
+            service.getEnrolledCourses(student.getId()).forEach(courseModel::addElement);
+            StringBuilder text = new StringBuilder();
+            List<TimetableClash> clashes = service.getTimetableClashes(student.getId());
+            for (TimetableClash clash : clashes) {
+                text.append("CLASH: ").append(clash.course()).append(" and ").append(clash.otherCourse())
+                    .append(" overlap ").append(clash.occurrences()).append(" time(s), first ")
+                    .append(clash.firstStart().format(TIME_FORMAT)).append('\n');
+            }
+            if (!clashes.isEmpty()) {
+                text.append('\n');
+            }
+            LocalDateTime now = LocalDateTime.now();
+            for (Booking booking : service.getTimetable(student.getId(), now, now.plusWeeks(4))) {
+                text.append(booking.getStartTime().format(TIME_FORMAT)).append(" - ")
+                    .append(booking.getEndTime().toLocalTime()).append("  ")
+                    .append(booking.getCourse()).append(" in ")
+                    .append(booking.getClassroom().getRoomNumber()).append('\n');
+            }
+            if (text.isEmpty()) {
+                text.append("No classes in the next four weeks.");
+            }
+            timetableArea.setText(text.toString());
+        };
+        refresh.run();
+        
+        JButton enrollButton = new JButton("Enroll");
+        enrollButton.addActionListener(_ -> {
+            String course = JOptionPane.showInputDialog(dialog, "Course code:", "Enroll", JOptionPane.QUESTION_MESSAGE);
+            if (course == null || course.isBlank()) {
+                return;
+            }
+            try {
+                service.enrollStudent(student.getId(), course);
+            } catch (IllegalArgumentException | IllegalStateException ex) {
+                JOptionPane.showMessageDialog(dialog, ex.getMessage(), "Cannot Enroll", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            saveAllData();
+            refresh.run();
+        });
+        
+        JButton dropButton = new JButton("Drop");
+        dropButton.addActionListener(_ -> {
+            String course = courseList.getSelectedValue();
+            if (course == null) {
+                JOptionPane.showMessageDialog(dialog, "Please select a course to drop.", "No Selection", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            service.dropCourse(student.getId(), course);
+            saveAllData();
+            refresh.run();
+        });
+        
+        JPanel coursePanel = new JPanel(new BorderLayout(5, 5));
+        coursePanel.setBorder(BorderFactory.createTitledBorder("Courses"));
+        coursePanel.setPreferredSize(new Dimension(160, 0));
+        coursePanel.add(new JScrollPane(courseList), BorderLayout.CENTER);
+        JPanel courseButtons = new JPanel(new GridLayout(1, 2, 5, 5));
+        courseButtons.add(enrollButton);
+        courseButtons.add(dropButton);
+        coursePanel.add(courseButtons, BorderLayout.SOUTH);
+        
+        JScrollPane timetableScroll = new JScrollPane(timetableArea);
+        timetableScroll.setBorder(BorderFactory.createTitledBorder("Next four weeks"));
+        
+        dialog.add(coursePanel, BorderLayout.WEST);
+        dialog.add(timetableScroll, BorderLayout.CENTER);
+        dialog.setVisible(true);
     }
     
-    private boolean isValidEmail(String email) {
-        return email.matches("^[\\w.-]+@[\\w.-]+\\.edu$");
+    private void showImportStudentsDialog() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Students (CSV with id,name,degree,email header, or JSON Lines)");
+        if (chooser.showOpenDialog(mainFrame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        
+        new SwingWorker<BulkTransfer.Report, Void>() {
+            @Override
+            protected BulkTransfer.Report doInBackground() throws Exception {
+                return new BulkTransfer(service).importFile(BulkTransfer.Kind.STUDENTS, file);
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    BulkTransfer.Report report = get();
+                    StringBuilder message = new StringBuilder(report.toString());
+                    report.getErrors().stream().limit(10).forEach(e -> 
+                        message.append("\nLine ").append(e.line()).append(": ").append(e.message()));
+                    if (report.getErrors().size() > 10) {
+                        message.append("\n...");
+                    }
+                    refreshStudentsPanel();
+                    JOptionPane.showMessageDialog(mainFrame, message.toString(), "Import Complete", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(mainFrame, "The import failed: " + ex.getMessage(), "Import Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
     }
     
+    
     private void showAddStudentDialog() {
         JDialog dialog = new JDialog(mainFrame, "Add New Student", true);
         dialog.setSize(400, 300);
@@ -464,20 +587,14 @@ public class SmartCampusSystem {
                 return;
             }
             
-            if (!isStudentIdUnique(id)) {
-                JOptionPane.showMessageDialog(dialog, "Student ID already exists!", "Error", JOptionPane.ERROR_MESSAGE);
+            //add students and save, the service checks the ID is unique and the email format
+            try {
+                service.addStudent(id, name, degree, email);
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(dialog, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 //cancel save
                 return;
             }
-            
-            //ensure it is the correct email format
-            if (!isValidEmail(email)) {
-                JOptionPane.showMessageDialog(dialog, "Email must be a valid .edu address!", "Error", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-            
-            //add students and save
-            students.add(new Student(id, name, degree, email));
             saveAllData();
             refreshStudentsPanel();
             dialog.dispose();
@@ -522,7 +639,7 @@ public class SmartCampusSystem {
 
         //the search action
         searchButton.addActionListener(_ -> {
-            Student found = searchForStudent(searchField.getText().trim());
+            Student found = service.searchForStudent(searchField.getText().trim());
             if (found != null) {
                 resultArea.setText(formatStudentDetails(found));
             } else {
@@ -587,14 +704,12 @@ public class SmartCampusSystem {
                 return;
             }
             
-            if (!isValidEmail(email)) {
-                JOptionPane.showMessageDialog(dialog, "Email must be a valid .edu address!", "Error", JOptionPane.ERROR_MESSAGE);
+            try {
+                service.updateStudent(student, name, degree, email);
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(dialog, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
-            
-            student.setName(name);
-            student.setDegree(degree);
-            student.setEmail(email);
             saveAllData();
             refreshStudentsPanel();
             dialog.dispose();
@@ -624,7 +739,7 @@ public class SmartCampusSystem {
             "Are you sure you want to delete this student? This cannot be undone!", "Confirm Deletion", JOptionPane.YES_NO_OPTION);
         
         if (confirm == JOptionPane.YES_OPTION) {
-            students.remove(index);
+            service.removeStudent(service.getStudents().get(index));
             //ensure all changes apply
             saveAllData();
             refreshStudentsPanel();
@@ -633,24 +748,29 @@ public class SmartCampusSystem {
     
     
     private void refreshStudentsTable(JTable table) {
-        Object[][] data = new Object[students.size()][4];
-        
-        for (int i = 0; i < students.size(); i++) {
-            Student student = students.get(i);
-            data[i][0] = student.getId();
-            data[i][1] = student.getName();
-            data[i][2] = student.getDegree();
-            data[i][3] = student.getEmail();
-        }
-        
-        table.setModel(new javax.swing.table.DefaultTableModel(data, new String[]{"Student ID", "Name", "Degree", "Email"}));
+        CampusEvents.PanelRebuild event = new CampusEvents.PanelRebuild();
+        event.begin();
+        Object[][] data = TableData.studentRows(service.getStudents());
+        table.setModel(new javax.swing.table.DefaultTableModel(data, TableData.STUDENT_COLUMNS));
+        commitRebuild(event, "studentsTable", data.length);
     }
     
     private void refreshStudentsPanel() {
+        CampusEvents.PanelRebuild event = new CampusEvents.PanelRebuild();
+        event.begin();
     	//remove students panel
         cardPanel.remove(1);
         cardPanel.add(createStudentsPanel(), "students", 1); //add new students panel at same position
         cardLayout.show(cardPanel, "students");
+        commitRebuild(event, "students", service.getStudents().size());
+    }
+
+    private static void commitRebuild(CampusEvents.PanelRebuild event, String panel, int rows) {
+        if (event.shouldCommit()) {
+            event.panel = panel;
+            event.rows = rows;
+            event.commit();
+        }
     }
     
     private JPanel createClassroomsPanel() {
@@ -669,17 +789,9 @@ public class SmartCampusSystem {
         //classroom list tab
         JPanel classroomListPanel = new JPanel(new BorderLayout());
         
-        String[] classroomColumns = {"Room Number", "Type", "Capacity"};
-        Object[][] classroomData = new Object[classrooms.size()][3];
-        
-        for (int i = 0; i < classrooms.size(); i++) {
-            Classroom room = classrooms.get(i);
-            classroomData[i][0] = room.getRoomNumber();
-            classroomData[i][1] = room.getType();
-            classroomData[i][2] = room.getCapacity();
-        }
-        
-        JTable classroomTable = new JTable(classroomData, classroomColumns);
+        List<Classroom> classrooms = service.getClassrooms();
+        Object[][] classroomData = TableData.classroomRows(classrooms);
+        JTable classroomTable = new JTable(classroomData, TableData.CLASSROOM_COLUMNS);
         JScrollPane classroomScrollPane = new JScrollPane(classroomTable);
         
         //button panel for classrooms
@@ -698,8 +810,37 @@ public class SmartCampusSystem {
             }
         });
         
+        JButton timelineButton = new JButton("Timeline");
+        timelineButton.addActionListener(_ -> showTimelineDialog());
+        
+        JButton utilizationButton = new JButton("Utilization");
+        utilizationButton.addActionListener(_ -> showUtilizationDialog());
+        
         classroomButtonPanel.add(addClassroomButton);
         classroomButtonPanel.add(viewBookingsButton);
+        classroomButtonPanel.add(timelineButton);
+        classroomButtonPanel.add(utilizationButton);
+        
+        JButton archiveButton = new JButton("Archive Past Bookings");
+        archiveButton.addActionListener(_ -> {
+            LocalDate horizon = LocalDate.now().minus(service.getArchiveAge());
+            int confirm = JOptionPane.showConfirmDialog(panel,
+                "Move bookings that ended before " + horizon.format(DateTimeFormatter.ofPattern("dd-MM-yyyy")) +
+                " to the archive?\nThey can still be seen from View Bookings > Past Bookings.",
+                "Archive Bookings", JOptionPane.YES_NO_OPTION);
+            if (confirm != JOptionPane.YES_OPTION) {
+                return;
+            }
+            try {
+                int archived = service.archivePastBookings();
+                refreshClassroomsPanel();
+                JOptionPane.showMessageDialog(mainFrame, archived + " bookings archived.", "Archive Bookings",
+                    JOptionPane.INFORMATION_MESSAGE);
+            } catch (IllegalStateException ex) {
+                JOptionPane.showMessageDialog(panel, ex.getMessage(), "Archive Failed", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        classroomButtonPanel.add(archiveButton);
         
         classroomListPanel.add(classroomScrollPane, BorderLayout.CENTER);
         classroomListPanel.add(classroomButtonPanel, BorderLayout.SOUTH);
@@ -710,23 +851,10 @@ public class SmartCampusSystem {
         JPanel bookingPanel = new JPanel(new BorderLayout());
         
         //create a list of all bookings from all classrooms
-        List<Booking> allBookings = new ArrayList<>();
-        for (Classroom room : classrooms) {
-            allBookings.addAll(room.getBookings());
-        }
-        
-        String[] bookingColumns = {"Room", "Course", "Start Time", "End Time"};
-        Object[][] bookingData = new Object[allBookings.size()][4];
+        List<Booking> allBookings = service.getAllBookings();
         
-        for (int i = 0; i < allBookings.size(); i++) {
-            Booking booking = allBookings.get(i);
-            bookingData[i][0] = booking.getClassroom().getRoomNumber();
-            bookingData[i][1] = booking.getCourse();
-            bookingData[i][2] = booking.getStartTime().format(TIME_FORMAT);
-            bookingData[i][3] = booking.getEndTime().format(TIME_FORMAT);
-        }
-        
-        JTable bookingTable = new JTable(bookingData, bookingColumns);
+        Object[][] bookingData = TableData.bookingRows(allBookings, displayCache);
+        JTable bookingTable = new JTable(bookingData, TableData.BOOKING_COLUMNS);
         JScrollPane bookingScrollPane = new JScrollPane(bookingTable);
         
         //button panel for bookings
@@ -739,7 +867,10 @@ public class SmartCampusSystem {
         editBookingButton.addActionListener(_ -> {
             int selectedRow = bookingTable.getSelectedRow();
             if (selectedRow >= 0) {
-                showEditBookingDialog(allBookings.get(selectedRow));
+                Booking booking = listedBooking(panel, allBookings.get(selectedRow));
+                if (booking != null) {
+                    showEditBookingDialog(booking);
+                }
             } else {
                 JOptionPane.showMessageDialog(panel, "Please select a booking to edit.", "No Selection", JOptionPane.WARNING_MESSAGE);
             }
@@ -749,11 +880,14 @@ public class SmartCampusSystem {
         deleteBookingButton.addActionListener(_ -> {
             int selectedRow = bookingTable.getSelectedRow();
             if (selectedRow >= 0) {
-                Booking booking = allBookings.get(selectedRow);
+                Booking booking = listedBooking(panel, allBookings.get(selectedRow));
+                if (booking == null) {
+                    return;
+                }
                 int confirm = JOptionPane.showConfirmDialog(panel, 
                     "Are you sure you want to delete this booking?", "Confirm Deletion", JOptionPane.YES_NO_OPTION);
                 if (confirm == JOptionPane.YES_OPTION) {
-                    booking.getClassroom().removeBooking(booking);
+                    service.removeBooking(booking);
                     refreshClassroomsPanel();
                 }
             } else {
@@ -805,7 +939,7 @@ public class SmartCampusSystem {
             
             try {
                 int capacity = Integer.parseInt(capacityStr);
-                classrooms.add(new Classroom(roomNumber, type, capacity));
+                service.addClassroom(roomNumber, type, capacity);
                 dialog.dispose();
                 refreshClassroomsPanel();
             } catch (NumberFormatException ex) {
@@ -845,17 +979,8 @@ public class SmartCampusSystem {
         
         //bookings table
         List<Booking> bookings = classroom.getBookings();
-        String[] columns = {"Course", "Start Time", "End Time"};
-        Object[][] data = new Object[bookings.size()][3];
-        
-        for (int i = 0; i < bookings.size(); i++) {
-            Booking booking = bookings.get(i);
-            data[i][0] = booking.getCourse();
-            data[i][1] = booking.getStartTime().format(TIME_FORMAT);
-            data[i][2] = booking.getEndTime().format(TIME_FORMAT);
-        }
-        
-        JTable bookingsTable = new JTable(data, columns);
+        Object[][] data = TableData.roomBookingRows(bookings, displayCache);
+        JTable bookingsTable = new JTable(data, TableData.ROOM_BOOKING_COLUMNS);
         JScrollPane scrollPane = new JScrollPane(bookingsTable);
         panel.add(scrollPane, BorderLayout.CENTER);
         
@@ -895,9 +1020,13 @@ public class SmartCampusSystem {
             }
         });
         
+        JButton pastButton = new JButton("Past Bookings");
+        pastButton.addActionListener(_ -> showArchivedBookingsDialog(dialog, classroom));
+        
         buttonPanel.add(addButton);
         buttonPanel.add(editButton);
         buttonPanel.add(deleteButton);
+        buttonPanel.add(pastButton);
         
         panel.add(buttonPanel, BorderLayout.SOUTH);
         
@@ -905,6 +1034,161 @@ public class SmartCampusSystem {
         dialog.setVisible(true);
     }
     
+    //the room's archived bookings, read from the archive files only now
+    private void showArchivedBookingsDialog(JDialog owner, Classroom classroom) {
+        List<ArchivedBooking> archived = service.getArchivedBookings(classroom.getRoomNumber());
+        Object[][] data = new Object[archived.size()][];
+        for (int i = 0; i < data.length; i++) {
+            ArchivedBooking booking = archived.get(i);
+            data[i] = new Object[]{booking.course(), booking.startTime().format(TIME_FORMAT),
+                booking.endTime().format(TIME_FORMAT)};
+        }
+        JDialog dialog = new JDialog(owner, "Past Bookings for " + classroom.getRoomNumber(), true);
+        dialog.setSize(500, 400);
+        dialog.setLocationRelativeTo(owner);
+        JTable table = new JTable(new javax.swing.table.DefaultTableModel(data, new String[]{"Course", "Start", "End"}) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        });
+        dialog.add(new JScrollPane(table), BorderLayout.CENTER);
+        dialog.add(new JLabel(archived.size() + " archived bookings", JLabel.CENTER), BorderLayout.SOUTH);
+        dialog.setVisible(true);
+    }
+    
+    private void showTimelineDialog() {
+        JDialog dialog = new JDialog(mainFrame, "Room Occupancy Timeline", false);
+        dialog.setSize(950, 600);
+        dialog.setLocationRelativeTo(mainFrame);
+        
+        //a term's worth of weeks, starting from the monday of this week
+        LocalDate firstDay = LocalDate.now().with(DayOfWeek.MONDAY);
+        OccupancyTimeline timeline = new OccupancyTimeline(service.getClassrooms(), firstDay, 16 * 7, OccupancyTimeline.WEEK_SCALE);
+        
+        JScrollPane scrollPane = new JScrollPane(timeline);
+        scrollPane.setRowHeaderView(timeline.createRowHeader());
+        scrollPane.setColumnHeaderView(timeline.createColumnHeader());
+        //tiles are cached, so blitting is cheaper than Swing's backing store copy
+        scrollPane.getViewport().setScrollMode(JViewport.BLIT_SCROLL_MODE);
+        
+        //zoom controls
+        JPanel zoomPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+        JToggleButton weekButton = new JToggleButton("Week", true);
+        JToggleButton dayButton = new JToggleButton("Day");
+        ButtonGroup zoomGroup = new ButtonGroup();
+        zoomGroup.add(weekButton);
+        zoomGroup.add(dayButton);
+        weekButton.addActionListener(_ -> zoomTimeline(timeline, scrollPane, OccupancyTimeline.WEEK_SCALE));
+        dayButton.addActionListener(_ -> zoomTimeline(timeline, scrollPane, OccupancyTimeline.DAY_SCALE));
+        
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(_ -> timeline.repaint());
+        
+        zoomPanel.add(new JLabel("Zoom:"));
+        zoomPanel.add(weekButton);
+        zoomPanel.add(dayButton);
+        zoomPanel.add(refreshButton);
+        
+        dialog.add(zoomPanel, BorderLayout.NORTH);
+        dialog.add(scrollPane, BorderLayout.CENTER);
+        dialog.setVisible(true);
+    }
+    
+    //booked hours per room type and an hour of week heatmap between two dates
+    private void showUtilizationDialog() {
+        JDialog dialog = new JDialog(mainFrame, "Room Utilization", false);
+        dialog.setSize(950, 500);
+        dialog.setLocationRelativeTo(mainFrame);
+        
+        LocalDate monday = LocalDate.now().with(DayOfWeek.MONDAY);
+        JTextField fromField = new JTextField(monday.minusWeeks(12).toString(), 10);
+        JTextField toField = new JTextField(monday.plusWeeks(1).toString(), 10);
+        JButton runButton = new JButton("Report");
+        JButton exportButton = new JButton("Export CSV");
+        exportButton.setEnabled(false);
+        JLabel summaryLabel = new JLabel(" ");
+        
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+        controls.add(new JLabel("From (yyyy-MM-dd):"));
+        controls.add(fromField);
+        controls.add(new JLabel("To:"));
+        controls.add(toField);
+        controls.add(runButton);
+        controls.add(exportButton);
+        
+        String[] typeColumns = {"Type", "Rooms", "Bookings", "Booked Hours", "Of Opening Hours", "Of Seat Hours"};
+        String[] heatColumns = new String[25];
+        heatColumns[0] = "Day";
+        for (int hour = 0; hour < 24; hour++) {
+            heatColumns[hour + 1] = String.format("%02d", hour);
+        }
+        javax.swing.table.DefaultTableModel typeModel = new javax.swing.table.DefaultTableModel(typeColumns, 0);
+        javax.swing.table.DefaultTableModel heatModel = new javax.swing.table.DefaultTableModel(heatColumns, 0);
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("By Type", new JScrollPane(new JTable(typeModel)));
+        tabs.addTab("Heatmap (% of room time booked)", new JScrollPane(new JTable(heatModel)));
+        
+        UtilizationReport[] current = new UtilizationReport[1];
+        runButton.addActionListener(_ -> {
+            UtilizationReport report;
+            try {
+                report = service.reportUtilization(LocalDate.parse(fromField.getText().trim()).atStartOfDay(),
+                    LocalDate.parse(toField.getText().trim()).atStartOfDay());
+            } catch (DateTimeParseException | IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(dialog, ex.getMessage(), "Invalid Range", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            current[0] = report;
+            typeModel.setRowCount(0);
+            for (UtilizationReport.TypeUtilization type : report.getTypes()) {
+                typeModel.addRow(new Object[]{type.type(), type.rooms(), type.bookings(),
+                    String.format("%.0f", type.bookedHours()), String.format("%.1f%%", type.utilization() * 100),
+                    String.format("%.1f%%", type.seatUtilization() * 100)});
+            }
+            heatModel.setRowCount(0);
+            for (DayOfWeek day : DayOfWeek.values()) {
+                Object[] row = new Object[25];
+                row[0] = day.getDisplayName(TextStyle.SHORT, Locale.getDefault());
+                for (int hour = 0; hour < 24; hour++) {
+                    row[hour + 1] = String.format("%.0f", report.getOccupancy(day, hour) * 100);
+                }
+                heatModel.addRow(row);
+            }
+            summaryLabel.setText(String.format("%d rooms, %.1f%% of opening hours booked",
+                report.getRooms().size(), report.getUtilization() * 100));
+            exportButton.setEnabled(true);
+        });
+        exportButton.addActionListener(_ -> {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+            if (chooser.showSaveDialog(dialog) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            try {
+                current[0].writeCsv(chooser.getSelectedFile().toPath());
+                JOptionPane.showMessageDialog(dialog, "rooms.csv, types.csv and heatmap.csv written to "
+                    + chooser.getSelectedFile(), "Export Complete", JOptionPane.INFORMATION_MESSAGE);
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(dialog, ex.getMessage(), "Export Failed", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        
+        dialog.add(controls, BorderLayout.NORTH);
+        dialog.add(tabs, BorderLayout.CENTER);
+        dialog.add(summaryLabel, BorderLayout.SOUTH);
+        dialog.setVisible(true);
+    }
+    
+    //keeps the day currently at the left edge in view when changing zoom
+    private void zoomTimeline(OccupancyTimeline timeline, JScrollPane scrollPane, int hourWidth) {
+        JViewport viewport = scrollPane.getViewport();
+        Point position = viewport.getViewPosition();
+        int day = position.x / timeline.getDayWidth();
+        timeline.setHourWidth(hourWidth);
+        viewport.setViewPosition(new Point(day * timeline.getDayWidth(), position.y));
+    }
+    
     private void showAddBookingDialog(Classroom specificClassroom) {
         JDialog dialog = new JDialog(mainFrame, "Add New Booking", true);
         dialog.setSize(500, 300);
@@ -921,7 +1205,7 @@ public class SmartCampusSystem {
             roomCombo.addItem(specificClassroom);
             roomCombo.setEnabled(false);
         } else {
-            for (Classroom room : classrooms) {
+            for (Classroom room : service.getClassrooms()) {
                 roomCombo.addItem(room);
             }
         }
@@ -941,49 +1225,42 @@ public class SmartCampusSystem {
             String course = courseField.getText();
             String startStr = startField.getText();
             String endStr = endField.getText();
-            //different format for booking conflict 
-            LocalDateTime sTime = LocalDateTime.parse(startField.getText(), TIME_FORMAT);
-            LocalDateTime eTime = LocalDateTime.parse(endField.getText(), TIME_FORMAT);
             
-            if (isBookingConflict(selectedRoom, sTime, eTime)) { 
-                JOptionPane.showMessageDialog(dialog, 
-                    "This timeslot conflicts with an existing booking!", 
-                    "Conflict Error", JOptionPane.ERROR_MESSAGE);
+            if (course.isEmpty() || startStr.isEmpty() || endStr.isEmpty()) {
+                JOptionPane.showMessageDialog(dialog, "Please fill in all fields.", "Incomplete Information", JOptionPane.WARNING_MESSAGE);
                 return;
             }
             
-            if (course.isEmpty() || startStr.isEmpty() || endStr.isEmpty()) {
-                JOptionPane.showMessageDialog(dialog, "Please fill in all fields.", "Incomplete Information", JOptionPane.WARNING_MESSAGE);
+            LocalDateTime startTime;
+            LocalDateTime endTime;
+            try {
+                startTime = LocalDateTime.parse(startStr, TIME_FORMAT);
+                endTime = LocalDateTime.parse(endStr, TIME_FORMAT);
+            } catch (DateTimeParseException ex) {
+                JOptionPane.showMessageDialog(dialog, "Please enter valid date/time in the correct format.", "Invalid Input", JOptionPane.WARNING_MESSAGE);
                 return;
             }
             
+            //the service rejects overlapping bookings
             try {
-                LocalDateTime startTime = LocalDateTime.parse(startStr, TIME_FORMAT);
-                LocalDateTime endTime = LocalDateTime.parse(endStr, TIME_FORMAT);
-                
-                if (endTime.isBefore(startTime)) {
-                    JOptionPane.showMessageDialog(dialog, "End time must be after start time.", "Invalid Time", JOptionPane.WARNING_MESSAGE);
-                    return;
-                }
-                
-                //check for overlapping bookings
-                for (Booking existing : selectedRoom.getBookings()) {
-                    if ((startTime.isBefore(existing.getEndTime()) && endTime.isAfter(existing.getStartTime()))) {
-                        JOptionPane.showMessageDialog(dialog, 
-                            "This booking overlaps with an existing booking:\n" +
-                            existing.getCourse() + " from " + 
-                            existing.getStartTime().format(TIME_FORMAT) + " to " + 
-                            existing.getEndTime().format(TIME_FORMAT), 
-                            "Booking Conflict", JOptionPane.WARNING_MESSAGE);
-                        return;
+                service.addBooking(selectedRoom, course, startTime, endTime);
+            } catch (BookingConflictException ex) {
+                showBookingConflict(dialog, ex.getConflict());
+                return;
+            } catch (CapacityException ex) {
+                //picking a suggested room only selects it, saving again books it there
+                Classroom larger = chooseLargerClassroom(dialog, ex);
+                if (larger != null) {
+                    if (!roomCombo.isEnabled()) {
+                        roomCombo.removeAllItems();
+                        roomCombo.addItem(larger);
                     }
+                    roomCombo.setSelectedItem(larger);
                 }
-                
-                selectedRoom.addBooking(course, startTime, endTime);
-                dialog.dispose();
-                refreshClassroomsPanel();
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(dialog, "Please enter valid date/time in the correct format.", "Invalid Input", JOptionPane.WARNING_MESSAGE);
+                return;
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(dialog, ex.getMessage(), "Invalid Time", JOptionPane.WARNING_MESSAGE);
+                return;
             }
             
             saveAllData();
@@ -1010,7 +1287,7 @@ public class SmartCampusSystem {
     }
     
     private void removeClassroomBooking(Classroom classroom, Booking booking) {
-        classroom.removeBooking(booking);
+        service.removeBooking(booking);
         //ensure all changes apply and update UI
         saveAllData(); 
         refreshClassroomsPanel(); 
@@ -1021,20 +1298,47 @@ public class SmartCampusSystem {
             "Success", JOptionPane.INFORMATION_MESSAGE);
     }
 
-    private boolean isBookingConflict(Classroom room, LocalDateTime start, LocalDateTime end) {
-        for (Booking existing : room.getBookings()) {
-            if (start.isBefore(existing.getEndTime()) && end.isAfter(existing.getStartTime())) {
-                JOptionPane.showMessageDialog(mainFrame,
-                    "Conflict with:\n" +
-                    "Course: " + existing.getCourse() + "\n" +
-                    "Time: " + existing.getStartTime().format(TIME_FORMAT) + " to " + 
-                           existing.getEndTime().format(TIME_FORMAT),
-                    "Booking Conflict Details",
-                    JOptionPane.WARNING_MESSAGE);
-                return true;
+    private void showBookingConflict(Component parent, Booking existing) {
+        JOptionPane.showMessageDialog(parent, 
+            "This booking overlaps with an existing booking:\n" +
+            existing.getCourse() + " in " + existing.getClassroom().getRoomNumber() + " from " + 
+            existing.getStartTime().format(TIME_FORMAT) + " to " + 
+            existing.getEndTime().format(TIME_FORMAT), 
+            "Booking Conflict", JOptionPane.WARNING_MESSAGE);
+    }
+    
+    //lists the free rooms the course would fit in, returns the one picked or null
+    private Classroom chooseLargerClassroom(Component parent, CapacityException ex) {
+        List<Classroom> alternatives = ex.getAlternatives();
+        if (alternatives.isEmpty()) {
+            JOptionPane.showMessageDialog(parent, ex.getMessage() + ".\nNo room large enough is free at that time.",
+                "Room Too Small", JOptionPane.WARNING_MESSAGE);
+            return null;
+        }
+        String[] choices = new String[alternatives.size()];
+        for (int i = 0; i < choices.length; i++) {
+            Classroom room = alternatives.get(i);
+            choices[i] = room.getRoomNumber() + " (" + room.getType() + ", " + room.getCapacity() + " seats)";
+        }
+        Object choice = JOptionPane.showInputDialog(parent,
+            ex.getMessage() + ".\nThese rooms are free at that time:", "Room Too Small",
+            JOptionPane.WARNING_MESSAGE, null, choices, choices[0]);
+        for (int i = 0; i < choices.length; i++) {
+            if (choices[i].equals(choice)) {
+                return alternatives.get(i);
             }
         }
-        return false;
+        return null;
+    }
+
+    //the all bookings tab may list copies, the booking itself is looked up when it is changed
+    private Booking listedBooking(JPanel panel, Booking listed) {
+        Booking booking = service.findBooking(listed.getClassroom(), listed.getStartTime());
+        if (booking == null) {
+            JOptionPane.showMessageDialog(panel, "This booking has been removed.", "Booking Removed", JOptionPane.WARNING_MESSAGE);
+            refreshClassroomsPanel();
+        }
+        return booking;
     }
     
     private void showEditBookingDialog(Booking booking) {
@@ -1069,46 +1373,38 @@ public class SmartCampusSystem {
                 return;
             }
             
+            LocalDateTime startTime;
+            LocalDateTime endTime;
             try {
-                LocalDateTime startTime = LocalDateTime.parse(startStr, TIME_FORMAT);
-                LocalDateTime endTime = LocalDateTime.parse(endStr, TIME_FORMAT);
-                
-                if (endTime.isBefore(startTime)) {
-                    JOptionPane.showMessageDialog(dialog, "End time must be after start time.", "Invalid Time", JOptionPane.WARNING_MESSAGE);
-                    return;
-                }
-                
-                //temporarily remove the booking to check for conflicts with itself
-                booking.getClassroom().removeBooking(booking);
-                
-                //check for overlapping bookings
-                for (Booking existing : booking.getClassroom().getBookings()) {
-                    if ((startTime.isBefore(existing.getEndTime()) && endTime.isAfter(existing.getStartTime()))) {
-                        //add the booking back
-                        booking.getClassroom().addBooking(booking);
-                        JOptionPane.showMessageDialog(dialog, 
-                            "This booking overlaps with an existing booking:\n" +
-                            existing.getCourse() + " from " + 
-                            existing.getStartTime().format(TIME_FORMAT) + " to " + 
-                            existing.getEndTime().format(TIME_FORMAT), 
-                            "Booking Conflict", JOptionPane.WARNING_MESSAGE);
-                        return;
-                    }
-                }
-                
-                //update the booking
-                booking.setCourse(course);
-                booking.setStartTime(startTime);
-                booking.setEndTime(endTime);
-                booking.getClassroom().addBooking(booking);
-                
+                startTime = LocalDateTime.parse(startStr, TIME_FORMAT);
+                endTime = LocalDateTime.parse(endStr, TIME_FORMAT);
+            } catch (DateTimeParseException ex) {
+                JOptionPane.showMessageDialog(dialog, "Please enter valid date/time in the correct format.", "Invalid Input", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            
+            //the service ignores the booking itself when checking for conflicts
+            try {
+                service.updateBooking(booking, course, startTime, endTime);
+            } catch (BookingConflictException ex) {
+                showBookingConflict(dialog, ex.getConflict());
+                return;
+            } catch (CapacityException ex) {
+                chooseLargerClassroom(dialog, ex);
+                return;
+            } catch (IllegalStateException ex) {
+                //removed meanwhile, e.g. by another instance's changes being taken in
+                JOptionPane.showMessageDialog(dialog, ex.getMessage(), "Booking Removed", JOptionPane.WARNING_MESSAGE);
                 dialog.dispose();
                 refreshClassroomsPanel();
-            } catch (Exception ex) {
-                //add the booking back if there was an error
-                booking.getClassroom().addBooking(booking);
-                JOptionPane.showMessageDialog(dialog, "Please enter valid date/time in the correct format.", "Invalid Input", JOptionPane.WARNING_MESSAGE);
+                return;
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(dialog, ex.getMessage(), "Invalid Time", JOptionPane.WARNING_MESSAGE);
+                return;
             }
+            
+            dialog.dispose();
+            refreshClassroomsPanel();
         });
         
         JButton cancelButton = new JButton("Cancel");
@@ -1130,9 +1426,12 @@ public class SmartCampusSystem {
     }
     
     private void refreshClassroomsPanel() {
+        CampusEvents.PanelRebuild event = new CampusEvents.PanelRebuild();
+        event.begin();
         cardPanel.remove(2); //remove classrooms panel
         cardPanel.add(createClassroomsPanel(), "classrooms", 2); //add new classrooms panel at same position
         cardLayout.show(cardPanel, "classrooms");
+        commitRebuild(event, "classrooms", service.getClassrooms().size());
     }
     
     private JPanel createResourcesPanel() {
@@ -1147,18 +1446,9 @@ public class SmartCampusSystem {
         panel.add(titleLabel, BorderLayout.NORTH);
         
         //table for displaying resources
-        String[] columnNames = {"Resource ID", "Name", "Type", "Status"};
-        Object[][] data = new Object[resources.size()][4];
-        
-        for (int i = 0; i < resources.size(); i++) {
-            Resource resource = resources.get(i);
-            data[i][0] = resource.getId();
-            data[i][1] = resource.getName();
-            data[i][2] = resource.getType();
-            data[i][3] = resource.getStatus();
-        }
-        
-        JTable resourceTable = new JTable(data, columnNames);
+        List<Resource> resources = service.getResources();
+        Object[][] data = TableData.resourceRows(resources, displayCache);
+        JTable resourceTable = new JTable(data, TableData.RESOURCE_COLUMNS);
         resourceTable.setFillsViewportHeight(true);
         JScrollPane scrollPane = new JScrollPane(resourceTable);
         
@@ -1188,7 +1478,7 @@ public class SmartCampusSystem {
                 int confirm = JOptionPane.showConfirmDialog(panel, 
                     "Are you sure you want to delete this resource?", "Confirm Deletion", JOptionPane.YES_NO_OPTION);
                 if (confirm == JOptionPane.YES_OPTION) {
-                    resources.remove(selectedRow);
+                    service.removeResource(resources.get(selectedRow));
                     refreshResourcesTable(resourceTable);
                 }
             } else {
@@ -1201,7 +1491,9 @@ public class SmartCampusSystem {
             int selectedRow = resourceTable.getSelectedRow();
             if (selectedRow >= 0) {
                 Resource resource = resources.get(selectedRow);
-                if (resource.getStatus().equals("Available")) {
+                //a held resource can only go to the student it is held for, the service checks who
+                if (resource.getStatusCode() == ResourceStatus.AVAILABLE
+                        || resource.getStatusCode() == ResourceStatus.ON_HOLD) {
                     checkOutResource(resource);
                 } else {
                     JOptionPane.showMessageDialog(panel, 
@@ -1220,10 +1512,8 @@ public class SmartCampusSystem {
             int selectedRow = resourceTable.getSelectedRow();
             if (selectedRow >= 0) {
                 Resource resource = resources.get(selectedRow);
-                if (resource.getStatus().startsWith("Checked Out")) {
-                    resource.setStatus("Available");
-                    //clear the checkedOutBy field
-                    resource.setCheckedOutBy(null); 
+                if (resource.getStatusCode() == ResourceStatus.CHECKED_OUT) {
+                    service.returnResource(resource);
                     saveAllData();
                     refreshResourcesTable(resourceTable);
                     JOptionPane.showMessageDialog(panel, 
@@ -1239,12 +1529,34 @@ public class SmartCampusSystem {
             }
         });
         
+        JButton reserveButton = new JButton("Reserve");
+        reserveButton.addActionListener(_ -> {
+            int selectedRow = resourceTable.getSelectedRow();
+            if (selectedRow >= 0) {
+                reserveResource(resources.get(selectedRow));
+            } else {
+                JOptionPane.showMessageDialog(panel, "Please select a resource to reserve.", "No Selection", JOptionPane.WARNING_MESSAGE);
+            }
+        });
+        
         buttonPanel.add(addButton);
         buttonPanel.add(searchButton);
         buttonPanel.add(editButton);
         buttonPanel.add(deleteButton);
         buttonPanel.add(checkOutButton);
         buttonPanel.add(returnButton);
+        buttonPanel.add(reserveButton);
+        
+        JButton historyButton = new JButton("History");
+        historyButton.addActionListener(_ -> {
+            int selectedRow = resourceTable.getSelectedRow();
+            if (selectedRow >= 0) {
+                showResourceHistory(resources.get(selectedRow));
+            } else {
+                JOptionPane.showMessageDialog(panel, "Please select a resource to see its history.", "No Selection", JOptionPane.WARNING_MESSAGE);
+            }
+        });
+        buttonPanel.add(historyButton);
         
         panel.add(scrollPane, BorderLayout.CENTER);
         panel.add(buttonPanel, BorderLayout.SOUTH);
@@ -1252,9 +1564,59 @@ public class SmartCampusSystem {
         return panel;
     }
     
-    private boolean isValidStudentId(String studentId) {
-        return students.stream()
-               .anyMatch(student -> student.getId().equalsIgnoreCase(studentId.trim()));
+    //every checkout and return of the resource, newest first
+    private void showResourceHistory(Resource resource) {
+        List<CheckoutLedger.Entry> history = service.getResourceHistory(resource.getId());
+        StringBuilder text = new StringBuilder();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            CheckoutLedger.Entry entry = history.get(i);
+            text.append(formatMillis(entry.at()))
+                .append(entry.kind() == CheckoutLedger.Kind.CHECKOUT ? "  Checked out by " : "  Returned by ")
+                .append(entry.studentId() != null ? entry.studentId() : "unknown");
+            if (entry.kind() == CheckoutLedger.Kind.CHECKOUT && entry.dueAt() > 0) {
+                text.append(", due ").append(formatMillis(entry.dueAt()));
+            }
+            text.append('\n');
+        }
+        if (history.isEmpty()) {
+            text.append("No checkouts recorded for this resource.");
+        }
+        JTextArea area = new JTextArea(text.toString(), 15, 50);
+        area.setEditable(false);
+        JOptionPane.showMessageDialog(mainFrame, new JScrollPane(area),
+            "History of " + resource.getName(), JOptionPane.INFORMATION_MESSAGE);
+    }
+    
+    //puts a student in line for a resource that is not available right now
+    private void reserveResource(Resource resource) {
+        String studentId = JOptionPane.showInputDialog(
+            mainFrame,
+            "Enter student ID to join the waitlist:",
+            "Reserve Resource",
+            JOptionPane.QUESTION_MESSAGE
+        );
+
+        if (studentId == null || studentId.trim().isEmpty()) {
+            return;
+        }
+
+        int position;
+        try {
+            Reservation reservation = service.reserveResource(resource, studentId, Reservation.NORMAL);
+            position = service.getWaitlist(resource).indexOf(reservation) + 1;
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            JOptionPane.showMessageDialog(mainFrame, ex.getMessage(), "Cannot Reserve", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        saveAllData();
+        refreshResourcesPanel();
+        JOptionPane.showMessageDialog(
+            mainFrame,
+            "Student " + studentId + " is number " + position + " in line for " + resource.getName(),
+            "Reservation Complete",
+            JOptionPane.INFORMATION_MESSAGE
+        );
     }
     
     private void checkOutResource(Resource resource) {
@@ -1270,20 +1632,18 @@ public class SmartCampusSystem {
             return; 
         }
 
-        if (!isValidStudentId(studentId)) {
+        try {
+            service.checkOutResource(resource, studentId);
+        } catch (IllegalArgumentException | IllegalStateException ex) {
             JOptionPane.showMessageDialog(
                 mainFrame,
-                "Error: Student ID " + studentId + " not found!\n" +
-                "Only registered students can check out resources.",
+                ex.getMessage(),
                 "Invalid Student ID",
                 JOptionPane.ERROR_MESSAGE
             );
             return;
         }
 
-        //update both status and checkedOutBy fields
-        resource.setStatus("Checked Out to " + studentId);
-        resource.setCheckedOutBy(studentId);
         saveAllData();
         refreshResourcesPanel();
         
@@ -1327,13 +1687,12 @@ public class SmartCampusSystem {
                 return;
             }
             
-            if (resources.stream().anyMatch(r -> r.getId().equalsIgnoreCase(id))) {
-                JOptionPane.showMessageDialog(dialog, "Resource ID already exists!", "Duplicate ID", JOptionPane.ERROR_MESSAGE);
+            try {
+                service.addResource(id, name, type, status);
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(dialog, ex.getMessage(), "Duplicate ID", JOptionPane.ERROR_MESSAGE);
                 return;
             }
-            
-            
-            resources.add(new Resource(id, name, type, status));
             saveAllData();
             dialog.dispose();
             refreshResourcesPanel();
@@ -1377,7 +1736,7 @@ public class SmartCampusSystem {
 
         //search action
         searchButton.addActionListener(_ -> {
-            Resource found = searchForResource(searchField.getText().trim());
+            Resource found = service.searchForResource(searchField.getText().trim());
             if (found != null) {
                 resultArea.setText(formatResourceDetails(found));
             } else {
@@ -1396,17 +1755,28 @@ public class SmartCampusSystem {
     private String formatResourceDetails(Resource resource) {
     	String checkedOutBy = resource.getCheckedOutBy() != null ? 
                 resource.getCheckedOutBy() : "None";
+        String due = resource.getDueAt() > 0 ? formatMillis(resource.getDueAt())
+                + (service.isOverdue(resource) ? " (OVERDUE)" : "") : "None";
+        Reservation hold = service.getHold(resource);
+        String heldFor = hold != null ? hold.studentId() + " until " + formatMillis(hold.holdUntil()) : "None";
     	
         return String.format(
-            "Resource ID: %s\nName: %s\nType: %s\nStatus: %s\nChecked out by: %s\n\n",
+            "Resource ID: %s\nName: %s\nType: %s\nStatus: %s\nChecked out by: %s\nDue: %s\nHeld for: %s\nWaiting: %d\n\n",
             resource.getId(),
             resource.getName(),
             resource.getType(),
             resource.getStatus(),
-            checkedOutBy
+            checkedOutBy,
+            due,
+            heldFor,
+            service.getWaitlist(resource).size()
         );
     }
 
+    private static String formatMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).format(TIME_FORMAT);
+    }
+
     
     private void showEditResourceDialog(Resource resource) {
         JDialog dialog = new JDialog(mainFrame, "Edit Resource", true);
@@ -1429,7 +1799,9 @@ public class SmartCampusSystem {
         
         JLabel statusLabel = new JLabel("Status:");        
         JComboBox<String> statusCombo = new JComboBox<>(new String[]{"Available", "Maintenance"});
-        statusCombo.setSelectedItem(resource.getStatus().startsWith("Checked Out") ? "Available" : resource.getStatus());
+        statusCombo.setSelectedItem(resource.getStatusCode() == ResourceStatus.CHECKED_OUT
+                || resource.getStatusCode() == ResourceStatus.ON_HOLD
+            ? "Available" : resource.getStatusCode().getLabel());
         
         JButton saveButton = new JButton("Save");
         saveButton.addActionListener(_ -> {
@@ -1442,13 +1814,7 @@ public class SmartCampusSystem {
                 return;
             }
          
-            resource.setName(name);
-            resource.setType(type);
-            
-            if (!resource.getStatus().startsWith("Checked Out")) {
-                resource.setStatus(status);
-            }            
-            
+            service.updateResource(resource, name, type, status);
             saveAllData();
             dialog.dispose();
             refreshResourcesPanel();
@@ -1474,23 +1840,20 @@ public class SmartCampusSystem {
     }
     
     private void refreshResourcesTable(JTable table) {
-        Object[][] data = new Object[resources.size()][4];
-        
-        for (int i = 0; i < resources.size(); i++) {
-            Resource resource = resources.get(i);
-            data[i][0] = resource.getId();
-            data[i][1] = resource.getName();
-            data[i][2] = resource.getType();
-            data[i][3] = resource.getStatus();
-        }
-        
-        table.setModel(new javax.swing.table.DefaultTableModel(data, new String[]{"Resource ID", "Name", "Type", "Status"}));
+        CampusEvents.PanelRebuild event = new CampusEvents.PanelRebuild();
+        event.begin();
+        Object[][] data = TableData.resourceRows(service.getResources(), displayCache);
+        table.setModel(new javax.swing.table.DefaultTableModel(data, TableData.RESOURCE_COLUMNS));
+        commitRebuild(event, "resourcesTable", data.length);
     }
     
     private void refreshResourcesPanel() {
+        CampusEvents.PanelRebuild event = new CampusEvents.PanelRebuild();
+        event.begin();
         cardPanel.remove(3); //remove resources panel
         cardPanel.add(createResourcesPanel(), "resources", 3); //add new resources panel at same position
         cardLayout.show(cardPanel, "resources");
+        commitRebuild(event, "resources", service.getResources().size());
     }
     
     private void showAboutDialog() {
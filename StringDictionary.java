@@ -0,0 +1,82 @@
+package smart;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//maps the values of a repetitive field (degrees, room types, course codes...) to small
+//int ids and back to one shared String per value. entities keep the id, so thousands of
+//"Computer Science" degrees cost one String, and comparing two values is an int compare.
+//
+//ids are handed out in first seen order and never reused, a dictionary only grows, so only
+//values being stored go through id(), lookups use find(). lookups never lock, adding a new
+//value takes the dictionary's monitor
+final class StringDictionary {
+    public static final StringDictionary DEGREES = new StringDictionary("degrees");
+    public static final StringDictionary ROOM_TYPES = new StringDictionary("roomTypes");
+    public static final StringDictionary RESOURCE_TYPES = new StringDictionary("resourceTypes");
+    public static final StringDictionary COURSES = new StringDictionary("courses");
+
+    //the id stored for a null value
+    public static final int NONE = -1;
+
+    private final String name;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    //written before the id is published through ids, so a reader holding an id sees it
+    private volatile String[] values = new String[64];
+    private int size;
+
+    private StringDictionary(String name) {
+        this.name = name;
+        CampusMetrics.registerGauge("dictionary." + name, this::size);
+    }
+
+    public int id(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer id = ids.get(value);
+        return id != null ? id : add(value);
+    }
+
+    //the id of a value already in the dictionary, NONE if it is not. for lookups, so a
+    //query for something nobody stored does not grow the dictionary
+    public int find(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer id = ids.get(value);
+        return id != null ? id : NONE;
+    }
+
+    private synchronized int add(String value) {
+        Integer existing = ids.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int id = size++;
+        values[id] = value;
+        ids.put(value, id);
+        return id;
+    }
+
+    public String get(int id) {
+        return id == NONE ? null : values[id];
+    }
+
+    //the shared instance equal to value, or value itself if it is not in the dictionary.
+    //a lookup like find, it does not add value
+    public String canonical(String value) {
+        int id = find(value);
+        return id == NONE ? value : get(id);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public String getName() { return name; }
+}
@@ -1,25 +1,37 @@
 package smart;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.regex.Pattern;
 
 class Student implements Serializable {
     private static final long serialVersionUID = 1L;
+    //the .dat files keep the original layout, the degree as text
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("id", String.class),
+        new ObjectStreamField("name", String.class),
+        new ObjectStreamField("degree", String.class),
+        new ObjectStreamField("email", String.class)
+    };
     private String id;
     private String name;
-    private String degree;
+    //id in StringDictionary.DEGREES
+    private int degree;
     private String email;
+    //compiled once, bulk imports create a lot of students
+    private static final Pattern EDU_EMAIL = Pattern.compile(".*@.*\\.edu$");
     
     public Student(String id, String name, String degree, String email) {
-        if (!email.matches(".*@.*\\.edu$")) {
-            throw new IllegalArgumentException("Invalid .edu email");
-        }
         if (id == null || id.isEmpty()) throw new IllegalArgumentException("ID cannot be empty");
-        if (email == null || !email.matches(".*@.*\\.edu$")) {
+        if (email == null || !EDU_EMAIL.matcher(email).matches()) {
             throw new IllegalArgumentException("Invalid .edu email");
         }
         this.id = id;
         this.name = name;
-        this.degree = degree;
+        this.degree = StringDictionary.DEGREES.id(degree);
         this.email = email;
     }
     
@@ -27,14 +39,31 @@ class Student implements Serializable {
     public String getId() { return id; }
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
-    public String getDegree() { return degree; }
-    public void setDegree(String degree) { this.degree = degree; }
+    public String getDegree() { return StringDictionary.DEGREES.get(degree); }
+    public int getDegreeId() { return degree; }
+    public void setDegree(String degree) { this.degree = StringDictionary.DEGREES.id(degree); }
     public String getEmail() { return email; }
     public void setEmail(String email) { 
-        if (!email.matches(".*@.*\\.edu$")) {
+        if (!EDU_EMAIL.matcher(email).matches()) {
             throw new IllegalArgumentException("Invalid .edu email");
         }
         this.email = email; 
     }
-}
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("id", id);
+        fields.put("name", name);
+        fields.put("degree", getDegree());
+        fields.put("email", email);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        id = (String) fields.get("id", null);
+        name = (String) fields.get("name", null);
+        degree = StringDictionary.DEGREES.id((String) fields.get("degree", null));
+        email = (String) fields.get("email", null);
+    }
+}
@@ -0,0 +1,77 @@
+package smart;
+
+import java.util.List;
+
+//builds the row data behind each of the tables, kept apart from the panels so the
+//benchmarks can measure table building without a window
+class TableData {
+    public static final String[] STUDENT_COLUMNS = {"Student ID", "Name", "Degree", "Email"};
+    public static final String[] CLASSROOM_COLUMNS = {"Room Number", "Type", "Capacity"};
+    public static final String[] BOOKING_COLUMNS = {"Room", "Course", "Start Time", "End Time"};
+    public static final String[] ROOM_BOOKING_COLUMNS = {"Course", "Start Time", "End Time"};
+    public static final String[] RESOURCE_COLUMNS = {"Resource ID", "Name", "Type", "Status"};
+
+    private TableData() {}
+
+    public static Object[][] studentRows(List<Student> students) {
+        Object[][] data = new Object[students.size()][4];
+        for (int i = 0; i < students.size(); i++) {
+            Student student = students.get(i);
+            data[i][0] = student.getId();
+            data[i][1] = student.getName();
+            data[i][2] = student.getDegree();
+            data[i][3] = student.getEmail();
+        }
+        return data;
+    }
+
+    public static Object[][] classroomRows(List<Classroom> classrooms) {
+        Object[][] data = new Object[classrooms.size()][3];
+        for (int i = 0; i < classrooms.size(); i++) {
+            Classroom room = classrooms.get(i);
+            data[i][0] = room.getRoomNumber();
+            data[i][1] = room.getType();
+            data[i][2] = room.getCapacity();
+        }
+        return data;
+    }
+
+    //all bookings, with the room as the first column
+    public static Object[][] bookingRows(List<Booking> bookings, DisplayCache cache) {
+        Object[][] data = new Object[bookings.size()][4];
+        for (int i = 0; i < bookings.size(); i++) {
+            Booking booking = bookings.get(i);
+            String[] times = cache.bookingTimes(booking);
+            data[i][0] = booking.getClassroom().getRoomNumber();
+            data[i][1] = booking.getCourse();
+            data[i][2] = times[0];
+            data[i][3] = times[1];
+        }
+        return data;
+    }
+
+    //one classroom's bookings, the room is already known
+    public static Object[][] roomBookingRows(List<Booking> bookings, DisplayCache cache) {
+        Object[][] data = new Object[bookings.size()][3];
+        for (int i = 0; i < bookings.size(); i++) {
+            Booking booking = bookings.get(i);
+            String[] times = cache.bookingTimes(booking);
+            data[i][0] = booking.getCourse();
+            data[i][1] = times[0];
+            data[i][2] = times[1];
+        }
+        return data;
+    }
+
+    public static Object[][] resourceRows(List<Resource> resources, DisplayCache cache) {
+        Object[][] data = new Object[resources.size()][4];
+        for (int i = 0; i < resources.size(); i++) {
+            Resource resource = resources.get(i);
+            data[i][0] = resource.getId();
+            data[i][1] = resource.getName();
+            data[i][2] = resource.getType();
+            data[i][3] = cache.resourceStatus(resource);
+        }
+        return data;
+    }
+}
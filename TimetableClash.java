@@ -0,0 +1,9 @@
+package smart;
+
+import java.time.LocalDateTime;
+
+//two of a student's courses meeting at the same time: how many of their bookings overlap
+//and the first time they do
+public record TimetableClash(String course, String otherCourse, int occurrences,
+        LocalDateTime firstStart, LocalDateTime firstEnd) {
+}
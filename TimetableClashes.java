@@ -0,0 +1,118 @@
+package smart;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+//finds students whose courses meet at the same time. every wanted course's sorted
+//intervals are copied out of the CourseIndex once, start and length packed into one long
+//as the index keeps them. two courses clash where a merge of their two sorted
+//arrays finds an overlap, which is linear in their bookings. the copy is taken under the
+//service's lock, the merging runs without it and reads nothing shared but the arrays
+final class TimetableClashes {
+    private static final TimetableClash NONE = new TimetableClash(null, null, 0, null, null);
+
+    //course id -> (start << 32 | length) in epoch minutes, sorted
+    private final Map<Integer, long[]> times;
+
+    private TimetableClashes(Map<Integer, long[]> times) {
+        this.times = times;
+    }
+
+    //copies the intervals of the wanted courses out of the index
+    static TimetableClashes of(CourseIndex index, IntPredicate wanted) {
+        Map<Integer, long[]> collected = new HashMap<>();
+        for (int course = 0, n = index.courseLimit(); course < n; course++) {
+            if (index.size(course) > 0 && wanted.test(course)) {
+                collected.put(course, index.times(course));
+            }
+        }
+        return new TimetableClashes(collected);
+    }
+
+    //the clashes between any two of the sorted course ids
+    List<TimetableClash> clashes(int[] courses) {
+        List<TimetableClash> found = new ArrayList<>();
+        for (int i = 0; i < courses.length; i++) {
+            for (int j = i + 1; j < courses.length; j++) {
+                TimetableClash clash = merge(courses[i], courses[j]);
+                if (clash != NONE) {
+                    found.add(clash);
+                }
+            }
+        }
+        return found;
+    }
+
+    //student ID -> clashes for every student with at least one, students checked in parallel
+    Map<String, List<TimetableClash>> clashes(Map<String, int[]> coursesByStudent) {
+        Map<String, List<TimetableClash>> found = new ConcurrentHashMap<>();
+        coursesByStudent.entrySet().parallelStream().forEach(student -> {
+            List<TimetableClash> clashes = clashes(student.getValue());
+            if (!clashes.isEmpty()) {
+                found.put(student.getKey(), clashes);
+            }
+        });
+        return new TreeMap<>(found);
+    }
+
+    //walks both courses' bookings in start order, keeping the ends of the other course's
+    //bookings still running. each booking is compared only with those, which is one or
+    //two at most for a normal timetable
+    private TimetableClash merge(int a, int b) {
+        long[] first = times.getOrDefault(a, new long[0]);
+        long[] second = times.getOrDefault(b, new long[0]);
+        long[] runningA = new long[4];
+        long[] runningB = new long[4];
+        int sizeA = 0;
+        int sizeB = 0;
+        int i = 0;
+        int j = 0;
+        int occurrences = 0;
+        long firstStart = 0;
+        long firstEnd = 0;
+        while (i < first.length || j < second.length) {
+            boolean fromA = j == second.length || (i < first.length && first[i] <= second[j]);
+            long packed = fromA ? first[i++] : second[j++];
+            long start = packed >> 32;
+            long end = start + (packed & 0xFFFFFFFFL);
+            long[] others = fromA ? runningB : runningA;
+            int kept = 0;
+            for (int k = 0, n = fromA ? sizeB : sizeA; k < n; k++) {
+                long otherEnd = others[k];
+                if (otherEnd > start) {
+                    others[kept++] = otherEnd;
+                    if (occurrences++ == 0) {
+                        firstStart = start;
+                        firstEnd = Math.min(end, otherEnd);
+                    }
+                }
+            }
+            if (fromA) {
+                sizeB = kept;
+                runningA = push(runningA, sizeA++, end);
+            } else {
+                sizeA = kept;
+                runningB = push(runningB, sizeB++, end);
+            }
+        }
+        if (occurrences == 0) {
+            return NONE;
+        }
+        return new TimetableClash(StringDictionary.COURSES.get(a), StringDictionary.COURSES.get(b), occurrences,
+            BookingTable.fromMinutes(firstStart), BookingTable.fromMinutes(firstEnd));
+    }
+
+    private static long[] push(long[] ends, int size, long end) {
+        if (size == ends.length) {
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        ends[size] = end;
+        return ends;
+    }
+}
@@ -0,0 +1,286 @@
+package smart;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+//how much the classrooms were used between two times: booked hours against opening hours
+//per room and per room type, seat hours for capacity usage, and an hour of week heatmap.
+//opening hours are openHour to closeHour Monday to Friday, bookings outside them still
+//count towards the heatmap.
+//
+//the rooms are split between fork/join tasks, each works through its rooms' booking
+//columns into its own partial totals and the partials are merged on the way back up, so
+//nothing is shared while counting
+public final class UtilizationReport {
+    public static final int DEFAULT_OPEN_HOUR = CampusGenerator.FIRST_HOUR;
+    public static final int DEFAULT_CLOSE_HOUR = CampusGenerator.LAST_HOUR;
+    private static final int SLOTS = 7 * 24;
+    //rooms a task counts itself instead of splitting further
+    private static final int ROOMS_PER_TASK = 16;
+
+    public record RoomUtilization(String roomNumber, String type, int capacity, int bookings,
+            double bookedHours, double availableHours) {
+        public double utilization() {
+            return availableHours == 0 ? 0 : bookedHours / availableHours;
+        }
+    }
+
+    //seat hours weigh each room by its capacity, so a full lecture hall counts for more
+    //than a full seminar room
+    public record TypeUtilization(String type, int rooms, int bookings, double bookedHours,
+            double availableHours, double seatHoursBooked, double seatHoursAvailable) {
+        public double utilization() {
+            return availableHours == 0 ? 0 : bookedHours / availableHours;
+        }
+
+        public double seatUtilization() {
+            return seatHoursAvailable == 0 ? 0 : seatHoursBooked / seatHoursAvailable;
+        }
+    }
+
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final List<RoomUtilization> rooms;
+    private final List<TypeUtilization> types;
+    //share of room time booked in each hour of the week, Monday 00:00 first
+    private final double[] heatmap;
+
+    private UtilizationReport(LocalDateTime from, LocalDateTime to, List<RoomUtilization> rooms,
+            List<TypeUtilization> types, double[] heatmap) {
+        this.from = from;
+        this.to = to;
+        this.rooms = rooms;
+        this.types = types;
+        this.heatmap = heatmap;
+    }
+
+    public LocalDateTime getFrom() { return from; }
+    public LocalDateTime getTo() { return to; }
+    public List<RoomUtilization> getRooms() { return rooms; }
+    public List<TypeUtilization> getTypes() { return types; }
+
+    public double getOccupancy(DayOfWeek day, int hour) {
+        return heatmap[slot(day.getValue() - 1, hour)];
+    }
+
+    public double getUtilization() {
+        double booked = 0;
+        double available = 0;
+        for (TypeUtilization type : types) {
+            booked += type.bookedHours();
+            available += type.availableHours();
+        }
+        return available == 0 ? 0 : booked / available;
+    }
+
+    //counting
+
+    //per room and type totals, in minutes
+    private static final class Partial {
+        final long[] heat = new long[SLOTS];
+        final Map<Integer, long[]> types = new HashMap<>();
+
+        //rooms, bookings, booked, available, seat booked, seat available
+        long[] type(int type) {
+            return types.computeIfAbsent(type, _ -> new long[6]);
+        }
+
+        Partial merge(Partial other) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                heat[slot] += other.heat[slot];
+            }
+            other.types.forEach((type, totals) -> {
+                long[] mine = type(type);
+                for (int i = 0; i < mine.length; i++) {
+                    mine[i] += totals[i];
+                }
+            });
+            return this;
+        }
+    }
+
+    private static final class Count extends RecursiveTask<Partial> {
+        private final List<Classroom> classrooms;
+        private final RoomUtilization[] results;
+        private final int lo;
+        private final int hi;
+        private final Window window;
+
+        Count(List<Classroom> classrooms, RoomUtilization[] results, int lo, int hi, Window window) {
+            this.classrooms = classrooms;
+            this.results = results;
+            this.lo = lo;
+            this.hi = hi;
+            this.window = window;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (hi - lo > ROOMS_PER_TASK) {
+                int mid = (lo + hi) >>> 1;
+                Count left = new Count(classrooms, results, lo, mid, window);
+                left.fork();
+                Partial right = new Count(classrooms, results, mid, hi, window).compute();
+                return left.join().merge(right);
+            }
+            Partial partial = new Partial();
+            for (int i = lo; i < hi; i++) {
+                results[i] = countRoom(classrooms.get(i), partial, window);
+            }
+            return partial;
+        }
+    }
+
+    //the range in epoch minutes and how many of its minutes are opening hours
+    private record Window(long from, long to, int openHour, int closeHour, long openMinutes) {}
+
+    private static RoomUtilization countRoom(Classroom room, Partial partial, Window window) {
+        BookingTable table = room.peekBookingTable();
+        int bookings = 0;
+        long booked = 0;
+        for (int row = 0, n = table.rowCount(); row < n; row++) {
+            long start = Math.max(window.from, table.start(row));
+            long end = Math.min(window.to, table.end(row));
+            if (end <= start) {
+                continue;
+            }
+            bookings++;
+            //an hour slot at a time, bookings are a few hours long
+            for (long minute = start; minute < end; ) {
+                long next = Math.min(end, (Math.floorDiv(minute, 60) + 1) * 60);
+                int slot = slotOf(minute);
+                partial.heat[slot] += next - minute;
+                if (isOpen(slot, window.openHour, window.closeHour)) {
+                    booked += next - minute;
+                }
+                minute = next;
+            }
+        }
+        long[] type = partial.type(room.getTypeId());
+        type[0]++;
+        type[1] += bookings;
+        type[2] += booked;
+        type[3] += window.openMinutes;
+        type[4] += booked * room.getCapacity();
+        type[5] += window.openMinutes * room.getCapacity();
+        return new RoomUtilization(room.getRoomNumber(), room.getType(), room.getCapacity(), bookings,
+            booked / 60.0, window.openMinutes / 60.0);
+    }
+
+    private static int slot(int day, int hour) {
+        return day * 24 + hour;
+    }
+
+    //epoch minute 0 was a Thursday
+    private static int slotOf(long minute) {
+        long day = Math.floorDiv(minute, 1440);
+        int dayOfWeek = Math.floorMod(day + 3, 7);
+        int hour = Math.floorMod(minute, 1440) / 60;
+        return slot(dayOfWeek, hour);
+    }
+
+    private static boolean isOpen(int slot, int openHour, int closeHour) {
+        int day = slot / 24;
+        int hour = slot % 24;
+        return day < 5 && hour >= openHour && hour < closeHour;
+    }
+
+    //not thread safe against changes to the rooms, CampusService calls it under its read lock
+    static UtilizationReport compute(List<Classroom> classrooms, LocalDateTime from, LocalDateTime to,
+            int openHour, int closeHour) {
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("End of the report must be after its start.");
+        }
+        if (openHour < 0 || closeHour > 24 || closeHour <= openHour) {
+            throw new IllegalArgumentException("Opening hours must be within the day.");
+        }
+        long start = BookingTable.toMinutes(from);
+        long end = BookingTable.toMinutes(to);
+        long[] slotMinutes = new long[SLOTS];
+        long openMinutes = 0;
+        for (long minute = start; minute < end; ) {
+            long next = Math.min(end, (Math.floorDiv(minute, 60) + 1) * 60);
+            slotMinutes[slotOf(minute)] += next - minute;
+            minute = next;
+        }
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (isOpen(slot, openHour, closeHour)) {
+                openMinutes += slotMinutes[slot];
+            }
+        }
+        Window window = new Window(start, end, openHour, closeHour, openMinutes);
+
+        RoomUtilization[] results = new RoomUtilization[classrooms.size()];
+        Partial total = classrooms.isEmpty() ? new Partial()
+            : ForkJoinPool.commonPool().invoke(new Count(classrooms, results, 0, classrooms.size(), window));
+
+        List<TypeUtilization> types = new ArrayList<>();
+        total.types.forEach((type, t) -> types.add(new TypeUtilization(StringDictionary.ROOM_TYPES.get(type),
+            (int) t[0], (int) t[1], t[2] / 60.0, t[3] / 60.0, t[4] / 60.0, t[5] / 60.0)));
+        types.sort((a, b) -> String.valueOf(a.type()).compareTo(String.valueOf(b.type())));
+        double[] heatmap = new double[SLOTS];
+        for (int slot = 0; slot < SLOTS; slot++) {
+            long roomMinutes = slotMinutes[slot] * classrooms.size();
+            heatmap[slot] = roomMinutes == 0 ? 0 : (double) total.heat[slot] / roomMinutes;
+        }
+        return new UtilizationReport(from, to, List.of(results), List.copyOf(types), heatmap);
+    }
+
+    //CSV export, rooms.csv, types.csv and heatmap.csv in dir
+
+    public void writeCsv(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        try (BufferedWriter out = Files.newBufferedWriter(dir.resolve("rooms.csv"))) {
+            out.write("roomNumber,type,capacity,bookings,bookedHours,availableHours,utilization");
+            out.newLine();
+            for (RoomUtilization room : rooms) {
+                out.write(String.join(",", BulkTransfer.csvField(room.roomNumber()), BulkTransfer.csvField(room.type()),
+                    Integer.toString(room.capacity()), Integer.toString(room.bookings()),
+                    number(room.bookedHours()), number(room.availableHours()), number(room.utilization())));
+                out.newLine();
+            }
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(dir.resolve("types.csv"))) {
+            out.write("type,rooms,bookings,bookedHours,availableHours,utilization,seatHoursBooked,seatHoursAvailable,seatUtilization");
+            out.newLine();
+            for (TypeUtilization type : types) {
+                out.write(String.join(",", BulkTransfer.csvField(type.type()), Integer.toString(type.rooms()),
+                    Integer.toString(type.bookings()), number(type.bookedHours()), number(type.availableHours()),
+                    number(type.utilization()), number(type.seatHoursBooked()), number(type.seatHoursAvailable()),
+                    number(type.seatUtilization())));
+                out.newLine();
+            }
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(dir.resolve("heatmap.csv"))) {
+            StringBuilder header = new StringBuilder("day");
+            for (int hour = 0; hour < 24; hour++) {
+                header.append(',').append(String.format("%02d:00", hour));
+            }
+            out.write(header.toString());
+            out.newLine();
+            for (DayOfWeek day : DayOfWeek.values()) {
+                StringBuilder line = new StringBuilder(day.name());
+                for (int hour = 0; hour < 24; hour++) {
+                    line.append(',').append(number(getOccupancy(day, hour)));
+                }
+                out.write(line.toString());
+                out.newLine();
+            }
+        }
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+}
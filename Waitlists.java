@@ -0,0 +1,114 @@
+package smart;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+//the waiting reservations and current holds for every resource, keyed by the resource's
+//upper cased ID. only a container, the rules live in CampusService which also guards it
+final class Waitlists {
+    private final Map<String, PriorityQueue<Reservation>> waiting = new HashMap<>();
+    private final Map<String, Reservation> holds = new HashMap<>();
+    private final Map<String, DeadlineScheduler.Deadline> expiries = new HashMap<>();
+    private int waitingCount;
+
+    void add(String resourceKey, Reservation reservation) {
+        waiting.computeIfAbsent(resourceKey, _ -> new PriorityQueue<>()).add(reservation);
+        waitingCount++;
+    }
+
+    //the student's waiting reservation, or null
+    Reservation find(String resourceKey, String studentId) {
+        PriorityQueue<Reservation> queue = waiting.get(resourceKey);
+        if (queue != null) {
+            for (Reservation reservation : queue) {
+                if (reservation.studentId().equalsIgnoreCase(studentId)) {
+                    return reservation;
+                }
+            }
+        }
+        return null;
+    }
+
+    boolean remove(String resourceKey, Reservation reservation) {
+        PriorityQueue<Reservation> queue = waiting.get(resourceKey);
+        if (queue == null || !queue.remove(reservation)) {
+            return false;
+        }
+        waitingCount--;
+        if (queue.isEmpty()) {
+            waiting.remove(resourceKey);
+        }
+        return true;
+    }
+
+    //takes the first in line off the waitlist
+    Reservation poll(String resourceKey) {
+        PriorityQueue<Reservation> queue = waiting.get(resourceKey);
+        if (queue == null) {
+            return null;
+        }
+        Reservation next = queue.poll();
+        waitingCount--;
+        if (queue.isEmpty()) {
+            waiting.remove(resourceKey);
+        }
+        return next;
+    }
+
+    //in the order they will be offered the resource
+    List<Reservation> waiting(String resourceKey) {
+        PriorityQueue<Reservation> queue = waiting.get(resourceKey);
+        if (queue == null) {
+            return List.of();
+        }
+        List<Reservation> sorted = new ArrayList<>(queue);
+        sorted.sort(null);
+        return sorted;
+    }
+
+    int waitingCount(String resourceKey) {
+        PriorityQueue<Reservation> queue = waiting.get(resourceKey);
+        return queue == null ? 0 : queue.size();
+    }
+
+    Reservation hold(String resourceKey) {
+        return holds.get(resourceKey);
+    }
+
+    void putHold(String resourceKey, Reservation hold, DeadlineScheduler.Deadline expiry) {
+        holds.put(resourceKey, hold);
+        expiries.put(resourceKey, expiry);
+    }
+
+    Reservation removeHold(String resourceKey) {
+        DeadlineScheduler.Deadline expiry = expiries.remove(resourceKey);
+        if (expiry != null) {
+            expiry.cancel();
+        }
+        return holds.remove(resourceKey);
+    }
+
+    //everything for a deleted resource
+    void clear(String resourceKey) {
+        PriorityQueue<Reservation> queue = waiting.remove(resourceKey);
+        if (queue != null) {
+            waitingCount -= queue.size();
+        }
+        removeHold(resourceKey);
+    }
+
+    int getWaitingCount() { return waitingCount; }
+    int getHoldCount() { return holds.size(); }
+
+    //holds and waiting reservations together, as saved in reservations.dat
+    List<Reservation> all() {
+        List<Reservation> all = new ArrayList<>(holds.values());
+        for (PriorityQueue<Reservation> queue : waiting.values()) {
+            all.addAll(queue);
+        }
+        return all;
+    }
+}
@@ -0,0 +1,36 @@
+package smart;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+//seeded test data for the benchmarks, the same on every run so results can be compared
+final class BenchmarkData {
+    static final LocalDateTime EPOCH = LocalDateTime.of(2025, 1, 6, 8, 0);
+
+    private final Random random = new Random(42);
+
+    List<Student> students(int count) {
+        List<Student> students = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            students.add(new Student("S" + (100000 + i), "Student " + Integer.toString(random.nextInt(1 << 30), 36) + " " + i,
+                "Degree " + (i % 40), "s" + i + "@SmartUni.edu"));
+        }
+        return students;
+    }
+
+    //rooms with back to back two hour bookings, one a day
+    List<Classroom> classrooms(int rooms, int bookingsPerRoom) {
+        List<Classroom> classrooms = new ArrayList<>(rooms);
+        for (int r = 0; r < rooms; r++) {
+            Classroom room = new Classroom("R" + (1000 + r), "Lab", 20 + random.nextInt(100));
+            for (int b = 0; b < bookingsPerRoom; b++) {
+                LocalDateTime start = EPOCH.plusDays(b).plusHours(random.nextInt(8));
+                room.addBooking("C" + random.nextInt(500), start, start.plusHours(2));
+            }
+            classrooms.add(room);
+        }
+        return classrooms;
+    }
+}
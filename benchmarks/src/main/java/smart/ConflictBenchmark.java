@@ -0,0 +1,62 @@
+package smart;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//booking conflict checks in one classroom, for a free slot after every booking, a slot
+//clashing with the middle one, and the free room search over that classroom
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConflictBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int bookings;
+
+    private CampusService service;
+    private Classroom room;
+    private LocalDateTime freeStart;
+    private LocalDateTime freeEnd;
+    private Booking middle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        room = new BenchmarkData().classrooms(1, bookings).get(0);
+        service = new CampusService(new ArrayList<>(), new ArrayList<>(List.of(room)), new ArrayList<>());
+        freeStart = BenchmarkData.EPOCH.plusDays(bookings + 1L);
+        freeEnd = freeStart.plusHours(2);
+        middle = room.getBookings().get(bookings / 2);
+    }
+
+    @Benchmark
+    public Booking freeSlot() {
+        return service.findBookingConflict(room, freeStart, freeEnd, null);
+    }
+
+    @Benchmark
+    public Booking clashingSlot() {
+        return service.findBookingConflict(room, middle.getStartTime(), middle.getEndTime(), null);
+    }
+
+    @Benchmark
+    public List<Classroom> freeRooms() {
+        return service.findFreeClassrooms(freeStart, freeEnd, 0);
+    }
+}
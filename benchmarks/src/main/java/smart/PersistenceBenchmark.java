@@ -0,0 +1,82 @@
+package smart;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+//SaveData.saveData/loadData of students.dat and classrooms.dat, in a scratch directory so
+//the real data is never touched
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistenceBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int records;
+
+    private Path scratch;
+    private List<Student> students;
+    private List<Classroom> classrooms;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        scratch = Files.createTempDirectory("campus-bench");
+        BenchmarkData data = new BenchmarkData();
+        students = data.students(records);
+        //records bookings over 200 rooms
+        classrooms = data.classrooms(200, Math.max(1, records / 200));
+        //something to load before the first save has run
+        SaveData.saveData(scratch.toFile(), "students.dat", students);
+        SaveData.saveData(scratch.toFile(), "classrooms.dat", classrooms);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(scratch)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public File saveStudents() {
+        SaveData.saveData(scratch.toFile(), "students.dat", students);
+        return scratch.toFile();
+    }
+
+    @Benchmark
+    public List<Student> loadStudents() {
+        return SaveData.loadData(scratch.toFile(), "students.dat");
+    }
+
+    @Benchmark
+    public File saveClassrooms() {
+        SaveData.saveData(scratch.toFile(), "classrooms.dat", classrooms);
+        return scratch.toFile();
+    }
+
+    @Benchmark
+    public List<Classroom> loadClassrooms() {
+        return SaveData.loadData(scratch.toFile(), "classrooms.dat");
+    }
+}
@@ -0,0 +1,63 @@
+package smart;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//student lookup by ID through the index, and searchForStudent by ID, by name and for
+//someone who is not there. the last student is the worst case for the linear searches
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+    @Param({"10000", "100000"})
+    public int students;
+
+    private CampusService service;
+    private String lastId;
+    private String lastName;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Student> list = new BenchmarkData().students(students);
+        service = new CampusService(list, new ArrayList<>(), new ArrayList<>());
+        lastId = list.get(students - 1).getId();
+        lastName = list.get(students - 1).getName();
+    }
+
+    @Benchmark
+    public Student findStudentById() {
+        return service.findStudent(lastId);
+    }
+
+    @Benchmark
+    public Student searchForStudentById() {
+        return service.searchForStudent(lastId);
+    }
+
+    @Benchmark
+    public Student searchForStudentByName() {
+        return service.searchForStudent(lastName);
+    }
+
+    @Benchmark
+    public Student searchForStudentMiss() {
+        return service.searchForStudent("nobody");
+    }
+}
@@ -0,0 +1,63 @@
+package smart;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.swing.table.DefaultTableModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//table models as the panels build them, bookings with the display cache already warm and
+//with a new one each time
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TableBenchmark {
+    @Param({"1000", "10000"})
+    public int rows;
+
+    private List<Student> students;
+    private List<Booking> bookings;
+    private DisplayCache warm;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData data = new BenchmarkData();
+        students = data.students(rows);
+        bookings = new ArrayList<>(rows);
+        for (Classroom room : data.classrooms(rows / 50, 50)) {
+            bookings.addAll(room.getBookings());
+        }
+        warm = new DisplayCache(rows * 2);
+        TableData.bookingRows(bookings, warm);
+    }
+
+    @Benchmark
+    public DefaultTableModel students() {
+        return new DefaultTableModel(TableData.studentRows(students), TableData.STUDENT_COLUMNS);
+    }
+
+    @Benchmark
+    public DefaultTableModel bookingsCached() {
+        return new DefaultTableModel(TableData.bookingRows(bookings, warm), TableData.BOOKING_COLUMNS);
+    }
+
+    @Benchmark
+    public DefaultTableModel bookingsUncached() {
+        return new DefaultTableModel(TableData.bookingRows(bookings, new DisplayCache(rows * 2)), TableData.BOOKING_COLUMNS);
+    }
+}